@@ -0,0 +1,148 @@
+package com.financialapp.bench;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.LedgerGenerator;
+import com.financialapp.database.MonthlyTotals;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The H2 database the benchmarks run against, seeded with {@link #size} transactions.
+ *
+ * Each size gets its own file database under {@code financialapp.bench.dir} (default
+ * ./bench-db), seeded once with a fixed random seed and reused by later runs, so results
+ * from different builds are measured on the same data. The application is pointed at it
+ * through {@code financialapp.db.url} before {@link DatabaseConnection} opens its pool;
+ * JMH forks a fresh JVM per size, so every fork sees exactly one database.
+ *
+ * The data comes from {@link LedgerGenerator} with its default seed and covers
+ * {@link #FIRST_DAY} to {@link #LAST_DAY}. A subclass can open it with another
+ * {@link com.financialapp.database.StorageProfile} through {@link #storageProfile()}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    public static final LocalDate FIRST_DAY = LocalDate.of(2019, 1, 1);
+    public static final LocalDate LAST_DAY = LocalDate.of(2023, 12, 31);
+
+    /** The month and year the dashboard benchmarks ask for */
+    public static final int MONTH = 6;
+    public static final int YEAR = 2023;
+
+    static final int EXPENSE_CATEGORIES = 15;
+    static final int INCOME_CATEGORIES = 5;
+    static final int SUBCATEGORIES_PER_CATEGORY = 3;
+    static final int CURRENCIES = 3;
+    static final int WALLETS = 5;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    /** An EXPENSE category, for the filtered list */
+    public long categoryId;
+
+    /** Highest id of the seeded data; write benchmarks remove everything above it afterwards */
+    public long seededMaxId;
+
+    private String url;
+
+    @Setup
+    public void open() throws SQLException, IOException {
+        String profile = storageProfile();
+        if (profile != null) {
+            System.setProperty("financialapp.storage.profile", profile);
+        }
+        Path dir = Paths.get(System.getProperty("financialapp.bench.dir", "./bench-db"), "ledger-" + size)
+                .toAbsolutePath();
+        url = "jdbc:h2:" + dir.resolve("financialdb") + ";";
+        System.setProperty("financialapp.db.url", url);
+
+        if (seededCount() != size) {
+            if (Files.isDirectory(dir)) {
+                System.out.println("Re-seeding " + dir);
+                try (Stream<Path> files = Files.walk(dir)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+                }
+            }
+            seed();
+        }
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT (SELECT MAX(id) FROM transactions), " +
+                         "(SELECT MIN(id) FROM categories WHERE type='EXPENSE')")) {
+                rs.next();
+                seededMaxId = rs.getLong(1);
+                categoryId = rs.getLong(2);
+            }
+        }
+    }
+
+    /**
+     * The storage profile to open the database with, or null for the configured one.
+     */
+    protected String storageProfile() {
+        return null;
+    }
+
+    /**
+     * Removes the transactions written by a benchmark and recomputes the rollup,
+     * so the database is back to its seeded state for the next run.
+     */
+    public void restore() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int removed;
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM transactions WHERE id > ?")) {
+                ps.setLong(1, seededMaxId);
+                removed = ps.executeUpdate();
+            }
+            if (removed > 0) {
+                MonthlyTotals.rebuild(conn);
+            }
+        }
+    }
+
+    private int seededCount() {
+        try (Connection conn = DriverManager.getConnection(url + "IFEXISTS=TRUE", "sa", "")) {
+            return count(conn, "transactions");
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void seed() throws SQLException {
+        LedgerGenerator.Config config = new LedgerGenerator.Config();
+        config.setTransactions(size);
+        config.setYears(LAST_DAY.getYear() - FIRST_DAY.getYear() + 1);
+        config.setEndYear(LAST_DAY.getYear());
+        config.setExpenseCategories(EXPENSE_CATEGORIES);
+        config.setIncomeCategories(INCOME_CATEGORIES);
+        config.setSubcategoriesPerCategory(SUBCATEGORIES_PER_CATEGORY);
+        config.setCurrencies(CURRENCIES);
+        config.setWallets(WALLETS);
+        System.out.println(new LedgerGenerator(config).generate(url));
+    }
+}
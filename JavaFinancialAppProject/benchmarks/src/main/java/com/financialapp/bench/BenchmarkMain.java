@@ -0,0 +1,34 @@
+package com.financialapp.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: the JMH runner, writing JSON results to
+ * jmh-result.json unless -rf/-rff say otherwise, so two builds can be compared by diffing
+ * (or loading both files into a JMH results viewer).
+ *
+ * Examples:
+ *   java -jar target/benchmarks.jar                               all benchmarks, all sizes
+ *   java -jar target/benchmarks.jar -p size=10000                 the smallest dataset only
+ *   java -jar target/benchmarks.jar Dashboard -rff before.json    one class, named result file
+ * The seeded databases are kept in ./bench-db (-jvmArgs -Dfinancialapp.bench.dir=... to move them).
+ */
+public class BenchmarkMain {
+
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add(DEFAULT_RESULT_FILE);
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
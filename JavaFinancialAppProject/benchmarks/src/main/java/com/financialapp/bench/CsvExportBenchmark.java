@@ -0,0 +1,57 @@
+package com.financialapp.bench;
+
+import com.financialapp.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV export of the whole ledger and of one year. An export of the largest dataset takes
+ * seconds, so each measurement is a single export.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvExportBenchmark {
+
+    private Path file;
+
+    @Setup
+    public void createFile() throws IOException {
+        file = Files.createTempFile("bench-export", ".csv");
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long exportAll(BenchmarkDatabase db) throws IOException, SQLException {
+        return TransactionService.exportCsv(TransactionService.find(null, null, -1), file, false);
+    }
+
+    @Benchmark
+    public long exportYear(BenchmarkDatabase db) throws IOException, SQLException {
+        LocalDate first = LocalDate.of(BenchmarkDatabase.YEAR, 1, 1);
+        return TransactionService.exportCsv(TransactionService.find(first, first.plusYears(1).minusDays(1), -1), file, false);
+    }
+}
@@ -0,0 +1,61 @@
+package com.financialapp.bench;
+
+import com.financialapp.models.PlanVsActual;
+import com.financialapp.service.DashboardService;
+import com.financialapp.service.PlanService;
+import com.financialapp.service.PlanVsActualService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Overview and Annual Dashboard queries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DashboardBenchmark {
+
+    /**
+     * Plan vs. actual for one month, with the result cache dropped first so the query runs.
+     */
+    @Benchmark
+    public PlanVsActual planVsActual(BenchmarkDatabase db) throws SQLException {
+        PlanVsActualService.invalidate();
+        return PlanService.getPlanVsActual(BenchmarkDatabase.MONTH, BenchmarkDatabase.YEAR);
+    }
+
+    @Benchmark
+    public Map<String, Long> monthlyExpensesPie(BenchmarkDatabase db) throws SQLException {
+        return DashboardService.expensesByCategory(BenchmarkDatabase.MONTH, BenchmarkDatabase.YEAR);
+    }
+
+    /**
+     * The annual line chart: expenses and incomes per month of one year, all wallets.
+     */
+    @Benchmark
+    public Map<String, long[]> annualMonthlyDynamics(BenchmarkDatabase db) throws SQLException {
+        LocalDate first = LocalDate.of(BenchmarkDatabase.YEAR, 1, 1);
+        return DashboardService.monthlyTotals(-1, first, first.plusYears(1).minusDays(1));
+    }
+
+    /**
+     * The annual pie chart over a range that does not start on a month boundary.
+     */
+    @Benchmark
+    public Map<String, Long> annualExpensesPartialMonths(BenchmarkDatabase db) throws SQLException {
+        LocalDate start = LocalDate.of(BenchmarkDatabase.YEAR - 1, 12, 15);
+        return DashboardService.expenseTotals(-1, start, start.plusYears(1));
+    }
+}
@@ -0,0 +1,165 @@
+package com.financialapp.bench;
+
+import com.financialapp.database.DatabaseConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The month filters on the transactions table: EXTRACT(MONTH/YEAR ...) predicates, which
+ * read every row, against the half-open date ranges the queries use, which seek the date
+ * index. Each invocation asks for the next month of the seeded data, so H2 cannot answer
+ * from the cached result of the previous one. The setup prints how many transaction rows
+ * H2 reads for each variant (scanCount from EXPLAIN ANALYZE).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DateRangeBenchmark {
+
+    // EXPLAIN ANALYZE prints "/* scanCount: N */" after each table it reads
+    private static final Pattern SCAN_COUNT = Pattern.compile("/\\* scanCount: (\\d+) \\*/");
+
+    private static final String PIE_EXTRACT =
+            "SELECT c.name AS category, SUM(t.amount) AS total " +
+            "FROM transactions t JOIN categories c ON t.category_id = c.id " +
+            "WHERE c.type='EXPENSE' AND EXTRACT(MONTH FROM t.date)=? AND EXTRACT(YEAR FROM t.date)=? " +
+            "GROUP BY c.name";
+    private static final String PIE_RANGE =
+            "SELECT c.name AS category, SUM(t.amount) AS total " +
+            "FROM transactions t JOIN categories c ON t.category_id = c.id " +
+            "WHERE c.type='EXPENSE' AND t.date >= ? AND t.date < ? " +
+            "GROUP BY c.name";
+    private static final String ACTUAL_EXTRACT =
+            "SELECT c.name, (SELECT COALESCE(SUM(t.amount),0) FROM transactions t " +
+            " WHERE t.category_id = c.id AND EXTRACT(MONTH FROM t.date)=? AND EXTRACT(YEAR FROM t.date)=?) " +
+            "FROM categories c WHERE c.type='EXPENSE'";
+    private static final String ACTUAL_RANGE =
+            "SELECT c.name, (SELECT COALESCE(SUM(t.amount),0) FROM transactions t " +
+            " WHERE t.category_id = c.id AND t.date >= ? AND t.date < ?) " +
+            "FROM categories c WHERE c.type='EXPENSE'";
+
+    private Connection conn;
+    private PreparedStatement pieExtract;
+    private PreparedStatement pieRange;
+    private PreparedStatement actualExtract;
+    private PreparedStatement actualRange;
+    private int months;
+    private int next;
+
+    @Setup
+    public void prepare(BenchmarkDatabase db) throws SQLException {
+        conn = DatabaseConnection.getConnection();
+        pieExtract = conn.prepareStatement(PIE_EXTRACT);
+        pieRange = conn.prepareStatement(PIE_RANGE);
+        actualExtract = conn.prepareStatement(ACTUAL_EXTRACT);
+        actualRange = conn.prepareStatement(ACTUAL_RANGE);
+        months = (BenchmarkDatabase.LAST_DAY.getYear() - BenchmarkDatabase.FIRST_DAY.getYear() + 1) * 12;
+
+        LocalDate month = LocalDate.of(BenchmarkDatabase.YEAR, BenchmarkDatabase.MONTH, 1);
+        System.out.printf("Rows read for %s: pie chart EXTRACT %,d, range %,d; plan vs actual EXTRACT %,d, range %,d%n",
+                month,
+                scannedRows(PIE_EXTRACT, month.getMonthValue(), month.getYear()),
+                scannedRows(PIE_RANGE, Date.valueOf(month), Date.valueOf(month.plusMonths(1))),
+                scannedRows(ACTUAL_EXTRACT, month.getMonthValue(), month.getYear()),
+                scannedRows(ACTUAL_RANGE, Date.valueOf(month), Date.valueOf(month.plusMonths(1))));
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        // Closing the pooled connection hands it back and closes its statements
+        conn.close();
+    }
+
+    @Benchmark
+    public void pieExtract(Blackhole bh) throws SQLException {
+        runExtract(pieExtract, nextMonth(), bh);
+    }
+
+    @Benchmark
+    public void pieRange(Blackhole bh) throws SQLException {
+        runRange(pieRange, nextMonth(), bh);
+    }
+
+    @Benchmark
+    public void planVsActualExtract(Blackhole bh) throws SQLException {
+        runExtract(actualExtract, nextMonth(), bh);
+    }
+
+    @Benchmark
+    public void planVsActualRange(Blackhole bh) throws SQLException {
+        runRange(actualRange, nextMonth(), bh);
+    }
+
+    private LocalDate nextMonth() {
+        next = (next + 1) % months;
+        return BenchmarkDatabase.FIRST_DAY.withDayOfMonth(1).plusMonths(next);
+    }
+
+    private static void runExtract(PreparedStatement ps, LocalDate month, Blackhole bh) throws SQLException {
+        ps.setInt(1, month.getMonthValue());
+        ps.setInt(2, month.getYear());
+        drain(ps, bh);
+    }
+
+    private static void runRange(PreparedStatement ps, LocalDate month, Blackhole bh) throws SQLException {
+        ps.setDate(1, Date.valueOf(month));
+        ps.setDate(2, Date.valueOf(month.plusMonths(1)));
+        drain(ps, bh);
+    }
+
+    private static void drain(PreparedStatement ps, Blackhole bh) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getBigDecimal(2));
+            }
+        }
+    }
+
+    /**
+     * Sum of the scanCount figures H2 reports for the transactions table in EXPLAIN ANALYZE.
+     */
+    private long scannedRows(String sql, Object p1, Object p2) throws SQLException {
+        String plan;
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN ANALYZE " + sql)) {
+            ps.setObject(1, p1);
+            ps.setObject(2, p2);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                plan = rs.getString(1);
+            }
+        }
+        long rows = 0;
+        int tableStart = 0;
+        Matcher m = SCAN_COUNT.matcher(plan);
+        while (m.find()) {
+            if (plan.substring(tableStart, m.start()).contains("\"PUBLIC\".\"TRANSACTIONS\"")) {
+                rows += Long.parseLong(m.group(1));
+            }
+            tableStart = m.end();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,81 @@
+package com.financialapp.bench;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.models.Transaction;
+import com.financialapp.service.TransactionService;
+import com.financialapp.util.CsvImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing transactions: one at a time through {@link TransactionService#add} (the Add
+ * button) and in batches through the CSV importer. Both report the time per transaction.
+ * A single add goes through the service's write queue and waits until its commit is forced
+ * to disk; with one caller every batch holds one write, so this is the latency of an add
+ * including its fsync (see {@link WriteQueueBenchmark} for concurrent writers). The rows
+ * written are removed again after each run ({@link BenchmarkDatabase#restore()}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    private String batchCsv;
+    private int counter;
+
+    @Setup
+    public void prepare() {
+        StringBuilder csv = new StringBuilder("ID,Date,CategoryId,SubcategoryId,Amount,CurrencyId,WalletId,Comment\n");
+        for (int i = 0; i < BATCH; i++) {
+            csv.append(0).append(',')
+               .append(BenchmarkDatabase.LAST_DAY.minusDays(i % 365)).append(',')
+               .append(1 + i % BenchmarkDatabase.EXPENSE_CATEGORIES).append(",0,")
+               .append(10 + i % 90).append(".25,1,")
+               .append(1 + i % BenchmarkDatabase.WALLETS).append(",Imported ").append(i).append('\n');
+        }
+        batchCsv = csv.toString();
+    }
+
+    @TearDown
+    public void removeWrittenRows(BenchmarkDatabase db) throws SQLException {
+        db.restore();
+    }
+
+    @Benchmark
+    public long singleInsert(BenchmarkDatabase db) throws SQLException {
+        int i = counter++;
+        LocalDate date = BenchmarkDatabase.LAST_DAY.minusDays(i % 365);
+        return TransactionService.add(new Transaction(0, date, 1 + i % BenchmarkDatabase.EXPENSE_CATEGORIES, 0,
+                1_000 + i % 9_000, 1, 1 + i % BenchmarkDatabase.WALLETS, "Single " + i));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public CsvImporter.Result batchInsert(BenchmarkDatabase db) throws IOException, SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return new CsvImporter(BATCH).importFrom(new StringReader(batchCsv), conn);
+        }
+    }
+}
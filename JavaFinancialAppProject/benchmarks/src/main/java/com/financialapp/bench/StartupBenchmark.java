@@ -0,0 +1,175 @@
+package com.financialapp.bench;
+
+import com.financialapp.analytics.Analytics;
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.DbExecutor;
+import com.financialapp.database.TransactionFilter;
+import com.financialapp.database.TransactionPageSource;
+import com.financialapp.search.CommentSearch;
+import com.financialapp.service.DashboardService;
+import com.financialapp.service.PlanService;
+import com.financialapp.service.TransactionService;
+import com.financialapp.storage.Storage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup on the benchmark database: the time from launching a JVM until the data of the
+ * first tab (Overview) is ready.
+ *
+ * Every invocation starts a fresh JVM on the benchmark class path, because startup costs
+ * (class loading, opening the database, cold H2 caches) do not repeat in a warm one. The
+ * child checks the schema, starts the storage engines and runs the queries the screens run
+ * when they are built: those of all three tabs at once ({@code eager}, when every tab was
+ * built with the window) or only those of the Overview tab ({@code lazy}). It also prints
+ * the phases it reached in ms since its JVM start, which show up in the fork's output.
+ *
+ * The first frame needs JavaFX, which the benchmarks leave out; the application reports it
+ * itself when run with -Dfinancialapp.startup.exit=true (see com.financialapp.StartupTimer).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class StartupBenchmark {
+
+    private static final String OVERVIEW_READY = "OVERVIEW_READY";
+    private static final String RESULT = "RESULT";
+
+    // Page size of the Transactions table (PagedTransactionList)
+    private static final int PAGE_SIZE = 200;
+
+    @Param({"eager", "lazy"})
+    public String start;
+
+    private Process child;
+    private BufferedReader output;
+
+    @Benchmark
+    public void overviewData(BenchmarkDatabase db) throws IOException {
+        child = new ProcessBuilder(childCommand()).redirectErrorStream(true).start();
+        output = new BufferedReader(new InputStreamReader(child.getInputStream()));
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.startsWith(OVERVIEW_READY)) {
+                return;
+            }
+        }
+        throw new IOException("Startup run (" + start + ") ended before the Overview data was ready");
+    }
+
+    /**
+     * Lets the child finish outside the measured time: the other tabs' data and the shutdown.
+     */
+    @TearDown(Level.Invocation)
+    public void awaitChild() throws IOException, InterruptedException {
+        if (child == null) {
+            return;
+        }
+        try (BufferedReader out = output) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    System.out.println(start + line.substring(RESULT.length()));
+                }
+            }
+        }
+        int exitCode = child.waitFor();
+        child = null;
+        if (exitCode != 0) {
+            throw new IOException("Startup run (" + start + ") failed with exit code " + exitCode);
+        }
+    }
+
+    /**
+     * The child JVM: the benchmark class path and the financialapp.* settings of this fork,
+     * among them the database BenchmarkDatabase pointed the application at.
+     */
+    private List<String> childCommand() {
+        List<String> command = new ArrayList<>(List.of(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path")));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("financialapp.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.addAll(List.of(StartupBenchmark.class.getName(), start));
+        return command;
+    }
+
+    // ---------------- Child JVM ----------------
+
+    /**
+     * Entry point of the child JVMs; args[0] is the start to run, eager or lazy.
+     */
+    public static void main(String[] args) throws Exception {
+        // What MainApp starts before any screen queries
+        DatabaseConnection.initDatabase();
+        long schema = sinceJvmStart();
+        Storage.start();
+        Analytics.start();
+        CommentSearch.start();
+
+        List<CompletableFuture<?>> screens = new ArrayList<>();
+        CompletableFuture<?> overview = CompletableFuture.allOf(
+                DbExecutor.supply(() -> DashboardService.expensesByCategory(BenchmarkDatabase.MONTH, BenchmarkDatabase.YEAR)),
+                DbExecutor.supply(() -> PlanService.getPlanVsActual(BenchmarkDatabase.MONTH, BenchmarkDatabase.YEAR)));
+        screens.add(overview);
+        if (args[0].equals("eager")) {
+            // Transactions tab: combos, then the row count and first page
+            screens.add(DbExecutor.supply(() -> {
+                DimensionCache.preload();
+                return null;
+            }));
+            screens.add(DbExecutor.supply(() -> {
+                TransactionPageSource source = TransactionService.find(new TransactionFilter());
+                source.count();
+                return source.fetchAfter(null, PAGE_SIZE);
+            }));
+            // Annual Dashboard tab: wallets, pie chart and line chart
+            screens.add(DbExecutor.supply(DimensionCache::getWalletNames));
+            screens.add(DbExecutor.supply(() -> DashboardService.expenseTotals(-1, null, null)));
+            screens.add(DbExecutor.supply(() -> DashboardService.monthlyTotals(-1, null, null)));
+        }
+        overview.join();
+        long overviewReady = sinceJvmStart();
+        System.out.println(OVERVIEW_READY);
+        CompletableFuture.allOf(screens.toArray(new CompletableFuture<?>[0])).join();
+        System.out.println(RESULT + " schema_checked=" + schema + " overview_data=" + overviewReady
+                + " all_screens_data=" + sinceJvmStart());
+
+        // As MainApp.stop(); the remaining threads are daemons
+        DbExecutor.shutdown();
+        TransactionService.shutdown();
+        Storage.shutdown();
+        DatabaseConnection.shutdown();
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,112 @@
+package com.financialapp.bench;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.TransactionFilter;
+import com.financialapp.database.TransactionPageSource;
+import com.financialapp.models.Transaction;
+import com.financialapp.service.TransactionService;
+import com.financialapp.util.CsvImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each storage profile: batched CSV import (rows/s), single inserts (the
+ * Add button) and reads of random pages of the full transaction list, whose OFFSET walk
+ * is what the page cache size shows in. JMH forks a JVM per profile, so each run opens
+ * the database with that profile's settings.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageProfileBenchmark {
+
+    private static final int BATCH = 1_000;
+    private static final int PAGE_SIZE = 200;
+
+    /**
+     * The benchmark database, opened with the profile under test.
+     */
+    public static class ProfiledDatabase extends BenchmarkDatabase {
+        @Param({"INTERACTIVE", "BULK_IMPORT", "ANALYTICS", "LOW_MEMORY"})
+        public String profile;
+
+        @Override
+        protected String storageProfile() {
+            return profile;
+        }
+    }
+
+    private String batchCsv;
+    private TransactionPageSource list;
+    private int rows;
+    private final Random random = new Random(42);
+    private int counter;
+
+    @Setup
+    public void prepare(ProfiledDatabase db) throws SQLException {
+        System.out.println("Storage profile " + DatabaseConnection.getProfile());
+        StringBuilder csv = new StringBuilder("ID,Date,CategoryId,SubcategoryId,Amount,CurrencyId,WalletId,Comment\n");
+        for (int i = 0; i < BATCH; i++) {
+            csv.append(0).append(',')
+               .append(BenchmarkDatabase.LAST_DAY.minusDays(i % 365)).append(',')
+               .append(1 + i % BenchmarkDatabase.EXPENSE_CATEGORIES).append(",0,")
+               .append(10 + i % 90).append(".25,1,")
+               .append(1 + i % BenchmarkDatabase.WALLETS).append(",Imported ").append(i).append('\n');
+        }
+        batchCsv = csv.toString();
+        list = TransactionService.find(new TransactionFilter());
+        rows = list.count();
+    }
+
+    @TearDown
+    public void removeWrittenRows(ProfiledDatabase db) throws SQLException {
+        db.restore();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public CsvImporter.Result importRows(ProfiledDatabase db) throws IOException, SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return new CsvImporter(BATCH).importFrom(new StringReader(batchCsv), conn);
+        }
+    }
+
+    @Benchmark
+    public long singleInsert(ProfiledDatabase db) throws SQLException {
+        int i = counter++;
+        LocalDate date = BenchmarkDatabase.LAST_DAY.minusDays(i % 365);
+        return TransactionService.add(new Transaction(0, date, 1 + i % BenchmarkDatabase.EXPENSE_CATEGORIES, 0,
+                1_000 + i % 9_000, 1, 1 + i % BenchmarkDatabase.WALLETS, "Single " + i));
+    }
+
+    @Benchmark
+    public List<Transaction> randomPage(ProfiledDatabase db) throws SQLException {
+        // Pages of the seeded rows only, so rows written by the other benchmarks do not matter
+        int pageNo = random.nextInt(Math.max(1, rows / PAGE_SIZE));
+        TransactionPageSource.Key cursor = pageNo == 0 ? null : list.keyAt(pageNo * PAGE_SIZE - 1);
+        return list.fetchAfter(cursor, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,49 @@
+package com.financialapp.bench;
+
+import com.financialapp.database.TransactionPageSource;
+import com.financialapp.models.Transaction;
+import com.financialapp.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Transactions tab: what it takes to show the list, unfiltered and filtered.
+ * Each operation is the row count plus the first page, as the paged table loads them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionListBenchmark {
+
+    // Page size of the Transactions table (PagedTransactionList)
+    private static final int PAGE_SIZE = 200;
+
+    @Benchmark
+    public List<Transaction> loadList(BenchmarkDatabase db, Blackhole bh) throws SQLException {
+        return firstPage(TransactionService.find(null, null, -1), bh);
+    }
+
+    @Benchmark
+    public List<Transaction> filterByCategoryAndYear(BenchmarkDatabase db, Blackhole bh) throws SQLException {
+        LocalDate first = LocalDate.of(BenchmarkDatabase.YEAR, 1, 1);
+        return firstPage(TransactionService.find(first, first.plusYears(1).minusDays(1), db.categoryId), bh);
+    }
+
+    private static List<Transaction> firstPage(TransactionPageSource source, Blackhole bh) throws SQLException {
+        bh.consume(source.count());
+        return source.fetchAfter(null, PAGE_SIZE);
+    }
+}
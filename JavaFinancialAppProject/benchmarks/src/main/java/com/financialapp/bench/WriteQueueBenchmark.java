@@ -0,0 +1,74 @@
+package com.financialapp.bench;
+
+import com.financialapp.events.TransactionChanged;
+import com.financialapp.models.Transaction;
+import com.financialapp.service.WriteQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained durable inserts through the {@link WriteQueue} (transactions/s) for a range of
+ * maximum batch sizes. Each invocation queues a burst of inserts without waiting and then
+ * waits for all of them, so the writer always has work queued; with a max batch of 1 every
+ * insert pays its own commit and fsync. The rows written are removed again after each run
+ * ({@link BenchmarkDatabase#restore()}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteQueueBenchmark {
+
+    private static final int BURST = 1_000;
+
+    @Param({"1", "16", "256"})
+    public int maxBatch;
+
+    private WriteQueue queue;
+    private int counter;
+
+    @Setup
+    public void start(BenchmarkDatabase db) {
+        queue = new WriteQueue(maxBatch, 0, WriteQueue.DEFAULT_CAPACITY);
+    }
+
+    @TearDown
+    public void stop(BenchmarkDatabase db) throws SQLException {
+        queue.close();
+        System.out.println(queue);
+        db.restore();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public Object queuedInserts() {
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[BURST];
+        for (int n = 0; n < BURST; n++) {
+            int i = counter++;
+            LocalDate date = BenchmarkDatabase.LAST_DAY.minusDays(i % 365);
+            CompletableFuture<TransactionChanged> write = queue.insert(new Transaction(0, date,
+                    1 + i % BenchmarkDatabase.EXPENSE_CATEGORIES, 0, 1_000 + i % 9_000, 1,
+                    1 + i % BenchmarkDatabase.WALLETS, "Queued " + i));
+            writes[n] = write;
+        }
+        return CompletableFuture.allOf(writes).join();
+    }
+}
@@ -0,0 +1,168 @@
+package com.financialapp.bench;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.LedgerGenerator;
+import com.financialapp.models.Transaction;
+import com.financialapp.storage.H2TransactionStore;
+import com.financialapp.storage.MappedLedger;
+import com.financialapp.storage.Storage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parity checks for the ledger storage engine ({@link MappedLedger}), run by {@code mvn test}
+ * (and so by {@code mvn package}) in this module.
+ *
+ * The workload test runs random inserts, updates and deletes against a ledger and an
+ * in-memory reference, and compares every transaction after the workload, after a clean
+ * reopen (sidecar index), after a reopen without the index (rebuilt from the records) and
+ * after compaction. The H2 test copies a generated database into a ledger the way
+ * {@link Storage} does at startup and compares the two.
+ */
+class LedgerParityTest {
+
+    private static final int OPERATIONS = Integer.getInteger("financialapp.parity.operations", 200_000);
+    private static final int H2_TRANSACTIONS = 20_000;
+
+    @TempDir
+    static Path databaseDir;
+
+    @BeforeAll
+    static void pointAtDatabase() {
+        // Read when DatabaseConnection opens its pool, on first use in the H2 test
+        System.setProperty("financialapp.db.url", "jdbc:h2:" + databaseDir.resolve("financialdb").toAbsolutePath() + ";");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        DatabaseConnection.shutdown();
+    }
+
+    @Test
+    void workloadSurvivesReopenIndexRebuildAndCompaction(@TempDir Path dir) throws SQLException, IOException {
+        Map<Long, Transaction> expected = new TreeMap<>();
+        List<Long> ids = new ArrayList<>();
+        Random random = new Random(42);
+        LocalDate firstDay = LocalDate.of(2020, 1, 1);
+
+        try (MappedLedger ledger = MappedLedger.open(dir)) {
+            for (int i = 0; i < OPERATIONS; i++) {
+                int op = random.nextInt(10);
+                if (op < 6 || ids.isEmpty()) {
+                    Transaction tx = randomTransaction(random, firstDay, 0);
+                    tx.setId(ledger.insert(tx));
+                    expected.put(tx.getId(), tx);
+                    ids.add(tx.getId());
+                } else if (op < 8) {
+                    Transaction tx = randomTransaction(random, firstDay, ids.get(random.nextInt(ids.size())));
+                    assertTrue(ledger.update(tx));
+                    expected.put(tx.getId(), tx);
+                } else {
+                    long id = ids.remove(random.nextInt(ids.size()));
+                    assertTrue(ledger.delete(id));
+                    expected.remove(id);
+                }
+            }
+            ledger.flush();
+            assertMatches("after workload", ledger, expected);
+        }
+        // Closed cleanly above, so this open reads the sidecar index
+        try (MappedLedger reopened = MappedLedger.open(dir)) {
+            assertMatches("reopened with index", reopened, expected);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(".idx")) {
+                    Files.delete(file);
+                }
+            }
+        }
+        try (MappedLedger rebuilt = MappedLedger.open(dir)) {
+            assertMatches("index rebuilt", rebuilt, expected);
+            rebuilt.compact();
+            assertMatches("compacted", rebuilt, expected);
+        }
+        try (MappedLedger compacted = MappedLedger.open(dir)) {
+            assertMatches("compacted, reopened", compacted, expected);
+        }
+    }
+
+    @Test
+    void ledgerRebuiltFromH2MatchesTransactions(@TempDir Path dir) throws SQLException {
+        LedgerGenerator.Config config = new LedgerGenerator.Config();
+        config.setTransactions(H2_TRANSACTIONS);
+        new LedgerGenerator(config).generate(System.getProperty("financialapp.db.url"));
+
+        H2TransactionStore h2 = new H2TransactionStore();
+        Map<Long, Transaction> expected = new TreeMap<>();
+        h2.forEach(tx -> expected.put(tx.getId(), tx));
+        assertEquals(H2_TRANSACTIONS, expected.size());
+
+        try (MappedLedger ledger = Storage.rebuild(dir, h2)) {
+            assertMatches("ledger vs H2", ledger, expected);
+        }
+    }
+
+    /**
+     * Compares count, find() for every expected transaction and the rows visited by scan().
+     */
+    private static void assertMatches(String label, MappedLedger ledger, Map<Long, Transaction> expected)
+            throws SQLException {
+        assertEquals(expected.size(), ledger.count(), label + ": count");
+        for (Transaction want : expected.values()) {
+            assertTrue(same(want, ledger.find(want.getId())), label + ": id " + want.getId() + " differs");
+        }
+        long[] scanned = {0, 0};
+        ledger.scan((id, day, cat, sub, wallet, currency, cents) -> {
+            Transaction want = expected.get(id);
+            if (want == null || want.getDate().toEpochDay() != day || want.getAmountCents() != cents) {
+                scanned[1]++;
+            }
+            scanned[0]++;
+        });
+        assertEquals(expected.size(), scanned[0], label + ": rows scanned");
+        assertEquals(0, scanned[1], label + ": rows scanned with wrong values");
+    }
+
+    private static boolean same(Transaction a, Transaction b) {
+        return b != null
+                && a.getId() == b.getId()
+                && a.getDate().equals(b.getDate())
+                && a.getCategoryId() == b.getCategoryId()
+                && Math.max(a.getSubcategoryId(), 0) == b.getSubcategoryId()
+                && a.getAmountCents() == b.getAmountCents()
+                && a.getCurrencyId() == b.getCurrencyId()
+                && a.getWalletId() == b.getWalletId()
+                && Objects.equals(a.getComment(), b.getComment());
+    }
+
+    private static Transaction randomTransaction(Random random, LocalDate firstDay, long id) {
+        String comment = switch (random.nextInt(4)) {
+            case 0 -> null;
+            case 1 -> "";
+            case 2 -> "Coffee \u2615 #" + random.nextInt(1000);
+            default -> "Groceries, \"weekly\"\nline two";
+        };
+        return new Transaction(id, firstDay.plusDays(random.nextInt(2000)), 1 + random.nextInt(20),
+                random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(50), random.nextInt(2_000_000) - 500_000,
+                1 + random.nextInt(3), 1 + random.nextInt(5), comment);
+    }
+}
@@ -1,13 +1,22 @@
 package com.financialapp;
 
+import com.financialapp.analytics.Analytics;
+import com.financialapp.controllers.RootLayoutController;
 import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.DbExecutor;
+import com.financialapp.database.metrics.QueryMetrics;
+import com.financialapp.search.CommentSearch;
+import com.financialapp.service.TransactionService;
+import com.financialapp.storage.Storage;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 public class MainApp extends Application {
 
@@ -16,34 +25,73 @@ public class MainApp extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        StartupTimer.mark("JavaFX started");
         this.primaryStage = primaryStage;
         this.primaryStage.setTitle("Financial Application");
 
-        // Initialize the database (creates tables, no seed data)
-        DatabaseConnection.initDatabase();
+        // JDBC timings over JMX and in the log (-Dfinancialapp.metrics=false turns them off)
+        QueryMetrics.start();
 
-        initRootLayout();
+        // The schema check and the storage engines start on a database thread while the
+        // window is built; the tabs wait for them before they query
+        CompletableFuture<Void> databaseReady = DbExecutor.supply(() -> {
+            // Initialize the database (creates tables, no seed data)
+            DatabaseConnection.initDatabase();
+            StartupTimer.mark("schema checked");
+            // Optional ledger file storage (-Dfinancialapp.storage=ledger)
+            Storage.start();
+            // Optional in-memory analytics (-Dfinancialapp.analytics=columnar), loaded in the background
+            Analytics.start();
+            // Comment search index, built in the background (-Dfinancialapp.search=sql to search with LIKE)
+            CommentSearch.start();
+            StartupTimer.mark("storage started");
+            return null;
+        });
+
+        initRootLayout(databaseReady);
     }
 
-    private void initRootLayout() {
+    private void initRootLayout(CompletableFuture<Void> databaseReady) {
         try {
             FXMLLoader loader = new FXMLLoader();
             loader.setLocation(MainApp.class.getResource("/fxml/RootLayout.fxml"));
             rootLayout = loader.load();
+            StartupTimer.mark("root layout built");
 
             Scene scene = new Scene(rootLayout);
+            // The first pulse after show() lays out and renders the first frame
+            scene.addPostLayoutPulseListener(new Runnable() {
+                @Override
+                public void run() {
+                    StartupTimer.mark(StartupTimer.FIRST_FRAME);
+                    // Not removed while the scene walks its listeners
+                    Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                }
+            });
             primaryStage.setScene(scene);
             primaryStage.show();
+
+            RootLayoutController controller = loader.getController();
+            controller.start(databaseReady);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    @Override
+    public void stop() {
+        DbExecutor.shutdown();
+        TransactionService.shutdown();
+        Storage.shutdown();
+        DatabaseConnection.shutdown();
+    }
+
     public Stage getPrimaryStage() {
         return primaryStage;
     }
 
     public static void main(String[] args) {
+        StartupTimer.mark("main");
         launch(args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.financialapp;
+
+import javafx.application.Platform;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times the startup phases from JVM start and prints them once the first tab shows its data.
+ *
+ * The report flags a first frame later than {@code -Dfinancialapp.startup.budgetMillis}
+ * (default 2000). With {@code -Dfinancialapp.startup.exit=true} the application quits
+ * right after the report, so startup can be timed from a script (the benchmarks module
+ * times the data loads without a window, see StartupBenchmark there).
+ */
+public final class StartupTimer {
+
+    public static final String FIRST_FRAME = "first frame";
+
+    private static final long BUDGET_MILLIS = Long.getLong("financialapp.startup.budgetMillis", 2000L);
+    private static final boolean EXIT_AFTER_REPORT = Boolean.getBoolean("financialapp.startup.exit");
+    private static final long JVM_START = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    // Phase -> milliseconds since JVM start, in the order reached
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+    private static boolean reported;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Records that {@code phase} was reached now. Only the first mark of a phase counts.
+     */
+    public static synchronized void mark(String phase) {
+        if (!reported) {
+            PHASES.putIfAbsent(phase, System.currentTimeMillis() - JVM_START);
+        }
+    }
+
+    /**
+     * Prints the phases (once) and, if requested, quits the application.
+     */
+    public static void report() {
+        StringBuilder sb = new StringBuilder("Startup times (ms since JVM start):");
+        synchronized (StartupTimer.class) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+            long previous = 0;
+            for (Map.Entry<String, Long> phase : PHASES.entrySet()) {
+                sb.append(String.format("%n  %-34s %6d  (+%d)", phase.getKey(), phase.getValue(),
+                        phase.getValue() - previous));
+                previous = phase.getValue();
+            }
+            Long firstFrame = PHASES.get(FIRST_FRAME);
+            if (firstFrame != null && firstFrame > BUDGET_MILLIS) {
+                sb.append(String.format("%n  First frame is %d ms over the %d ms budget",
+                        firstFrame - BUDGET_MILLIS, BUDGET_MILLIS));
+            }
+        }
+        System.out.println(sb);
+        if (EXIT_AFTER_REPORT) {
+            Platform.exit();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.financialapp.analytics;
+
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.DbExecutor;
+import com.financialapp.database.TransactionFilter;
+import com.financialapp.models.Category;
+import com.financialapp.storage.MappedLedger;
+import com.financialapp.storage.Storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Optional in-memory analytics engine backed by a {@link ColumnarLedger}.
+ *
+ * Off by default; start the app with {@code -Dfinancialapp.analytics=columnar} to enable it.
+ * {@link #start()} then loads the ledger in the background. Until it is loaded (or when it
+ * is disabled) the query methods return null and callers fall back to SQL.
+ *
+ * Every committed write to transactions must be reported through {@link #upsert} or
+ * {@link #remove}. Writes that arrive while the ledger is still loading are queued and
+ * replayed on top of it; both operations are idempotent, so replaying a write the
+ * initial scan already saw is harmless.
+ */
+public final class Analytics {
+
+    public static final boolean ENABLED =
+            "columnar".equalsIgnoreCase(System.getProperty("financialapp.analytics", ""));
+
+    private static final Object LOCK = new Object();
+    private static volatile ColumnarLedger ledger;
+    // Writes seen while loading; null when no load is running
+    private static List<Consumer<ColumnarLedger>> pending;
+
+    private Analytics() {
+    }
+
+    /**
+     * Loads the ledger in the background if the engine is enabled.
+     */
+    public static void start() {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (ledger != null || pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        DbExecutor.supply(() -> {
+            long start = System.nanoTime();
+            ColumnarLedger loaded = null;
+            // In ledger storage mode the mapped file is read directly, without H2
+            MappedLedger file = Storage.ledger();
+            try {
+                if (file != null) {
+                    loaded = ColumnarLedger.load(file);
+                } else {
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        loaded = ColumnarLedger.load(conn);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                System.out.println("Analytics engine disabled: could not load transactions");
+                e.printStackTrace();
+            }
+            synchronized (LOCK) {
+                if (loaded != null) {
+                    for (Consumer<ColumnarLedger> write : pending) {
+                        write.accept(loaded);
+                    }
+                    ledger = loaded;
+                }
+                pending = null;
+            }
+            if (loaded != null) {
+                System.out.println("Analytics engine loaded " + loaded.size() + " transactions in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The loaded ledger, or null if the engine is disabled or still loading.
+     */
+    public static ColumnarLedger ledger() {
+        return ledger;
+    }
+
+    // ---------------- Write hooks ----------------
+
+    /**
+     * Reports a committed insert or update. A subcategory id <= 0 means none.
+     */
+    public static void upsert(long id, LocalDate date, long categoryId, long subcategoryId,
+                              long walletId, long currencyId, long amountCents) {
+        apply(l -> l.upsert(id, date, categoryId, subcategoryId, walletId, currencyId, amountCents));
+    }
+
+    /**
+     * Reports a committed delete.
+     */
+    public static void remove(long id) {
+        apply(l -> l.remove(id));
+    }
+
+    private static void apply(Consumer<ColumnarLedger> write) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (pending != null) {
+                pending.add(write);
+            } else if (ledger != null) {
+                write.accept(ledger);
+            }
+        }
+    }
+
+    // ---------------- Queries ----------------
+
+    /**
+     * Expense totals in cents per category name for {@code start <= date <= end}
+     * (null bounds are open), in category name order. Only categories with at least one
+     * transaction are included.
+     *
+     * @param walletId restrict to one wallet, or -1 for all
+     * @return the totals, or null if the engine is not available
+     */
+    public static Map<String, Long> expensesByCategory(LocalDate start, LocalDate end, long walletId) {
+        ColumnarLedger l = ledger;
+        if (l == null) {
+            return null;
+        }
+        int categories = l.maxCategoryId() + 1;
+        long[] sums = new long[categories];
+        int[] counts = new int[categories];
+        l.sumByCategory(fromDay(start), untilDay(end), walletId, sums, counts);
+
+        // Keyed by name like GROUP BY c.name: categories sharing a name are added up
+        Map<String, Long> totals = new TreeMap<>();
+        for (int id = 1; id < categories; id++) {
+            Category c = counts[id] > 0 ? DimensionCache.getCategory(id) : null;
+            if (c != null && "EXPENSE".equals(c.getType())) {
+                totals.merge(c.getName(), sums[id], Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Expense and income totals in cents per month for {@code start <= date <= end}
+     * (null bounds are open), keyed by "YYYY-MM" in month order. Only months with at least
+     * one transaction are included.
+     *
+     * @param walletId restrict to one wallet, or -1 for all
+     * @return label -> {expenses, incomes}, or null if the engine is not available
+     */
+    public static Map<String, long[]> monthlyTotals(LocalDate start, LocalDate end, long walletId) {
+        ColumnarLedger l = ledger;
+        if (l == null) {
+            return null;
+        }
+        int fromDay = fromDay(start);
+        int untilDay = untilDay(end);
+        Map<String, long[]> monthly = new LinkedHashMap<>();
+        int[] range = l.monthRange(fromDay, untilDay);
+        if (range == null) {
+            return monthly;
+        }
+
+        byte[] types = categoryTypes(l);
+        int months = range[1] - range[0] + 1;
+        long[] expenses = new long[months];
+        long[] incomes = new long[months];
+        int[] counts = new int[months];
+        l.sumByMonth(fromDay, untilDay, walletId, types, range[0], expenses, incomes, counts);
+
+        for (int i = 0; i < months; i++) {
+            if (counts[i] > 0) {
+                int month = range[0] + i;
+                String label = String.format("%04d-%02d", month / 12, month % 12 + 1);
+                monthly.put(label, new long[]{expenses[i], incomes[i]});
+            }
+        }
+        return monthly;
+    }
+
+    /**
+     * Number of transactions matching {@code filter}.
+     *
+     * @return the count, or -1 if the engine is not available or the filter has comment
+     *         words, which the ledger does not keep
+     */
+    public static int count(TransactionFilter filter) {
+        ColumnarLedger l = ledger;
+        if (l == null || filter.hasCommentQuery()) {
+            return -1;
+        }
+        byte[] types = null;
+        byte type = 0;
+        if (filter.getCategoryType() != null) {
+            type = typeOf(filter.getCategoryType());
+            if (type == 0) {
+                return -1;
+            }
+            types = categoryTypes(l);
+        }
+        Long min = filter.getMinAmountCents();
+        Long max = filter.getMaxAmountCents();
+        return l.count(fromDay(filter.getStart()), untilDay(filter.getEnd()), filter.getCategoryId(),
+                filter.getSubcategoryId(), filter.getWalletId(), filter.getCurrencyId(),
+                min == null ? Long.MIN_VALUE : min, max == null ? Long.MAX_VALUE : max, types, type);
+    }
+
+    /**
+     * {@link ColumnarLedger#EXPENSE} or {@link ColumnarLedger#INCOME} per category id.
+     */
+    private static byte[] categoryTypes(ColumnarLedger l) {
+        byte[] types = new byte[l.maxCategoryId() + 1];
+        for (int id = 1; id < types.length; id++) {
+            Category c = DimensionCache.getCategory(id);
+            if (c != null) {
+                types[id] = typeOf(c.getType());
+            }
+        }
+        return types;
+    }
+
+    private static byte typeOf(String categoryType) {
+        return "INCOME".equals(categoryType) ? ColumnarLedger.INCOME
+             : "EXPENSE".equals(categoryType) ? ColumnarLedger.EXPENSE : 0;
+    }
+
+    private static int fromDay(LocalDate start) {
+        return start == null ? Integer.MIN_VALUE : (int) start.toEpochDay();
+    }
+
+    private static int untilDay(LocalDate end) {
+        return end == null ? Integer.MAX_VALUE : (int) end.toEpochDay() + 1;
+    }
+}
@@ -0,0 +1,512 @@
+package com.financialapp.analytics;
+
+import com.financialapp.storage.TransactionStore;
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the transactions table, stored column by column in primitive arrays
+ * (epoch day, month, category/subcategory/wallet/currency ids, amount in cents), in id order.
+ *
+ * The aggregations the dashboards need are plain loops over these arrays: no boxing, no
+ * per-row objects, no round trip to H2. Rows are grouped in blocks of {@value #BLOCK_SIZE}
+ * with the smallest and largest date of each block kept aside, so a date filter skips
+ * whole blocks; since ids grow with time, a month usually touches only a few blocks.
+ *
+ * Deleted rows are left in place as tombstones (category -1) and squeezed out once they
+ * make up a quarter of the ledger. Readers share a read lock; writers take the write lock.
+ */
+public final class ColumnarLedger {
+
+    /** Category types for {@link #sumByMonth}. */
+    public static final byte EXPENSE = 1;
+    public static final byte INCOME = 2;
+
+    static final int BLOCK_SHIFT = 12;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final int DELETED = -1;
+    private static final int INITIAL_CAPACITY = 1 << 14;
+
+    private static final String LOAD_SQL =
+            "SELECT id, DATEDIFF(DAY, DATE '1970-01-01', date) AS epoch_day, " +
+            "       EXTRACT(YEAR FROM date) * 12 + EXTRACT(MONTH FROM date) - 1 AS month_index, " +
+            "       category_id, COALESCE(subcategory_id, 0) AS subcategory_id, wallet_id, currency_id, " +
+            "       " + Money.cents("amount") + " AS amount_cents " +
+            "FROM transactions ORDER BY id";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids;
+    private int[] days;
+    private int[] months;
+    private int[] categories;
+    private int[] subcategories;
+    private int[] wallets;
+    private int[] currencies;
+    private long[] cents;
+
+    // Smallest and largest epoch day per block; never shrunk by updates or deletes
+    private int[] blockMinDay;
+    private int[] blockMaxDay;
+
+    private int size;
+    private int deleted;
+    private int maxCategoryId;
+
+    public ColumnarLedger() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Reads the whole transactions table in one forward scan of the primary key.
+     */
+    public static ColumnarLedger load(Connection conn) throws SQLException {
+        ColumnarLedger ledger = new ColumnarLedger();
+        try (PreparedStatement ps = conn.prepareStatement(LOAD_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ledger.append(rs.getLong(1), rs.getInt(2), rs.getInt(3), toInt(rs.getLong(4)), toInt(rs.getLong(5)),
+                            toInt(rs.getLong(6)), toInt(rs.getLong(7)), rs.getLong(8));
+                }
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * Reads every transaction of {@code store}, e.g. the memory-mapped ledger, which needs
+     * no SQL at all. Rows arriving out of id order are sorted once at the end.
+     */
+    public static ColumnarLedger load(TransactionStore store) throws SQLException {
+        ColumnarLedger ledger = new ColumnarLedger();
+        boolean[] sorted = {true};
+        store.scan((id, day, cat, sub, wallet, currency, amountCents) -> {
+            if (ledger.size > 0 && id <= ledger.ids[ledger.size - 1]) {
+                sorted[0] = false;
+            }
+            ledger.append(id, day, monthIndex(day), toInt(cat), toInt(sub), toInt(wallet), toInt(currency), amountCents);
+        });
+        if (!sorted[0]) {
+            ledger.sortById();
+        }
+        return ledger;
+    }
+
+    /**
+     * Number of live (not deleted) transactions.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------- Writes ----------------
+
+    /**
+     * Inserts the transaction, or overwrites it if the id is already present.
+     * A subcategory id <= 0 means none.
+     */
+    public void upsert(long id, LocalDate date, long categoryId, long subcategoryId,
+                       long walletId, long currencyId, long amountCents) {
+        int day = (int) date.toEpochDay();
+        int month = date.getYear() * 12 + date.getMonthValue() - 1;
+        int cat = toInt(categoryId);
+        int sub = subcategoryId <= 0 ? 0 : toInt(subcategoryId);
+        int wallet = toInt(walletId);
+        int currency = toInt(currencyId);
+
+        lock.writeLock().lock();
+        try {
+            if (size == 0 || id > ids[size - 1]) {
+                append(id, day, month, cat, sub, wallet, currency, amountCents);
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                if (categories[pos] == DELETED) {
+                    deleted--;
+                }
+                set(pos, day, month, cat, sub, wallet, currency, amountCents);
+                widenBlock(pos, day);
+            } else {
+                insertAt(-pos - 1, id, day, month, cat, sub, wallet, currency, amountCents);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the transaction with the given id; unknown ids are ignored.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0 || categories[pos] == DELETED) {
+                return;
+            }
+            categories[pos] = DELETED;
+            cents[pos] = 0;
+            deleted++;
+            if (deleted > BLOCK_SIZE && deleted > size / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------- Aggregations ----------------
+
+    /**
+     * Adds up amounts per category for transactions with {@code fromDay <= epoch day < untilDay}.
+     *
+     * @param walletId restrict to one wallet, or -1 for all
+     * @param sums     receives the cents per category id; categories outside the array are skipped
+     * @param counts   receives the number of transactions per category id, or null
+     */
+    public void sumByCategory(int fromDay, int untilDay, long walletId, long[] sums, int[] counts) {
+        lock.readLock().lock();
+        try {
+            int blocks = blockCount();
+            for (int b = 0; b < blocks; b++) {
+                if (blockMaxDay[b] < fromDay || blockMinDay[b] >= untilDay) {
+                    continue;
+                }
+                int hi = Math.min(size, (b + 1) << BLOCK_SHIFT);
+                for (int i = b << BLOCK_SHIFT; i < hi; i++) {
+                    int day = days[i];
+                    int cat = categories[i];
+                    if (day < fromDay || day >= untilDay || cat < 0 || cat >= sums.length
+                            || (walletId >= 0 && wallets[i] != walletId)) {
+                        continue;
+                    }
+                    sums[cat] += cents[i];
+                    if (counts != null) {
+                        counts[cat]++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds up amounts per month for transactions with {@code fromDay <= epoch day < untilDay},
+     * split into expenses and incomes by category type.
+     *
+     * @param walletId   restrict to one wallet, or -1 for all
+     * @param types      {@link #EXPENSE} or {@link #INCOME} per category id; transactions of other
+     *                   categories, or of categories outside the array, are skipped
+     * @param firstMonth month index (year * 12 + month - 1) stored at position 0 of the outputs
+     * @param expenses   receives expense cents per month
+     * @param incomes    receives income cents per month
+     * @param counts     receives the number of transactions per month
+     */
+    public void sumByMonth(int fromDay, int untilDay, long walletId, byte[] types, int firstMonth,
+                           long[] expenses, long[] incomes, int[] counts) {
+        lock.readLock().lock();
+        try {
+            int blocks = blockCount();
+            for (int b = 0; b < blocks; b++) {
+                if (blockMaxDay[b] < fromDay || blockMinDay[b] >= untilDay) {
+                    continue;
+                }
+                int hi = Math.min(size, (b + 1) << BLOCK_SHIFT);
+                for (int i = b << BLOCK_SHIFT; i < hi; i++) {
+                    int day = days[i];
+                    int cat = categories[i];
+                    int slot = months[i] - firstMonth;
+                    if (day < fromDay || day >= untilDay || cat < 0 || cat >= types.length
+                            || slot < 0 || slot >= counts.length
+                            || (walletId >= 0 && wallets[i] != walletId)) {
+                        continue;
+                    }
+                    byte type = types[cat];
+                    if (type == INCOME) {
+                        incomes[slot] += cents[i];
+                    } else if (type == EXPENSE) {
+                        expenses[slot] += cents[i];
+                    } else {
+                        continue;
+                    }
+                    counts[slot]++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts transactions with {@code fromDay <= epoch day < untilDay}.
+     *
+     * @param categoryId restrict to one category, or -1 for all
+     */
+    public int count(int fromDay, int untilDay, long categoryId) {
+        return count(fromDay, untilDay, categoryId, -1, -1, -1, Long.MIN_VALUE, Long.MAX_VALUE, null, (byte) 0);
+    }
+
+    /**
+     * Counts transactions with {@code fromDay <= epoch day < untilDay} and
+     * {@code minCents <= amount <= maxCents}. Each id restricts to one dimension value, or -1 for all.
+     *
+     * @param types {@link #EXPENSE} or {@link #INCOME} per category id, or null for all types
+     * @param type  the category type to count when {@code types} is given
+     */
+    public int count(int fromDay, int untilDay, long categoryId, long subcategoryId, long walletId,
+                     long currencyId, long minCents, long maxCents, byte[] types, byte type) {
+        lock.readLock().lock();
+        try {
+            int n = 0;
+            int blocks = blockCount();
+            for (int b = 0; b < blocks; b++) {
+                if (blockMaxDay[b] < fromDay || blockMinDay[b] >= untilDay) {
+                    continue;
+                }
+                int hi = Math.min(size, (b + 1) << BLOCK_SHIFT);
+                for (int i = b << BLOCK_SHIFT; i < hi; i++) {
+                    int day = days[i];
+                    int cat = categories[i];
+                    long amount = cents[i];
+                    if (day >= fromDay && day < untilDay && cat != DELETED
+                            && (categoryId < 0 || cat == categoryId)
+                            && (subcategoryId < 0 || subcategories[i] == subcategoryId)
+                            && (walletId < 0 || wallets[i] == walletId)
+                            && (currencyId < 0 || currencies[i] == currencyId)
+                            && amount >= minCents && amount <= maxCents
+                            && (types == null || (cat < types.length && types[cat] == type))) {
+                        n++;
+                    }
+                }
+            }
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Smallest and largest month index (year * 12 + month - 1) of the live transactions
+     * in the day range, as {min, max}, or null if there are none.
+     */
+    public int[] monthRange(int fromDay, int untilDay) {
+        lock.readLock().lock();
+        try {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int blocks = blockCount();
+            for (int b = 0; b < blocks; b++) {
+                if (blockMaxDay[b] < fromDay || blockMinDay[b] >= untilDay) {
+                    continue;
+                }
+                int hi = Math.min(size, (b + 1) << BLOCK_SHIFT);
+                for (int i = b << BLOCK_SHIFT; i < hi; i++) {
+                    int day = days[i];
+                    if (day >= fromDay && day < untilDay && categories[i] != DELETED) {
+                        min = Math.min(min, months[i]);
+                        max = Math.max(max, months[i]);
+                    }
+                }
+            }
+            return min > max ? null : new int[]{min, max};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Largest category id ever stored in the ledger, or 0 when empty. Callers size per-category arrays with it.
+     */
+    public int maxCategoryId() {
+        lock.readLock().lock();
+        try {
+            return maxCategoryId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------- Storage ----------------
+
+    private void append(long id, int day, int month, int cat, int sub, int wallet, int currency, long amountCents) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        set(size, day, month, cat, sub, wallet, currency, amountCents);
+        size++;
+        widenBlock(size - 1, day);
+    }
+
+    /**
+     * Out-of-order insert (an id below the largest one). Does not happen with generated ids,
+     * but keeps the ledger sorted if it ever does.
+     */
+    private void insertAt(int pos, long id, int day, int month, int cat, int sub, int wallet, int currency, long amountCents) {
+        if (size == ids.length) {
+            grow();
+        }
+        int tail = size - pos;
+        System.arraycopy(ids, pos, ids, pos + 1, tail);
+        System.arraycopy(days, pos, days, pos + 1, tail);
+        System.arraycopy(months, pos, months, pos + 1, tail);
+        System.arraycopy(categories, pos, categories, pos + 1, tail);
+        System.arraycopy(subcategories, pos, subcategories, pos + 1, tail);
+        System.arraycopy(wallets, pos, wallets, pos + 1, tail);
+        System.arraycopy(currencies, pos, currencies, pos + 1, tail);
+        System.arraycopy(cents, pos, cents, pos + 1, tail);
+        ids[pos] = id;
+        set(pos, day, month, cat, sub, wallet, currency, amountCents);
+        size++;
+        rebuildBlocks(pos >> BLOCK_SHIFT);
+    }
+
+    /**
+     * Reorders all columns by id after an unordered bulk load.
+     */
+    private void sortById() {
+        long[] sortedIds = Arrays.copyOf(ids, size);
+        Arrays.sort(sortedIds);
+        int[] target = new int[size];
+        for (int i = 0; i < size; i++) {
+            target[i] = Arrays.binarySearch(sortedIds, ids[i]);
+        }
+        int[] scratch = new int[ids.length];
+        for (int[] column : new int[][]{days, months, categories, subcategories, wallets, currencies}) {
+            for (int i = 0; i < size; i++) {
+                scratch[target[i]] = column[i];
+            }
+            System.arraycopy(scratch, 0, column, 0, size);
+        }
+        long[] scratchLong = new long[ids.length];
+        for (int i = 0; i < size; i++) {
+            scratchLong[target[i]] = cents[i];
+        }
+        System.arraycopy(scratchLong, 0, cents, 0, size);
+        System.arraycopy(sortedIds, 0, ids, 0, size);
+        rebuildBlocks(0);
+    }
+
+    /**
+     * Month index (year * 12 + month - 1) of an epoch day, without creating a LocalDate.
+     * Civil-from-days conversion on the proleptic Gregorian calendar, as in LocalDate.ofEpochDay.
+     */
+    static int monthIndex(long epochDay) {
+        long z = epochDay + 719_468; // days since 0000-03-01
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153; // March-based month
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    private void set(int i, int day, int month, int cat, int sub, int wallet, int currency, long amountCents) {
+        days[i] = day;
+        months[i] = month;
+        categories[i] = cat;
+        subcategories[i] = sub;
+        wallets[i] = wallet;
+        currencies[i] = currency;
+        cents[i] = amountCents;
+        maxCategoryId = Math.max(maxCategoryId, cat);
+    }
+
+    private void widenBlock(int i, int day) {
+        int b = i >> BLOCK_SHIFT;
+        blockMinDay[b] = Math.min(blockMinDay[b], day);
+        blockMaxDay[b] = Math.max(blockMaxDay[b], day);
+    }
+
+    /**
+     * Recomputes the date bounds of every block from {@code firstBlock} on.
+     */
+    private void rebuildBlocks(int firstBlock) {
+        Arrays.fill(blockMinDay, firstBlock, blockMinDay.length, Integer.MAX_VALUE);
+        Arrays.fill(blockMaxDay, firstBlock, blockMaxDay.length, Integer.MIN_VALUE);
+        for (int i = firstBlock << BLOCK_SHIFT; i < size; i++) {
+            if (categories[i] != DELETED) {
+                widenBlock(i, days[i]);
+            }
+        }
+    }
+
+    /**
+     * Drops the tombstones, keeping the remaining rows in id order.
+     */
+    private void compact() {
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (categories[i] == DELETED) {
+                continue;
+            }
+            if (i != j) {
+                ids[j] = ids[i];
+                set(j, days[i], months[i], categories[i], subcategories[i], wallets[i], currencies[i], cents[i]);
+            }
+            j++;
+        }
+        size = j;
+        deleted = 0;
+        rebuildBlocks(0);
+    }
+
+    private int blockCount() {
+        return (size + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        days = new int[capacity];
+        months = new int[capacity];
+        categories = new int[capacity];
+        subcategories = new int[capacity];
+        wallets = new int[capacity];
+        currencies = new int[capacity];
+        cents = new long[capacity];
+        blockMinDay = new int[(capacity + BLOCK_SIZE - 1) >> BLOCK_SHIFT];
+        blockMaxDay = new int[blockMinDay.length];
+        Arrays.fill(blockMinDay, Integer.MAX_VALUE);
+        Arrays.fill(blockMaxDay, Integer.MIN_VALUE);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        days = Arrays.copyOf(days, capacity);
+        months = Arrays.copyOf(months, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        subcategories = Arrays.copyOf(subcategories, capacity);
+        wallets = Arrays.copyOf(wallets, capacity);
+        currencies = Arrays.copyOf(currencies, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        int oldBlocks = blockMinDay.length;
+        blockMinDay = Arrays.copyOf(blockMinDay, (capacity + BLOCK_SIZE - 1) >> BLOCK_SHIFT);
+        blockMaxDay = Arrays.copyOf(blockMaxDay, blockMinDay.length);
+        Arrays.fill(blockMinDay, oldBlocks, blockMinDay.length, Integer.MAX_VALUE);
+        Arrays.fill(blockMaxDay, oldBlocks, blockMaxDay.length, Integer.MIN_VALUE);
+    }
+
+    private static int toInt(long id) {
+        // Dimension ids come from small tables; a larger one means the ledger cannot hold this database
+        return Math.toIntExact(id);
+    }
+}
@@ -0,0 +1,241 @@
+package com.financialapp.cache;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.DbExecutor;
+import com.financialapp.models.Category;
+import com.financialapp.models.Currency;
+import com.financialapp.models.Subcategory;
+import com.financialapp.models.Wallet;
+import com.financialapp.util.LongObjectHashMap;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shared in-memory copy of the small dimension tables
+ * (categories, subcategories, currencies, wallets).
+ *
+ * All id <-> name resolution in the controllers goes through here, so rendering
+ * table cells never touches the database. The whole cache is loaded in one pass
+ * on first use and reloaded on a database thread after {@link #invalidate()}, which
+ * the Manage* dialogs call whenever they write; lookups keep answering from the
+ * previous data until the reload is in place.
+ */
+public final class DimensionCache {
+
+    private static final Object LOAD_LOCK = new Object();
+    private static volatile Snapshot snapshot;
+    private static volatile long generation;
+
+    private DimensionCache() {
+    }
+
+    /**
+     * Reloads the cached data in the background.
+     *
+     * @return completes once lookups see data read after this call, or once a later
+     *         invalidate() took over the reload. If the reload fails the cached data is
+     *         dropped instead, so the next lookup retries.
+     */
+    public static CompletableFuture<Void> invalidate() {
+        long gen;
+        synchronized (LOAD_LOCK) {
+            gen = ++generation;
+        }
+        return DbExecutor.supply(() -> {
+            reload(gen);
+            return null;
+        });
+    }
+
+    /**
+     * Loads the cache now if needed, so later lookups (e.g. on the FX thread) are memory-only.
+     */
+    public static void preload() {
+        current();
+    }
+
+    // --- Categories ---
+
+    public static Category getCategory(long id) {
+        return current().categoriesById.get(id);
+    }
+
+    public static String getCategoryName(long id) {
+        Category c = getCategory(id);
+        return c == null ? "" : c.getName();
+    }
+
+    public static long getCategoryId(String name) {
+        if (name == null || name.isEmpty()) return -1;
+        Category c = current().categoriesByName.get(name);
+        return c == null ? -1 : c.getId();
+    }
+
+    public static List<String> getCategoryNames() {
+        return current().categoryNames;
+    }
+
+    // --- Subcategories ---
+
+    public static String getSubcategoryName(long id) {
+        if (id <= 0) return "";
+        Subcategory s = current().subcategoriesById.get(id);
+        return s == null ? "" : s.getName();
+    }
+
+    public static long getSubcategoryId(String name) {
+        if (name == null || name.isEmpty()) return -1;
+        Subcategory s = current().subcategoriesByName.get(name);
+        return s == null ? -1 : s.getId();
+    }
+
+    public static List<String> getSubcategoryNames() {
+        return current().subcategoryNames;
+    }
+
+    // --- Currencies ---
+
+    public static String getCurrencyCode(long id) {
+        if (id <= 0) return "";
+        Currency c = current().currenciesById.get(id);
+        return c == null ? "" : c.getCode();
+    }
+
+    public static long getCurrencyId(String code) {
+        if (code == null || code.isEmpty()) return -1;
+        Currency c = current().currenciesByCode.get(code);
+        return c == null ? -1 : c.getId();
+    }
+
+    public static List<String> getCurrencyCodes() {
+        return current().currencyCodes;
+    }
+
+    // --- Wallets ---
+
+    public static String getWalletName(long id) {
+        if (id <= 0) return "";
+        Wallet w = current().walletsById.get(id);
+        return w == null ? "" : w.getName();
+    }
+
+    public static long getWalletId(String name) {
+        if (name == null || name.isEmpty()) return -1;
+        Wallet w = current().walletsByName.get(name);
+        return w == null ? -1 : w.getId();
+    }
+
+    public static List<String> getWalletNames() {
+        return current().walletNames;
+    }
+
+    // --- Loading ---
+
+    private static Snapshot current() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+        synchronized (LOAD_LOCK) {
+            if (snapshot == null) {
+                long gen = generation;
+                Snapshot loaded = load();
+                // A failed load is not published, so the next lookup retries
+                if (loaded != null && gen == generation) {
+                    snapshot = loaded;
+                }
+                return loaded != null ? loaded : Snapshot.EMPTY;
+            }
+            return snapshot;
+        }
+    }
+
+    private static void reload(long gen) {
+        Snapshot loaded = load();
+        synchronized (LOAD_LOCK) {
+            if (gen == generation) {
+                snapshot = loaded;
+            }
+        }
+    }
+
+    private static Snapshot load() {
+        Snapshot s = new Snapshot();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            try (ResultSet rs = stmt.executeQuery("SELECT id, name, type FROM categories ORDER BY id")) {
+                while (rs.next()) {
+                    Category c = new Category(rs.getLong("id"), rs.getString("name"), rs.getString("type"));
+                    s.categoriesById.put(c.getId(), c);
+                    s.categoriesByName.putIfAbsent(c.getName(), c);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, category_id, name FROM subcategories ORDER BY id")) {
+                while (rs.next()) {
+                    Subcategory sc = new Subcategory(rs.getLong("id"), rs.getLong("category_id"), rs.getString("name"));
+                    s.subcategoriesById.put(sc.getId(), sc);
+                    s.subcategoriesByName.putIfAbsent(sc.getName(), sc);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, code, name FROM currencies ORDER BY id")) {
+                while (rs.next()) {
+                    Currency c = new Currency(rs.getLong("id"), rs.getString("code"), rs.getString("name"));
+                    s.currenciesById.put(c.getId(), c);
+                    s.currenciesByCode.putIfAbsent(c.getCode(), c);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, name FROM wallets ORDER BY id")) {
+                while (rs.next()) {
+                    Wallet w = new Wallet(rs.getLong("id"), rs.getString("name"));
+                    s.walletsById.put(w.getId(), w);
+                    s.walletsByName.putIfAbsent(w.getName(), w);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        s.categoryNames = sortedNames(s.categoriesByName);
+        s.subcategoryNames = sortedNames(s.subcategoriesByName);
+        s.currencyCodes = sortedNames(s.currenciesByCode);
+        s.walletNames = sortedNames(s.walletsByName);
+        return s;
+    }
+
+    private static List<String> sortedNames(Map<String, ?> byName) {
+        List<String> names = new ArrayList<>(byName.keySet());
+        Collections.sort(names);
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Immutable once published.
+     */
+    private static class Snapshot {
+        static final Snapshot EMPTY = new Snapshot();
+
+        final LongObjectHashMap<Category> categoriesById = new LongObjectHashMap<>();
+        final Map<String, Category> categoriesByName = new HashMap<>();
+        final LongObjectHashMap<Subcategory> subcategoriesById = new LongObjectHashMap<>();
+        final Map<String, Subcategory> subcategoriesByName = new HashMap<>();
+        final LongObjectHashMap<Currency> currenciesById = new LongObjectHashMap<>();
+        final Map<String, Currency> currenciesByCode = new HashMap<>();
+        final LongObjectHashMap<Wallet> walletsById = new LongObjectHashMap<>();
+        final Map<String, Wallet> walletsByName = new HashMap<>();
+
+        List<String> categoryNames = Collections.emptyList();
+        List<String> subcategoryNames = Collections.emptyList();
+        List<String> currencyCodes = Collections.emptyList();
+        List<String> walletNames = Collections.emptyList();
+    }
+}
@@ -0,0 +1,107 @@
+package com.financialapp.controllers;
+
+import com.financialapp.database.DbExecutor;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Per-screen helper that runs database work through {@link DbExecutor} and hands the
+ * results back to the JavaFX application thread.
+ *
+ * Loads are grouped in named slots (e.g. "pie", "summary"): starting a new load in a
+ * slot cancels the previous one, including the query it is running, so quick typing in a
+ * filter does not pile up queries on the connection pool. A result that arrives after its
+ * load was superseded is dropped, so a slow old query can never overwrite a newer one.
+ * Must be used from the JavaFX application thread.
+ */
+public class AsyncLoader {
+
+    private final Map<String, CompletableFuture<?>> latestBySlot = new HashMap<>();
+    private final IntegerProperty pending = new SimpleIntegerProperty();
+    private final BooleanBinding busy = Bindings.greaterThan(pending, 0);
+    private final Consumer<Throwable> errorHandler;
+
+    /**
+     * @param errorHandler called on the FX thread with the root cause when a load fails
+     */
+    public AsyncLoader(Consumer<Throwable> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * True while any load or write started through this loader is still running.
+     * Bind loading indicators to it.
+     */
+    public BooleanBinding busyProperty() {
+        return busy;
+    }
+
+    /**
+     * Runs {@code work} in the background, replacing any unfinished load in the same slot.
+     * {@code onResult} runs on the FX thread only if this load is still the latest one.
+     */
+    public <T> CompletableFuture<T> load(String slot, DbExecutor.SqlWork<T> work, Consumer<T> onResult) {
+        CompletableFuture<?> previous = latestBySlot.get(slot);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        CompletableFuture<T> future = DbExecutor.supplyCancellable(work);
+        latestBySlot.put(slot, future);
+        track(future, result -> {
+            if (latestBySlot.get(slot) == future) {
+                latestBySlot.remove(slot);
+                onResult.accept(result);
+            }
+        }, error -> {
+            if (latestBySlot.get(slot) == future) {
+                latestBySlot.remove(slot);
+                errorHandler.accept(error);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * True while a load started in {@code slot} has not delivered its result yet.
+     */
+    public boolean isLoading(String slot) {
+        return latestBySlot.containsKey(slot);
+    }
+
+    /**
+     * Runs {@code work} (typically a write) in the background; never cancelled.
+     * {@code onError} replaces the default error handler for this call.
+     */
+    public <T> CompletableFuture<T> run(DbExecutor.SqlWork<T> work, Consumer<T> onResult, Consumer<Throwable> onError) {
+        CompletableFuture<T> future = DbExecutor.supply(work);
+        track(future, onResult, onError);
+        return future;
+    }
+
+    private <T> void track(CompletableFuture<T> future, Consumer<T> onResult, Consumer<Throwable> onError) {
+        pending.set(pending.get() + 1);
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            pending.set(pending.get() - 1);
+            if (error == null) {
+                onResult.accept(result);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (!(cause instanceof CancellationException)) {
+                    cause.printStackTrace();
+                    onError.accept(cause);
+                }
+            }
+        }));
+    }
+}
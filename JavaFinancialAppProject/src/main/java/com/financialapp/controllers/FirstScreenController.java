@@ -1,7 +1,20 @@
 package com.financialapp.controllers;
 
-import com.financialapp.database.DatabaseConnection;
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.events.DimensionChanged;
+import com.financialapp.events.EventBus;
+import com.financialapp.events.PlanChanged;
+import com.financialapp.events.TransactionChanged;
+import com.financialapp.events.TransactionsImported;
+import com.financialapp.models.Category;
+import com.financialapp.models.PlanVsActual;
 import com.financialapp.models.SummaryRow;
+import com.financialapp.service.DashboardService;
+import com.financialapp.service.PlanService;
+import com.financialapp.models.Transaction;
+import com.financialapp.util.Money;
+import javafx.application.Platform;
+import javafx.beans.binding.BooleanBinding;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -10,18 +23,17 @@ import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.Pane;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Controls the first screen (two charts + Plan-Fact-Deviation table).
  * Now excludes INCOME categories and supports a real plan-edit dialog on double-click.
+ * Transaction and plan changes of the shown month are applied to the slices, bars and
+ * rows they touch; only category changes and imports reload the period.
  */
-public class FirstScreenController {
+public class FirstScreenController implements Screen {
 
     @FXML
     private ComboBox<String> monthCombo;   // from your newly added combos
@@ -44,23 +56,40 @@ public class FirstScreenController {
     @FXML
     private TableColumn<SummaryRow, String> categoryColumn;
     @FXML
-    private TableColumn<SummaryRow, Double> planColumn;
+    private TableColumn<SummaryRow, Long> planColumn;
     @FXML
-    private TableColumn<SummaryRow, Double> actualColumn;
+    private TableColumn<SummaryRow, Long> actualColumn;
     @FXML
-    private TableColumn<SummaryRow, Double> deviationColumn;
+    private TableColumn<SummaryRow, Long> deviationColumn;
+
+    @FXML
+    private ProgressIndicator loadingIndicator;
+
+    // Runs the dashboard queries off the FX thread (failures are only logged, as before)
+    private final AsyncLoader loader = new AsyncLoader(error -> { });
 
     // We'll track the selected period:
     private Integer selectedYear;
     private Integer selectedMonth; // 1..12
 
+    // What the charts and table show, kept to apply change events to
+    private final Map<String, Long> pieTotals = new LinkedHashMap<>();
+    private PlanVsActual planActual;
+    private XYChart.Series<String, Number> planSeries;
+    private XYChart.Series<String, Number> actualSeries;
+
     @FXML
     public void initialize() {
+        loadingIndicator.visibleProperty().bind(loader.busyProperty());
+
         // Table columns
         categoryColumn.setCellValueFactory(cd -> new javafx.beans.property.SimpleStringProperty(cd.getValue().getCategory()));
         planColumn.setCellValueFactory(cd -> new javafx.beans.property.SimpleObjectProperty<>(cd.getValue().getPlan()));
         actualColumn.setCellValueFactory(cd -> new javafx.beans.property.SimpleObjectProperty<>(cd.getValue().getActual()));
         deviationColumn.setCellValueFactory(cd -> new javafx.beans.property.SimpleObjectProperty<>(cd.getValue().getDeviation()));
+        planColumn.setCellFactory(col -> moneyCell());
+        actualColumn.setCellFactory(col -> moneyCell());
+        deviationColumn.setCellFactory(col -> moneyCell());
 
         // Populate combos with month/year
         initMonthCombo();
@@ -87,14 +116,21 @@ public class FirstScreenController {
                 selectedYear = yVal;
             }
             loadExpensesPieChart();
-            loadPlanActualBarChart();
-            loadSummaryTable();
+            loadPlanVsActual();
         });
 
         // First load with defaults:
         loadExpensesPieChart();
-        loadPlanActualBarChart();
-        loadSummaryTable();
+        loadPlanVsActual();
+
+        EventBus.subscribe(TransactionChanged.class, e -> Platform.runLater(() -> transactionChanged(e)));
+        EventBus.subscribe(PlanChanged.class, e -> Platform.runLater(() -> planChanged(e)));
+        EventBus.subscribe(TransactionsImported.class, e -> Platform.runLater(this::reloadPeriod));
+        EventBus.subscribe(DimensionChanged.class, e -> {
+            if (e.getDimension() == DimensionChanged.Dimension.CATEGORY) {
+                Platform.runLater(this::reloadPeriod);
+            }
+        });
 
         // Double-click row => open plan-edit dialog
         summaryTable.setRowFactory(tv -> {
@@ -109,152 +145,194 @@ public class FirstScreenController {
         });
     }
 
+    @Override
+    public BooleanBinding busyProperty() {
+        return loader.busyProperty();
+    }
+
     // -------------- Queries: exclude INCOME categories ---------------
+    // Queries run on DB worker threads; charts and table are updated on the FX thread.
 
-    private void loadExpensesPieChart() {
-        expensesPieChart.getData().clear();
+    private void ensurePeriod() {
         if (selectedMonth == null || selectedYear == null) {
             LocalDate now = LocalDate.now();
             selectedMonth = now.getMonthValue();
             selectedYear = now.getYear();
         }
+    }
 
-        String sql = 
-            "SELECT c.name AS category, SUM(t.amount) AS total " +
-            "FROM transactions t " +
-            "JOIN categories c ON t.category_id = c.id " +
-            "WHERE c.type='EXPENSE' " + // Exclude INCOME
-            "  AND EXTRACT(MONTH FROM t.date)=? " +
-            "  AND EXTRACT(YEAR FROM t.date)=? " +
-            "GROUP BY c.name";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, selectedMonth);
-            ps.setInt(2, selectedYear);
-
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                String cat = rs.getString("category");
-                double total = rs.getDouble("total");
-                expensesPieChart.getData().add(new PieChart.Data(cat, total));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private void loadExpensesPieChart() {
+        ensurePeriod();
+        int month = selectedMonth;
+        int year = selectedYear;
+        loader.load("pie", () -> DashboardService.expensesByCategory(month, year), totals -> {
+            pieTotals.clear();
+            pieTotals.putAll(totals);
+            expensesPieChart.getData().clear();
+            totals.forEach((cat, total) -> expensesPieChart.getData().add(new PieChart.Data(cat, Money.toDouble(total))));
+        });
     }
 
-    private void loadPlanActualBarChart() {
-        planActualBarChart.getData().clear();
+    /**
+     * Loads plan vs. actual once and renders both the bar chart and the summary table from it.
+     */
+    private void loadPlanVsActual() {
+        ensurePeriod();
+        int month = selectedMonth;
+        int year = selectedYear;
+        loader.load("planActual", () -> PlanService.getPlanVsActual(month, year), result -> {
+            planActual = result;
+            showPlanActualBarChart(result);
+            summaryTable.getItems().setAll(result.toSummaryRows());
+        });
+    }
+
+    private void showPlanActualBarChart(PlanVsActual result) {
         planActualCategoryAxis.setLabel("Category");
         planActualNumberAxis.setLabel("Amount");
 
-        if (selectedMonth == null || selectedYear == null) {
-            LocalDate now = LocalDate.now();
-            selectedMonth = now.getMonthValue();
-            selectedYear = now.getYear();
-        }
-
-        XYChart.Series<String, Number> planSeries = new XYChart.Series<>();
+        planSeries = new XYChart.Series<>();
         planSeries.setName("Plan");
 
-        XYChart.Series<String, Number> actualSeries = new XYChart.Series<>();
+        actualSeries = new XYChart.Series<>();
         actualSeries.setName("Actual");
 
-        String sql = 
-            "SELECT c.id AS cat_id, c.name AS cat_name, " +
-            "       COALESCE(p.plan_amount, 0) AS plan_amount, " +
-            "       (SELECT COALESCE(SUM(t.amount),0) FROM transactions t " +
-            "        WHERE t.category_id = c.id " +
-            "          AND EXTRACT(MONTH FROM t.date)=? " +
-            "          AND EXTRACT(YEAR FROM t.date)=?) AS actual_amount " +
-            "FROM categories c " +
-            "LEFT JOIN plans p ON p.category_id = c.id AND p.plan_month=? AND p.plan_year=? " +
-            "WHERE c.type='EXPENSE' " + // Exclude INCOME
-            "ORDER BY c.name";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, selectedMonth);
-            ps.setInt(2, selectedYear);
-            ps.setInt(3, selectedMonth);
-            ps.setInt(4, selectedYear);
-
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                String catName = rs.getString("cat_name");
-                double plan = rs.getDouble("plan_amount");
-                double actual = rs.getDouble("actual_amount");
-
-                planSeries.getData().add(new XYChart.Data<>(catName, plan));
-                actualSeries.getData().add(new XYChart.Data<>(catName, actual));
+        for (PlanVsActual.Line line : result.getLines()) {
+            planSeries.getData().add(new XYChart.Data<>(line.getCategory(), Money.toDouble(line.getPlan())));
+            actualSeries.getData().add(new XYChart.Data<>(line.getCategory(), Money.toDouble(line.getActual())));
+        }
+        planActualBarChart.getData().clear();
+        planActualBarChart.getData().addAll(planSeries, actualSeries);
+    }
+
+    // -------------- Change events ---------------
+
+    /**
+     * Takes the old row out of and puts the new row into the shown month's figures.
+     */
+    private void transactionChanged(TransactionChanged change) {
+        if (loader.isLoading("pie") || loader.isLoading("planActual") || planActual == null) {
+            // A load in flight may or may not include the change
+            reloadPeriod();
+            return;
+        }
+        Transaction before = change.getBefore();
+        Transaction after = change.getAfter();
+        if (before != null) {
+            addExpense(before, -before.getAmountCents());
+        }
+        if (after != null) {
+            addExpense(after, after.getAmountCents());
+        }
+    }
+
+    /**
+     * Reloads the shown period; for changes that cannot be applied as a delta.
+     */
+    private void reloadPeriod() {
+        loadExpensesPieChart();
+        loadPlanVsActual();
+    }
+
+    private void addExpense(Transaction tx, long cents) {
+        if (tx.getDate().getMonthValue() != selectedMonth || tx.getDate().getYear() != selectedYear || cents == 0) {
+            return;
+        }
+        Category category = DimensionCache.getCategory(tx.getCategoryId());
+        if (category == null || !"EXPENSE".equals(category.getType())) {
+            return;
+        }
+        String name = category.getName();
+
+        long total = pieTotals.getOrDefault(name, 0L) + cents;
+        PieChart.Data slice = null;
+        for (PieChart.Data data : expensesPieChart.getData()) {
+            if (data.getName().equals(name)) {
+                slice = data;
+                break;
             }
-            planActualBarChart.getData().addAll(planSeries, actualSeries);
+        }
+        if (total == 0) {
+            pieTotals.remove(name);
+            if (slice != null) {
+                expensesPieChart.getData().remove(slice);
+            }
+        } else {
+            pieTotals.put(name, total);
+            if (slice != null) {
+                slice.setPieValue(Money.toDouble(total));
+            } else {
+                expensesPieChart.getData().add(new PieChart.Data(name, Money.toDouble(total)));
+            }
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        planActual = planActual.withActualAdded(name, cents);
+        showPlanActualLine(name);
+    }
+
+    private void planChanged(PlanChanged change) {
+        if (change.getMonth() != selectedMonth || change.getYear() != selectedYear) {
+            return;
+        }
+        if (loader.isLoading("planActual") || planActual == null) {
+            loadPlanVsActual();
+            return;
         }
+        String name = DimensionCache.getCategoryName(change.getCategoryId());
+        planActual = planActual.withPlan(name, change.getPlanCents());
+        showPlanActualLine(name);
     }
 
-    private void loadSummaryTable() {
-        summaryTable.getItems().clear();
-        if (selectedMonth == null || selectedYear == null) {
-            LocalDate now = LocalDate.now();
-            selectedMonth = now.getMonthValue();
-            selectedYear = now.getYear();
+    /**
+     * Copies the current figures of one category, and the totals, to its bars and table rows.
+     */
+    private void showPlanActualLine(String category) {
+        PlanVsActual.Line line = planActual.getLine(category);
+        if (line == null) {
+            return;
+        }
+        setBar(planSeries, category, line.getPlan());
+        setBar(actualSeries, category, line.getActual());
+        for (SummaryRow row : summaryTable.getItems()) {
+            if (row.getCategory().equals(category)) {
+                setRow(row, line.getPlan(), line.getActual());
+            } else if (row.getCategory().equals("TOTAL")) {
+                setRow(row, planActual.getTotalPlan(), planActual.getTotalActual());
+            }
         }
+        summaryTable.refresh();
+    }
 
-        List<SummaryRow> rows = new ArrayList<>();
-        double totalPlan = 0;
-        double totalActual = 0;
-
-        String sql = 
-            "SELECT c.id AS cat_id, c.name AS category, " +
-            "       COALESCE(p.plan_amount, 0) AS plan_amount, " +
-            "       (SELECT COALESCE(SUM(t.amount),0) FROM transactions t " +
-            "        WHERE t.category_id = c.id " +
-            "          AND EXTRACT(MONTH FROM t.date)=? " +
-            "          AND EXTRACT(YEAR FROM t.date)=?) as actual_amount " +
-            "FROM categories c " +
-            "LEFT JOIN plans p ON p.category_id = c.id AND p.plan_month=? AND p.plan_year=? " +
-            "WHERE c.type='EXPENSE' " + // Exclude INCOME
-            "ORDER BY c.name";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, selectedMonth);
-            ps.setInt(2, selectedYear);
-            ps.setInt(3, selectedMonth);
-            ps.setInt(4, selectedYear);
-
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                String catName = rs.getString("category");
-                double planVal = rs.getDouble("plan_amount");
-                double actualVal = rs.getDouble("actual_amount");
-
-                totalPlan += planVal;
-                totalActual += actualVal;
-
-                rows.add(new SummaryRow(catName, planVal, actualVal));
+    private static void setBar(XYChart.Series<String, Number> series, String category, long cents) {
+        for (XYChart.Data<String, Number> data : series.getData()) {
+            if (data.getXValue().equals(category)) {
+                data.setYValue(Money.toDouble(cents));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+    }
 
-        summaryTable.getItems().addAll(rows);
+    private static void setRow(SummaryRow row, long plan, long actual) {
+        row.setPlan(plan);
+        row.setActual(actual);
+        row.setDeviation(plan - actual);
+    }
 
-        // Totals row
-        double devTotal = totalPlan - totalActual;
-        SummaryRow totalRow = new SummaryRow("TOTAL", totalPlan, totalActual);
-        totalRow.setDeviation(devTotal);
-        summaryTable.getItems().add(totalRow);
+    /**
+     * Table cell showing an amount in cents as a decimal.
+     */
+    private static TableCell<SummaryRow, Long> moneyCell() {
+        return new TableCell<>() {
+            @Override
+            protected void updateItem(Long cents, boolean empty) {
+                super.updateItem(cents, empty);
+                setText(empty || cents == null ? null : Money.format(cents));
+            }
+        };
     }
 
     // -------------- Double-click => open real plan-edit dialog --------------
 
-    private void openEditPlanDialog(String categoryName, double currentPlan) {
+    private void openEditPlanDialog(String categoryName, long currentPlan) {
         try {
             // Load the EditPlanDialog.fxml
             javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(getClass().getResource("/fxml/EditPlanDialog.fxml"));
@@ -276,11 +354,7 @@ public class FirstScreenController {
             dialogStage.setScene(new javafx.scene.Scene(root));
             dialogStage.initModality(javafx.stage.Modality.WINDOW_MODAL);
             dialogStage.showAndWait();
-
-            // After dialog closes, refresh charts & table
-            loadExpensesPieChart();
-            loadPlanActualBarChart();
-            loadSummaryTable();
+            // A saved plan arrives as a PlanChanged event
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -345,7 +419,6 @@ public class FirstScreenController {
     // Called by EditPlanController after plan is updated (optional approach)
     public void refreshDataAfterPlanEdit() {
         loadExpensesPieChart();
-        loadPlanActualBarChart();
-        loadSummaryTable();
+        loadPlanVsActual();
     }
 }
\ No newline at end of file
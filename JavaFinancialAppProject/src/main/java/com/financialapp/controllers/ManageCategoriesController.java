@@ -1,6 +1,8 @@
 package com.financialapp.controllers;
 
-import com.financialapp.database.DatabaseConnection;
+import com.financialapp.models.Category;
+import com.financialapp.models.Subcategory;
+import com.financialapp.service.ReferenceDataService;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -8,9 +10,7 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
-import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.sql.SQLException;
 
 /**
  * Controller for the Manage Categories Dialog.
@@ -21,16 +21,16 @@ public class ManageCategoriesController {
     // --- FXML Components ---
 
     @FXML
-    private TableView<CategoryRow> categoriesTable;
+    private TableView<Category> categoriesTable;
     @FXML
-    private TableColumn<CategoryRow, String> catNameCol;
+    private TableColumn<Category, String> catNameCol;
     @FXML
-    private TableColumn<CategoryRow, String> catTypeCol;
+    private TableColumn<Category, String> catTypeCol;
 
     @FXML
-    private TableView<SubcategoryRow> subcategoriesTable;
+    private TableView<Subcategory> subcategoriesTable;
     @FXML
-    private TableColumn<SubcategoryRow, String> subcatNameCol;
+    private TableColumn<Subcategory, String> subcatNameCol;
 
     @FXML
     private TextField catNameField;
@@ -121,20 +121,8 @@ public class ManageCategoriesController {
      */
     private void loadCategories() {
         categoriesTable.getItems().clear();
-        String sql = "SELECT * FROM categories ORDER BY name";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            List<CategoryRow> categories = new ArrayList<>();
-            while (rs.next()) {
-                categories.add(new CategoryRow(
-                        rs.getLong("id"),
-                        rs.getString("name"),
-                        rs.getString("type")
-                ));
-            }
-            categoriesTable.getItems().addAll(categories);
+        try {
+            categoriesTable.getItems().addAll(ReferenceDataService.listCategories());
         } catch (SQLException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to load categories.");
@@ -153,13 +141,8 @@ public class ManageCategoriesController {
             return;
         }
 
-        String sql = "INSERT INTO categories (name, type) VALUES (?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, name);
-            ps.setString(2, type);
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.addCategory(name, type);
 
             showAlert(Alert.AlertType.INFORMATION, "Success", "Category added successfully.");
 
@@ -180,7 +163,7 @@ public class ManageCategoriesController {
      * Renames the selected category.
      */
     private void renameCategory() {
-        CategoryRow selectedCategory = categoriesTable.getSelectionModel().getSelectedItem();
+        Category selectedCategory = categoriesTable.getSelectionModel().getSelectedItem();
         if (selectedCategory == null) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select a category to rename.");
             return;
@@ -194,14 +177,8 @@ public class ManageCategoriesController {
             return;
         }
 
-        String sql = "UPDATE categories SET name = ?, type = ? WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, newName);
-            ps.setString(2, newType);
-            ps.setLong(3, selectedCategory.getId());
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.updateCategory(selectedCategory.getId(), newName, newType);
 
             showAlert(Alert.AlertType.INFORMATION, "Success", "Category renamed successfully.");
 
@@ -223,24 +200,18 @@ public class ManageCategoriesController {
      * Prevents deletion if the category has associated subcategories.
      */
     private void deleteCategory() {
-        CategoryRow selectedCategory = categoriesTable.getSelectionModel().getSelectedItem();
+        Category selectedCategory = categoriesTable.getSelectionModel().getSelectedItem();
         if (selectedCategory == null) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select a category to delete.");
             return;
         }
 
         // Check if category has subcategories
-        String checkSql = "SELECT COUNT(*) AS count FROM subcategories WHERE category_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(checkSql)) {
-
-            ps.setLong(1, selectedCategory.getId());
-            ResultSet rs = ps.executeQuery();
-            if (rs.next() && rs.getInt("count") > 0) {
+        try {
+            if (ReferenceDataService.hasSubcategories(selectedCategory.getId())) {
                 showAlert(Alert.AlertType.WARNING, "Cannot Delete", "Category has subcategories. Delete them first.");
                 return;
             }
-
         } catch (SQLException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to verify category dependencies.");
@@ -254,12 +225,8 @@ public class ManageCategoriesController {
         confirmation.setContentText("Are you sure you want to delete the selected category?");
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                String deleteSql = "DELETE FROM categories WHERE id = ?";
-                try (Connection conn = DatabaseConnection.getConnection();
-                     PreparedStatement ps = conn.prepareStatement(deleteSql)) {
-
-                    ps.setLong(1, selectedCategory.getId());
-                    ps.executeUpdate();
+                try {
+                    ReferenceDataService.deleteCategory(selectedCategory.getId());
 
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Category deleted successfully.");
 
@@ -286,23 +253,8 @@ public class ManageCategoriesController {
      */
     private void loadSubcategories(long categoryId) {
         subcategoriesTable.getItems().clear();
-        String sql = "SELECT * FROM subcategories WHERE category_id = ? ORDER BY name";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setLong(1, categoryId);
-            ResultSet rs = ps.executeQuery();
-
-            List<SubcategoryRow> subcategories = new ArrayList<>();
-            while (rs.next()) {
-                subcategories.add(new SubcategoryRow(
-                        rs.getLong("id"),
-                        rs.getLong("category_id"),
-                        rs.getString("name")
-                ));
-            }
-            subcategoriesTable.getItems().addAll(subcategories);
-
+        try {
+            subcategoriesTable.getItems().addAll(ReferenceDataService.listSubcategories(categoryId));
         } catch (SQLException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to load subcategories.");
@@ -313,7 +265,7 @@ public class ManageCategoriesController {
      * Adds a new subcategory under the selected category.
      */
     private void addSubcategory() {
-        CategoryRow selectedCategory = categoriesTable.getSelectionModel().getSelectedItem();
+        Category selectedCategory = categoriesTable.getSelectionModel().getSelectedItem();
         if (selectedCategory == null) {
             showAlert(Alert.AlertType.WARNING, "No Category Selected", "Please select a category to add a subcategory.");
             return;
@@ -325,13 +277,8 @@ public class ManageCategoriesController {
             return;
         }
 
-        String sql = "INSERT INTO subcategories (category_id, name) VALUES (?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setLong(1, selectedCategory.getId());
-            ps.setString(2, subcatName);
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.addSubcategory(selectedCategory.getId(), subcatName);
 
             showAlert(Alert.AlertType.INFORMATION, "Success", "Subcategory added successfully.");
 
@@ -351,7 +298,7 @@ public class ManageCategoriesController {
      * Renames the selected subcategory.
      */
     private void renameSubcategory() {
-        SubcategoryRow selectedSubcat = subcategoriesTable.getSelectionModel().getSelectedItem();
+        Subcategory selectedSubcat = subcategoriesTable.getSelectionModel().getSelectedItem();
         if (selectedSubcat == null) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select a subcategory to rename.");
             return;
@@ -363,13 +310,8 @@ public class ManageCategoriesController {
             return;
         }
 
-        String sql = "UPDATE subcategories SET name = ? WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, newName);
-            ps.setLong(2, selectedSubcat.getId());
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.renameSubcategory(selectedSubcat.getId(), newName);
 
             showAlert(Alert.AlertType.INFORMATION, "Success", "Subcategory renamed successfully.");
 
@@ -389,7 +331,7 @@ public class ManageCategoriesController {
      * Deletes the selected subcategory from the database.
      */
     private void deleteSubcategory() {
-        SubcategoryRow selectedSubcat = subcategoriesTable.getSelectionModel().getSelectedItem();
+        Subcategory selectedSubcat = subcategoriesTable.getSelectionModel().getSelectedItem();
         if (selectedSubcat == null) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select a subcategory to delete.");
             return;
@@ -402,12 +344,8 @@ public class ManageCategoriesController {
         confirmation.setContentText("Are you sure you want to delete the selected subcategory?");
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                String sql = "DELETE FROM subcategories WHERE id = ?";
-                try (Connection conn = DatabaseConnection.getConnection();
-                     PreparedStatement ps = conn.prepareStatement(sql)) {
-
-                    ps.setLong(1, selectedSubcat.getId());
-                    ps.executeUpdate();
+                try {
+                    ReferenceDataService.deleteSubcategory(selectedSubcat.getId());
 
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Subcategory deleted successfully.");
 
@@ -438,60 +376,4 @@ public class ManageCategoriesController {
         alert.setContentText(message);
         alert.showAndWait();
     }
-
-    // --- Inner Classes for Table Rows ---
-
-    /**
-     * Represents a Category row in the Categories TableView.
-     */
-    public static class CategoryRow {
-        private long id;
-        private String name;
-        private String type;
-
-        public CategoryRow(long id, String name, String type) {
-            this.id = id;
-            this.name = name;
-            this.type = type;
-        }
-
-        public long getId() {
-            return id;
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getType() {
-            return type;
-        }
-    }
-
-    /**
-     * Represents a Subcategory row in the Subcategories TableView.
-     */
-    public static class SubcategoryRow {
-        private long id;
-        private long categoryId;
-        private String name;
-
-        public SubcategoryRow(long id, long categoryId, String name) {
-            this.id = id;
-            this.categoryId = categoryId;
-            this.name = name;
-        }
-
-        public long getId() {
-            return id;
-        }
-
-        public long getCategoryId() {
-            return categoryId;
-        }
-
-        public String getName() {
-            return name;
-        }
-    }
 }
\ No newline at end of file
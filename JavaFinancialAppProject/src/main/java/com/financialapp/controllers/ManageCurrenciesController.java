@@ -1,23 +1,22 @@
 package com.financialapp.controllers;
 
-import com.financialapp.database.DatabaseConnection;
+import com.financialapp.models.Currency;
+import com.financialapp.service.ReferenceDataService;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
-import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.sql.SQLException;
 
 public class ManageCurrenciesController {
 
     @FXML
-    private TableView<CurrencyRow> currenciesTable;
+    private TableView<Currency> currenciesTable;
     @FXML
-    private TableColumn<CurrencyRow, String> currencyCodeCol;
+    private TableColumn<Currency, String> currencyCodeCol;
     @FXML
-    private TableColumn<CurrencyRow, String> currencyNameCol;
+    private TableColumn<Currency, String> currencyNameCol;
 
     @FXML
     private TextField currencyCodeField;
@@ -42,20 +41,8 @@ public class ManageCurrenciesController {
 
     private void loadCurrencies() {
         currenciesTable.getItems().clear();
-        String sql = "SELECT * FROM currencies ORDER BY code";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            List<CurrencyRow> rows = new ArrayList<>();
-            while (rs.next()) {
-                rows.add(new CurrencyRow(
-                    rs.getLong("id"),
-                    rs.getString("code"),
-                    rs.getString("name")
-                ));
-            }
-            currenciesTable.getItems().addAll(rows);
+        try {
+            currenciesTable.getItems().addAll(ReferenceDataService.listCurrencies());
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -69,12 +56,8 @@ public class ManageCurrenciesController {
             return;
         }
 
-        String sql = "INSERT INTO currencies (code, name) VALUES (?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, code);
-            ps.setString(2, name);
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.addCurrency(code, name);
         } catch (SQLException e) {
             e.printStackTrace();
             showAlert("DB Error", "Could not add currency");
@@ -86,16 +69,13 @@ public class ManageCurrenciesController {
     }
 
     private void deleteCurrency() {
-        CurrencyRow selected = currenciesTable.getSelectionModel().getSelectedItem();
+        Currency selected = currenciesTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showAlert("Selection Error", "Select a currency to delete");
             return;
         }
-        String sql = "DELETE FROM currencies WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, selected.getId());
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.deleteCurrency(selected.getId());
         } catch (SQLException e) {
             e.printStackTrace();
             showAlert("DB Error", "Could not delete currency");
@@ -111,20 +91,4 @@ public class ManageCurrenciesController {
         alert.setContentText(msg);
         alert.showAndWait();
     }
-
-    public static class CurrencyRow {
-        private long id;
-        private String code;
-        private String name;
-
-        public CurrencyRow(long id, String code, String name) {
-            this.id = id;
-            this.code = code;
-            this.name = name;
-        }
-
-        public long getId() { return id; }
-        public String getCode() { return code; }
-        public String getName() { return name; }
-    }
 }
\ No newline at end of file
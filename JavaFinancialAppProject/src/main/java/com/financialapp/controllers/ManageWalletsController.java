@@ -1,21 +1,20 @@
 package com.financialapp.controllers;
 
-import com.financialapp.database.DatabaseConnection;
+import com.financialapp.models.Wallet;
+import com.financialapp.service.ReferenceDataService;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
-import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.sql.SQLException;
 
 public class ManageWalletsController {
 
     @FXML
-    private TableView<WalletRow> walletsTable;
+    private TableView<Wallet> walletsTable;
     @FXML
-    private TableColumn<WalletRow, String> walletNameCol;
+    private TableColumn<Wallet, String> walletNameCol;
 
     @FXML
     private TextField walletNameField;
@@ -36,19 +35,8 @@ public class ManageWalletsController {
 
     private void loadWallets() {
         walletsTable.getItems().clear();
-        String sql = "SELECT * FROM wallets ORDER BY name";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            List<WalletRow> rows = new ArrayList<>();
-            while (rs.next()) {
-                rows.add(new WalletRow(
-                    rs.getLong("id"),
-                    rs.getString("name")
-                ));
-            }
-            walletsTable.getItems().addAll(rows);
+        try {
+            walletsTable.getItems().addAll(ReferenceDataService.listWallets());
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -61,11 +49,8 @@ public class ManageWalletsController {
             return;
         }
 
-        String sql = "INSERT INTO wallets (name) VALUES (?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, name);
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.addWallet(name);
         } catch (SQLException e) {
             e.printStackTrace();
             showAlert("DB Error", "Could not add wallet");
@@ -76,16 +61,13 @@ public class ManageWalletsController {
     }
 
     private void deleteWallet() {
-        WalletRow selected = walletsTable.getSelectionModel().getSelectedItem();
+        Wallet selected = walletsTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showAlert("Selection Error", "Select a wallet to delete");
             return;
         }
-        String sql = "DELETE FROM wallets WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, selected.getId());
-            ps.executeUpdate();
+        try {
+            ReferenceDataService.deleteWallet(selected.getId());
         } catch (SQLException e) {
             e.printStackTrace();
             showAlert("DB Error", "Could not delete wallet");
@@ -101,17 +83,4 @@ public class ManageWalletsController {
         alert.setContentText(msg);
         alert.showAndWait();
     }
-
-    public static class WalletRow {
-        private long id;
-        private String name;
-
-        public WalletRow(long id, String name) {
-            this.id = id;
-            this.name = name;
-        }
-
-        public long getId() { return id; }
-        public String getName() { return name; }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,303 @@
+package com.financialapp.controllers;
+
+import com.financialapp.database.DbExecutor;
+import com.financialapp.database.TransactionPageSource;
+import com.financialapp.models.Transaction;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Read-only list backing the transactions TableView.
+ *
+ * Only the row count is known up front; rows are fetched a page at a time when the
+ * TableView asks for them (i.e. when they scroll into view), and at most
+ * {@link #MAX_CACHED_PAGES} pages are kept in memory, least recently used evicted first.
+ * A page that is not cached is fetched on {@link DbExecutor}: until it arrives its rows
+ * are null (rendered blank), then a change replacing them is fired. Apart from
+ * {@link #preload}, the list is only used on the FX thread.
+ *
+ * A committed change is applied with {@link #apply}: the list locates the rows it
+ * affects in the background, then fires a change for just those rows and drops the cached
+ * pages from the first affected one on, so only the rows on screen are fetched again.
+ */
+public class PagedTransactionList extends ObservableListBase<Transaction> {
+
+    static final int PAGE_SIZE = 200;
+    static final int MAX_CACHED_PAGES = 10;
+
+    private final TransactionPageSource source;
+    private int size;
+
+    // Access-ordered so the eldest entry is the least recently used page
+    private final Map<Integer, List<Transaction>> pages =
+            new LinkedHashMap<Integer, List<Transaction>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<Transaction>> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+
+    // Keyset cursor (key of the last row of page N-1) for every page N we have located.
+    // One small entry per page, kept even after the page itself is evicted.
+    private final Map<Integer, TransactionPageSource.Key> pageCursors = new HashMap<>();
+
+    // Pages being fetched in the background
+    private final Set<Integer> loading = new HashSet<>();
+    // Advanced whenever rows move, so a page fetched before that is not used
+    private int generation;
+
+    public PagedTransactionList(TransactionPageSource source) throws SQLException {
+        this.source = source;
+        this.size = source.count();
+    }
+
+    /**
+     * Loads the first page on the calling thread, so the table has rows to show as soon as
+     * it gets this list. Call in the background, before handing the list to the FX thread.
+     */
+    public void preload() throws SQLException {
+        if (size > 0) {
+            Fetched first = fetch(0, null);
+            if (first != null) {
+                cache(0, first);
+            }
+        }
+    }
+
+    public TransactionPageSource getSource() {
+        return source;
+    }
+
+    @Override
+    public Transaction get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        List<Transaction> page = getPage(index / PAGE_SIZE);
+        int offset = index % PAGE_SIZE;
+        return page != null && offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Applies a committed change to a transaction (before is null for an insert, after is
+     * null for a delete). Call on the FX thread, after the change has been committed.
+     *
+     * The rows the change affects are located on {@link DbExecutor}; only the list change
+     * itself is fired on the FX thread.
+     *
+     * @param onFailure run on the FX thread if the change could not be located, or the
+     *                  list changed while it was; the caller should then reload the list
+     */
+    public void apply(Transaction before, Transaction after, Runnable onFailure) {
+        int locatedIn = generation;
+        DbExecutor.supply(() -> locate(before, after)).whenComplete((located, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                onFailure.run();
+                return;
+            }
+            // A change to rows this list does not show needs nothing
+            boolean listed = located.removed() != null || located.added() != null;
+            if (listed && (locatedIn != generation || !fire(located))) {
+                onFailure.run();
+            }
+        }));
+    }
+
+    /**
+     * Finds where the change removes and adds rows. Runs off the FX thread and only
+     * touches the source, which already reflects the change.
+     */
+    private Located locate(Transaction before, Transaction after) throws SQLException {
+        boolean wasListed = before != null && source.matches(before);
+        boolean isListed = after != null && source.matches(after);
+        if (!wasListed && !isListed) {
+            return new Located(null, -1, null, -1);
+        }
+        source.changed(before, after);
+        TransactionPageSource.Key oldKey = wasListed ? TransactionPageSource.Key.of(before) : null;
+        TransactionPageSource.Key newKey = isListed ? TransactionPageSource.Key.of(after) : null;
+        int removedAt = -1;
+        if (wasListed) {
+            // An inserted row before the old one is counted too
+            removedAt = source.indexOf(oldKey) - (isListed && newKey.compareTo(oldKey) < 0 ? 1 : 0);
+        }
+        int addedAt = -1;
+        if (isListed) {
+            addedAt = wasListed && oldKey.compareTo(newKey) == 0 ? removedAt : source.indexOf(newKey);
+        }
+        return new Located(wasListed ? before : null, removedAt, isListed ? after : null, addedAt);
+    }
+
+    /**
+     * Fires the change {@link #locate} found.
+     * @return false if its positions do not fit the list
+     */
+    private boolean fire(Located change) {
+        boolean wasListed = change.removed() != null;
+        boolean isListed = change.added() != null;
+        int removedAt = change.removedAt();
+        int addedAt = change.addedAt();
+        if (wasListed && (removedAt < 0 || removedAt >= size)) {
+            return false;
+        }
+        if (wasListed && isListed && TransactionPageSource.Key.of(change.removed())
+                .compareTo(TransactionPageSource.Key.of(change.added())) == 0) {
+            replace(removedAt, change.added());
+            return true;
+        }
+        if (addedAt > size - (wasListed ? 1 : 0)) {
+            return false;
+        }
+        int first = wasListed && isListed ? Math.min(removedAt, addedAt) : Math.max(removedAt, addedAt);
+        dropPagesFrom(first / PAGE_SIZE);
+        generation++;
+        beginChange();
+        if (wasListed) {
+            size--;
+            nextRemove(removedAt, change.removed());
+        }
+        if (isListed) {
+            size++;
+            nextAdd(addedAt, addedAt + 1);
+        }
+        endChange();
+        return true;
+    }
+
+    /**
+     * An update that kept the row's position: swap the row in its cached page, if any.
+     */
+    private void replace(int index, Transaction row) {
+        List<Transaction> page = pages.get(index / PAGE_SIZE);
+        int offset = index % PAGE_SIZE;
+        if (page != null && offset < page.size()) {
+            List<Transaction> updated = new ArrayList<>(page);
+            updated.set(offset, row);
+            pages.put(index / PAGE_SIZE, updated);
+        }
+        // A fetch in flight may have read the old row
+        generation++;
+        beginChange();
+        nextSet(index, row);
+        endChange();
+    }
+
+    /**
+     * Forgets page {@code pageNo} and everything after it. The cursor of page
+     * {@code pageNo} (the last row of the page before) is still valid.
+     */
+    private void dropPagesFrom(int pageNo) {
+        pages.keySet().removeIf(p -> p >= pageNo);
+        pageCursors.keySet().removeIf(p -> p > pageNo);
+    }
+
+    /**
+     * The cached page, or null after starting to fetch it.
+     */
+    private List<Transaction> getPage(int pageNo) {
+        List<Transaction> page = pages.get(pageNo);
+        if (page == null) {
+            requestPage(pageNo);
+        }
+        return page;
+    }
+
+    private void requestPage(int pageNo) {
+        if (!loading.add(pageNo)) {
+            return;
+        }
+        TransactionPageSource.Key cursor = pageCursors.get(pageNo);
+        int requestedIn = generation;
+        DbExecutor.supply(() -> fetch(pageNo, cursor)).whenComplete((fetched, error) ->
+                Platform.runLater(() -> pageFetched(pageNo, requestedIn, fetched, error)));
+    }
+
+    private void pageFetched(int pageNo, int requestedIn, Fetched fetched, Throwable error) {
+        loading.remove(pageNo);
+        boolean wanted = pageNo * PAGE_SIZE < size && !pages.containsKey(pageNo);
+        if (requestedIn != generation) {
+            // Rows moved while it was fetched; fetch it again if it is still needed
+            if (wanted) {
+                requestPage(pageNo);
+            }
+            return;
+        }
+        if (error != null) {
+            // Not cached, so the page is retried the next time it is rendered
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            cause.printStackTrace();
+            return;
+        }
+        if (fetched == null || !wanted) {
+            // No cursor: the rows stay blank until the change that shrank the list arrives
+            return;
+        }
+        cache(pageNo, fetched);
+        int from = pageNo * PAGE_SIZE;
+        int to = Math.min(size, from + PAGE_SIZE);
+        beginChange();
+        for (int i = from; i < to; i++) {
+            nextSet(i, null);
+        }
+        endChange();
+    }
+
+    /**
+     * Reads page {@code pageNo}, starting after {@code cursor} (found first if unknown).
+     * Runs off the FX thread and only touches the source.
+     *
+     * @return null if the cursor cannot be found: fewer rows than the list holds, because
+     *         some were deleted and the change has not been applied yet
+     */
+    private Fetched fetch(int pageNo, TransactionPageSource.Key cursor) throws SQLException {
+        if (pageNo > 0 && cursor == null) {
+            // Jumped here without loading the previous page: locate the boundary once
+            cursor = source.keyAt(pageNo * PAGE_SIZE - 1);
+            if (cursor == null) {
+                return null;
+            }
+        }
+        List<Transaction> rows = source.fetchAfter(cursor, PAGE_SIZE);
+        return new Fetched(cursor, rows, source.keyAfter(cursor, rows));
+    }
+
+    private void cache(int pageNo, Fetched fetched) {
+        if (pageNo > 0) {
+            pageCursors.put(pageNo, fetched.cursor());
+        }
+        if (fetched.next() != null) {
+            pageCursors.put(pageNo + 1, fetched.next());
+        }
+        pages.put(pageNo, fetched.rows());
+    }
+
+    /**
+     * Where a change removes a row and adds one; a row that is not listed is null, at -1.
+     */
+    private record Located(Transaction removed, int removedAt, Transaction added, int addedAt) {
+    }
+
+    /**
+     * A page, the cursor it was read after (null for the first page) and the cursor of the
+     * page after it (null if unknown).
+     */
+    private record Fetched(TransactionPageSource.Key cursor, List<Transaction> rows, TransactionPageSource.Key next) {
+    }
+}
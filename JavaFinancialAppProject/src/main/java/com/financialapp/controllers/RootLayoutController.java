@@ -1,14 +1,128 @@
 package com.financialapp.controllers;
 
+import com.financialapp.StartupTimer;
+import javafx.application.Platform;
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Builds each tab's screen the first time the tab is selected, so startup only pays for
+ * the screen the user sees. The FXML of a tab is named by its userData.
+ *
+ * Screens query the database as soon as they are built, so no tab is built before the
+ * future passed to {@link #start} (the schema check) completes; until then the tab shows
+ * a progress indicator. If the check fails, no tab is built: the error is shown and the
+ * application exits.
+ */
 public class RootLayoutController {
     @FXML
     private TabPane mainTabPane;
 
+    private final Set<Tab> requested = new HashSet<>();
+    private CompletableFuture<?> databaseReady;
+    private boolean anyBuilt;
+    private boolean failed;
+
     @FXML
     private void initialize() {
-        // Placeholder if needed for global logic
+        mainTabPane.getSelectionModel().selectedItemProperty().addListener((obs, old, tab) -> requestTab(tab));
+    }
+
+    /**
+     * Builds the selected tab once {@code databaseReady} completes, and every other tab
+     * when it is first selected.
+     */
+    public void start(CompletableFuture<?> databaseReady) {
+        this.databaseReady = databaseReady;
+        requestTab(mainTabPane.getSelectionModel().getSelectedItem());
+    }
+
+    private void requestTab(Tab tab) {
+        if (tab == null || databaseReady == null || !requested.add(tab)) {
+            return;
+        }
+        tab.setContent(new ProgressIndicator());
+        databaseReady.whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                buildTab(tab);
+            } else {
+                databaseFailed(error);
+            }
+        }));
+    }
+
+    /**
+     * The screens cannot run on a database whose schema was not verified: reports why and exits.
+     */
+    private void databaseFailed(Throwable error) {
+        if (failed) {
+            return;
+        }
+        failed = true;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        cause.printStackTrace();
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Database Error");
+        alert.setHeaderText("The database could not be opened.");
+        alert.setContentText(cause.getMessage());
+        alert.showAndWait();
+        Platform.exit();
+    }
+
+    private void buildTab(Tab tab) {
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/" + tab.getUserData()));
+        try {
+            tab.setContent(loader.load());
+        } catch (IOException e) {
+            e.printStackTrace();
+            tab.setContent(new Label("Could not open " + tab.getText() + "."));
+            return;
+        }
+        if (!anyBuilt) {
+            anyBuilt = true;
+            StartupTimer.mark(tab.getText() + " built");
+            Object controller = loader.getController();
+            if (controller instanceof Screen) {
+                whenIdle(((Screen) controller).busyProperty(), () -> {
+                    StartupTimer.mark(tab.getText() + " data shown");
+                    StartupTimer.report();
+                });
+            } else {
+                StartupTimer.report();
+            }
+        }
+    }
+
+    /**
+     * Runs {@code action} once {@code busy} is (or becomes) false.
+     */
+    private static void whenIdle(BooleanBinding busy, Runnable action) {
+        if (!busy.get()) {
+            action.run();
+            return;
+        }
+        busy.addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> obs, Boolean was, Boolean now) {
+                if (!now) {
+                    busy.removeListener(this);
+                    action.run();
+                }
+            }
+        });
     }
-}
\ No newline at end of file
+}
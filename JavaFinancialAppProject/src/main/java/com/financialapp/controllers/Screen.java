@@ -0,0 +1,15 @@
+package com.financialapp.controllers;
+
+import javafx.beans.binding.BooleanBinding;
+
+/**
+ * Controller of one of the main tabs, which {@link RootLayoutController} builds when the
+ * tab is first selected.
+ */
+public interface Screen {
+
+    /**
+     * True while the screen is loading data; false once its first load is shown.
+     */
+    BooleanBinding busyProperty();
+}
@@ -1,25 +1,35 @@
 package com.financialapp.controllers;
 
-import com.financialapp.database.DatabaseConnection;
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.database.TransactionFilter;
+import com.financialapp.database.TransactionPageSource;
+import com.financialapp.events.DimensionChanged;
+import com.financialapp.events.EventBus;
+import com.financialapp.events.TransactionChanged;
+import com.financialapp.events.TransactionsImported;
 import com.financialapp.models.Transaction;
-import com.financialapp.util.CsvExporter;
+import com.financialapp.service.TransactionService;
+import com.financialapp.util.Money;
+import javafx.application.Platform;
+import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
 import javafx.fxml.FXMLLoader;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 
+import java.io.File;
 import java.io.IOException;
-import java.sql.*;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
-public class SecondScreenController {
+public class SecondScreenController implements Screen {
 
     @FXML
     private DatePicker dateField;
@@ -46,6 +56,8 @@ public class SecondScreenController {
     private Button manageWalletsButton;
     @FXML
     private Button exportCsvButton;
+    @FXML
+    private Button importCsvButton;
 
     @FXML
     private TableView<Transaction> transactionsTable;
@@ -69,27 +81,62 @@ public class SecondScreenController {
     @FXML
     private DatePicker endDateFilter;
     @FXML
+    private ComboBox<String> filterTypeBox;
+    @FXML
     private ComboBox<String> filterCategoryBox;
     @FXML
+    private ComboBox<String> filterSubcategoryBox;
+    @FXML
+    private ComboBox<String> filterWalletBox;
+    @FXML
+    private ComboBox<String> filterCurrencyBox;
+    @FXML
+    private TextField minAmountFilter;
+    @FXML
+    private TextField maxAmountFilter;
+    @FXML
+    private TextField searchField;
+    @FXML
     private Button applyFilterButton;
     @FXML
     private Button clearFilterButton;
+    @FXML
+    private ProgressIndicator loadingIndicator;
+
+    // Filter of the rows currently shown; the export writes the same set
+    private TransactionPageSource currentSource;
+    private PagedTransactionList currentList;
+    private TransactionFilter currentFilter = new TransactionFilter();
+
+    private final AsyncLoader loader = new AsyncLoader(error ->
+            showAlert("DB Error", "Could not load transactions."));
 
     @FXML
     public void initialize() {
+        loadingIndicator.visibleProperty().bind(loader.busyProperty());
         initComboBoxes();
         initTableColumns();
-        loadTransactions(null, null, null);
+        loadTransactions(new TransactionFilter());
 
         addTransactionButton.setOnAction(e -> addTransaction());
         exportCsvButton.setOnAction(e -> exportTransactionsCsv());
+        importCsvButton.setOnAction(e -> importTransactionsCsv());
         applyFilterButton.setOnAction(e -> applyFilter());
         clearFilterButton.setOnAction(e -> clearFilters()); // <-- FIX
+        searchField.setOnAction(e -> applyFilter());
+        minAmountFilter.setOnAction(e -> applyFilter());
+        maxAmountFilter.setOnAction(e -> applyFilter());
+        filterTypeBox.getItems().setAll("INCOME", "EXPENSE");
 
         manageCategoriesButton.setOnAction(e -> openManageCategoriesDialog());
         manageCurrenciesButton.setOnAction(e -> openManageCurrenciesDialog());
         manageWalletsButton.setOnAction(e -> openManageWalletsDialog());
 
+        // Changes from this screen, the dialogs and the other tabs arrive as events
+        EventBus.subscribe(TransactionChanged.class, e -> Platform.runLater(() -> transactionChanged(e)));
+        EventBus.subscribe(TransactionsImported.class, e -> Platform.runLater(() -> loadTransactions(currentFilter)));
+        EventBus.subscribe(DimensionChanged.class, e -> Platform.runLater(this::initComboBoxes));
+
         // Context menu: edit/delete
         transactionsTable.setRowFactory(tv -> {
             TableRow<Transaction> row = new TableRow<>();
@@ -114,99 +161,88 @@ public class SecondScreenController {
         });
     }
 
-    private void initComboBoxes() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            // Categories
-            ResultSet rsCat = stmt.executeQuery("SELECT name FROM categories ORDER BY name");
-            categoryBox.getItems().clear();
-            filterCategoryBox.getItems().clear();
-            while (rsCat.next()) {
-                String name = rsCat.getString("name");
-                categoryBox.getItems().add(name);
-                filterCategoryBox.getItems().add(name);
-            }
-
-            // Subcategories (optional)
-            ResultSet rsSub = stmt.executeQuery("SELECT name FROM subcategories ORDER BY name");
-            subcategoryBox.getItems().clear();
-            while (rsSub.next()) {
-                subcategoryBox.getItems().add(rsSub.getString("name"));
-            }
-
-            // Currencies
-            ResultSet rsCurr = stmt.executeQuery("SELECT code FROM currencies ORDER BY code");
-            currencyBox.getItems().clear();
-            while (rsCurr.next()) {
-                currencyBox.getItems().add(rsCurr.getString("code"));
-            }
+    @Override
+    public BooleanBinding busyProperty() {
+        return loader.busyProperty();
+    }
 
-            // Wallets
-            ResultSet rsWall = stmt.executeQuery("SELECT name FROM wallets ORDER BY name");
-            walletBox.getItems().clear();
-            while (rsWall.next()) {
-                walletBox.getItems().add(rsWall.getString("name"));
-            }
+    private void initComboBoxes() {
+        // Warm the dimension cache off the FX thread, then fill the combos from memory
+        // and redraw the table's names
+        loader.load("combos", () -> {
+            DimensionCache.preload();
+            return null;
+        }, ignored -> {
+            fillComboBoxes();
+            transactionsTable.refresh();
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    private void fillComboBoxes() {
+        categoryBox.getItems().setAll(DimensionCache.getCategoryNames());
+        filterCategoryBox.getItems().setAll(DimensionCache.getCategoryNames());
+        subcategoryBox.getItems().setAll(DimensionCache.getSubcategoryNames());
+        filterSubcategoryBox.getItems().setAll(DimensionCache.getSubcategoryNames());
+        currencyBox.getItems().setAll(DimensionCache.getCurrencyCodes());
+        filterCurrencyBox.getItems().setAll(DimensionCache.getCurrencyCodes());
+        walletBox.getItems().setAll(DimensionCache.getWalletNames());
+        filterWalletBox.getItems().setAll(DimensionCache.getWalletNames());
     }
 
     private void initTableColumns() {
-        dateCol.setCellValueFactory(cd -> new SimpleStringProperty(cd.getValue().getDate().toString()));
-        categoryCol.setCellValueFactory(cd -> new SimpleStringProperty(getCategoryName(cd.getValue().getCategoryId())));
-        subcategoryCol.setCellValueFactory(cd -> new SimpleStringProperty(getSubcategoryName(cd.getValue().getSubcategoryId())));
-        amountCol.setCellValueFactory(cd -> new SimpleStringProperty(String.valueOf(cd.getValue().getAmount())));
-        currencyCol.setCellValueFactory(cd -> new SimpleStringProperty(getCurrencyCode(cd.getValue().getCurrencyId())));
-        walletCol.setCellValueFactory(cd -> new SimpleStringProperty(getWalletName(cd.getValue().getWalletId())));
-        commentCol.setCellValueFactory(cd -> new SimpleStringProperty(cd.getValue().getComment()));
+        dateCol.setCellValueFactory(cd -> cellText(cd.getValue(), t -> t.getDate().toString()));
+        categoryCol.setCellValueFactory(cd -> cellText(cd.getValue(), t -> DimensionCache.getCategoryName(t.getCategoryId())));
+        subcategoryCol.setCellValueFactory(cd -> cellText(cd.getValue(), t -> DimensionCache.getSubcategoryName(t.getSubcategoryId())));
+        amountCol.setCellValueFactory(cd -> cellText(cd.getValue(), t -> Money.format(t.getAmountCents())));
+        currencyCol.setCellValueFactory(cd -> cellText(cd.getValue(), t -> DimensionCache.getCurrencyCode(t.getCurrencyId())));
+        walletCol.setCellValueFactory(cd -> cellText(cd.getValue(), t -> DimensionCache.getWalletName(t.getWalletId())));
+        commentCol.setCellValueFactory(cd -> cellText(cd.getValue(), Transaction::getComment));
+
+        // Rows come pre-ordered (date DESC, id DESC) from a paged source that cannot be re-sorted in memory
+        transactionsTable.getColumns().forEach(col -> col.setSortable(false));
     }
 
-    private void loadTransactions(LocalDate start, LocalDate end, String categoryFilter) {
-        transactionsTable.getItems().clear();
-        transactionsTable.getItems().addAll(getTransactionsFromDb(start, end, categoryFilter));
+    /**
+     * Rows of a page that failed to load are null; render them blank.
+     */
+    private static SimpleStringProperty cellText(Transaction tx, Function<Transaction, String> text) {
+        return new SimpleStringProperty(tx == null ? "" : text.apply(tx));
     }
 
-    private List<Transaction> getTransactionsFromDb(LocalDate start, LocalDate end, String categoryFilter) {
-        List<Transaction> result = new ArrayList<>();
+    /**
+     * Replaces the table contents with a lazily paged view of the matching transactions.
+     * The count and first page are read in the background; later pages are small keyset
+     * reads fetched as they scroll into view.
+     */
+    private void loadTransactions(TransactionFilter filter) {
+        currentFilter = filter;
+        loader.load("transactions", () -> {
+            PagedTransactionList list = new PagedTransactionList(TransactionService.find(filter));
+            list.preload();
+            return list;
+        }, list -> {
+            currentSource = list.getSource();
+            currentList = list;
+            transactionsTable.setItems(list);
+        });
+    }
 
-        StringBuilder sb = new StringBuilder("SELECT * FROM transactions WHERE 1=1 ");
-        if (start != null) {
-            sb.append("AND date >= '").append(Date.valueOf(start)).append("' ");
-        }
-        if (end != null) {
-            sb.append("AND date <= '").append(Date.valueOf(end)).append("' ");
-        }
-        if (categoryFilter != null && !categoryFilter.isEmpty()) {
-            long catId = getCategoryIdByName(categoryFilter);
-            if (catId != -1) {
-                sb.append("AND category_id = ").append(catId).append(" ");
-            }
+    /**
+     * Inserts, moves or removes the one affected row instead of reloading the table.
+     */
+    private void transactionChanged(TransactionChanged change) {
+        if (currentList == null || loader.isLoading("transactions")) {
+            // The list being loaded may or may not include the change; load it again
+            loadTransactions(currentFilter);
+            return;
         }
-        sb.append("ORDER BY date DESC");
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sb.toString())) {
-
-            while (rs.next()) {
-                Transaction t = new Transaction();
-                t.setId(rs.getLong("id"));
-                t.setDate(rs.getDate("date").toLocalDate());
-                t.setCategoryId(rs.getLong("category_id"));
-                t.setSubcategoryId(rs.getLong("subcategory_id"));
-                t.setAmount(rs.getDouble("amount"));
-                t.setCurrencyId(rs.getLong("currency_id"));
-                t.setWalletId(rs.getLong("wallet_id"));
-                t.setComment(rs.getString("comment"));
-                result.add(t);
+        PagedTransactionList list = currentList;
+        list.apply(change.getBefore(), change.getAfter(), () -> {
+            // Not located, or the list changed meanwhile; unless a reload replaced it already
+            if (list == currentList) {
+                loadTransactions(currentFilter);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return result;
+        });
     }
 
     private void addTransaction() {
@@ -227,9 +263,9 @@ public class SecondScreenController {
         String subcatName = subcategoryBox.getValue();
 
         // Validate amount
-        double amount;
+        long amountCents;
         try {
-            amount = Double.parseDouble(amountField.getText());
+            amountCents = Money.parse(amountField.getText());
         } catch (NumberFormatException e) {
             showAlert("Validation Error", "Invalid Amount.");
             return;
@@ -253,63 +289,104 @@ public class SecondScreenController {
         String comment = commentField.getText();
 
         LocalDate date = dateField.getValue();
-        long categoryId = getCategoryIdByName(catName);
-        long subcategoryId = getSubcategoryIdByName(subcatName); // may be -1
-        long currencyId = getCurrencyIdByCode(currencyCode);
-        long walletId = getWalletIdByName(walletName);
-
-        String sql = "INSERT INTO transactions (date, category_id, subcategory_id, amount, currency_id, wallet_id, comment) " +
-                     "VALUES (?,?,?,?,?,?,?)";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        long categoryId = DimensionCache.getCategoryId(catName);
+        long subcategoryId = DimensionCache.getSubcategoryId(subcatName); // may be -1
+        long currencyId = DimensionCache.getCurrencyId(currencyCode);
+        long walletId = DimensionCache.getWalletId(walletName);
+
+        loader.run(() -> TransactionService.add(
+                new Transaction(0, date, categoryId, subcategoryId, amountCents, currencyId, walletId, comment)), ignored -> {
+            // Clear form
+            dateField.setValue(null);
+            categoryBox.setValue(null);
+            subcategoryBox.setValue(null);
+            amountField.clear();
+            currencyBox.setValue(null);
+            walletBox.setValue(null);
+            commentField.clear();
+        }, error -> showAlert("DB Error", "Could not add transaction."));
+    }
 
-            ps.setDate(1, Date.valueOf(date));
-            ps.setLong(2, categoryId);
+    /**
+     * Exports every transaction matching the current filter (not just the loaded pages).
+     * A file name ending in .gz is written gzip-compressed.
+     */
+    private void exportTransactionsCsv() {
+        TransactionPageSource source = currentSource;
+        if (source == null) return;
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Transactions");
+        chooser.setInitialFileName("transactions_export.csv");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("Gzipped CSV files", "*.csv.gz"));
+        File file = chooser.showSaveDialog(transactionsTable.getScene().getWindow());
+        if (file == null) return;
+
+        boolean gzip = file.getName().endsWith(".gz");
+        exportCsvButton.setDisable(true);
+        loader.run(() -> TransactionService.exportCsv(source, file.toPath(), gzip), rows -> {
+            exportCsvButton.setDisable(false);
+            showAlert("Export CSV", rows + " transaction(s) exported to " + file.getName());
+        }, error -> {
+            exportCsvButton.setDisable(false);
+            showAlert("Export CSV", "Export failed: " + error.getMessage());
+        });
+    }
 
-            // If no subcategory, set NULL
-            if (subcategoryId == -1) {
-                ps.setNull(3, Types.BIGINT);
-            } else {
-                ps.setLong(3, subcategoryId);
+    private void importTransactionsCsv() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Transactions");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(transactionsTable.getScene().getWindow());
+        if (file == null) return;
+
+        importCsvButton.setDisable(true);
+        loader.run(() -> TransactionService.importCsv(file.toPath()), result -> {
+            importCsvButton.setDisable(false);
+            StringBuilder msg = new StringBuilder(result.toString());
+            List<String> errors = result.getErrors();
+            for (int i = 0; i < Math.min(errors.size(), 10); i++) {
+                msg.append('\n').append(errors.get(i));
             }
+            if (result.getErrorCount() > 10) {
+                msg.append("\n...");
+            }
+            showAlert("Import CSV", msg.toString());
+        }, error -> {
+            importCsvButton.setDisable(false);
+            // Chunks committed before the failure stay imported and are reloaded with the import event
+            showAlert("Import CSV", "Import failed: " + error.getMessage());
+        });
+    }
 
-            ps.setDouble(4, amount);
-            ps.setLong(5, currencyId);
-            ps.setLong(6, walletId);
-            ps.setString(7, comment);
-
-            ps.executeUpdate();
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert("DB Error", "Could not add transaction.");
+    private void applyFilter() {
+        TransactionFilter filter = new TransactionFilter();
+        filter.setStart(startDateFilter.getValue());
+        filter.setEnd(endDateFilter.getValue());
+        filter.setCategoryType(filterTypeBox.getValue());
+        filter.setCategoryId(DimensionCache.getCategoryId(filterCategoryBox.getValue()));
+        filter.setSubcategoryId(DimensionCache.getSubcategoryId(filterSubcategoryBox.getValue()));
+        filter.setWalletId(DimensionCache.getWalletId(filterWalletBox.getValue()));
+        filter.setCurrencyId(DimensionCache.getCurrencyId(filterCurrencyBox.getValue()));
+        try {
+            filter.setMinAmountCents(parseAmountFilter(minAmountFilter));
+            filter.setMaxAmountCents(parseAmountFilter(maxAmountFilter));
+        } catch (NumberFormatException e) {
+            showAlert("Validation Error", "Invalid Amount.");
             return;
         }
-
-        loadTransactions(null, null, null);
-
-        // Clear form
-        dateField.setValue(null);
-        categoryBox.setValue(null);
-        subcategoryBox.setValue(null);
-        amountField.clear();
-        currencyBox.setValue(null);
-        walletBox.setValue(null);
-        commentField.clear();
+        filter.setCommentQuery(searchField.getText());
+        loadTransactions(filter);
     }
 
-    private void exportTransactionsCsv() {
-        List<Transaction> transactions = new ArrayList<>(transactionsTable.getItems());
-        CsvExporter.exportTransactions(transactions, "transactions_export.csv");
-        showAlert("Export CSV", "Transactions exported to transactions_export.csv");
-    }
-
-    private void applyFilter() {
-        LocalDate start = startDateFilter.getValue();
-        LocalDate end = endDateFilter.getValue();
-        String cat = filterCategoryBox.getValue();
-        loadTransactions(start, end, cat);
+    /**
+     * A blank amount bound is no bound.
+     */
+    private static Long parseAmountFilter(TextField field) {
+        String text = field.getText();
+        return text == null || text.isBlank() ? null : Money.parse(text);
     }
 
     /** 
@@ -318,8 +395,15 @@ public class SecondScreenController {
     private void clearFilters() {
         startDateFilter.setValue(null);
         endDateFilter.setValue(null);
+        filterTypeBox.setValue(null);
         filterCategoryBox.setValue(null);
-        loadTransactions(null, null, null);
+        filterSubcategoryBox.setValue(null);
+        filterWalletBox.setValue(null);
+        filterCurrencyBox.setValue(null);
+        minAmountFilter.clear();
+        maxAmountFilter.clear();
+        searchField.clear();
+        loadTransactions(new TransactionFilter());
     }
 
     private void editTransaction(Transaction tx) {
@@ -329,16 +413,8 @@ public class SecondScreenController {
 
     private void deleteTransaction(Transaction tx) {
         if (tx == null) return;
-        String sql = "DELETE FROM transactions WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, tx.getId());
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert("DB Error", "Could not delete transaction.");
-        }
-        loadTransactions(null, null, null);
+        loader.run(() -> TransactionService.delete(tx.getId()), ignored -> {
+        }, error -> showAlert("DB Error", "Could not delete transaction."));
     }
 
     private void openManageCategoriesDialog() {
@@ -350,9 +426,6 @@ public class SecondScreenController {
             stage.initModality(Modality.WINDOW_MODAL);
             stage.setScene(new Scene(root));
             stage.showAndWait();
-
-            // refresh combos
-            initComboBoxes();
         } catch (IOException e) {
             e.printStackTrace();
             showAlert("Error", "Cannot open Manage Categories dialog.");
@@ -368,8 +441,6 @@ public class SecondScreenController {
             stage.initModality(Modality.WINDOW_MODAL);
             stage.setScene(new Scene(root));
             stage.showAndWait();
-
-            initComboBoxes();
         } catch (IOException e) {
             e.printStackTrace();
             showAlert("Error", "Cannot open Manage Currencies dialog.");
@@ -385,8 +456,6 @@ public class SecondScreenController {
             stage.initModality(Modality.WINDOW_MODAL);
             stage.setScene(new Scene(root));
             stage.showAndWait();
-
-            initComboBoxes();
         } catch (IOException e) {
             e.printStackTrace();
             showAlert("Error", "Cannot open Manage Wallets dialog.");
@@ -400,133 +469,4 @@ public class SecondScreenController {
         alert.setContentText(msg);
         alert.showAndWait();
     }
-
-    // Helper methods
-    private long getCategoryIdByName(String name) {
-        if (name == null || name.isEmpty()) return -1;
-        String sql = "SELECT id FROM categories WHERE name=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, name);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getLong("id");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return -1;
-    }
-
-    private long getSubcategoryIdByName(String name) {
-        if (name == null || name.isEmpty()) return -1;
-        String sql = "SELECT id FROM subcategories WHERE name=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, name);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getLong("id");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return -1;
-    }
-
-    private long getCurrencyIdByCode(String code) {
-        if (code == null || code.isEmpty()) return -1;
-        String sql = "SELECT id FROM currencies WHERE code=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, code);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getLong("id");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return -1;
-    }
-
-    private long getWalletIdByName(String name) {
-        if (name == null || name.isEmpty()) return -1;
-        String sql = "SELECT id FROM wallets WHERE name=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, name);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getLong("id");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return -1;
-    }
-
-    private String getCategoryName(long id) {
-        if (id < 0) return "";
-        String sql = "SELECT name FROM categories WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getString("name");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return "";
-    }
-
-    private String getSubcategoryName(long id) {
-        if (id <= 0) return "";
-        String sql = "SELECT name FROM subcategories WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getString("name");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return "";
-    }
-
-    private String getCurrencyCode(long id) {
-        if (id <= 0) return "";
-        String sql = "SELECT code FROM currencies WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getString("code");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return "";
-    }
-
-    private String getWalletName(long id) {
-        if (id <= 0) return "";
-        String sql = "SELECT name FROM wallets WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getString("name");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return "";
-    }
-}
\ No newline at end of file
+}
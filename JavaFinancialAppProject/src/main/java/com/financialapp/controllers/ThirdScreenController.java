@@ -1,6 +1,16 @@
 package com.financialapp.controllers;
 
-import com.financialapp.database.DatabaseConnection;
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.events.DimensionChanged;
+import com.financialapp.events.EventBus;
+import com.financialapp.events.TransactionChanged;
+import com.financialapp.events.TransactionsImported;
+import com.financialapp.models.Category;
+import com.financialapp.models.Transaction;
+import com.financialapp.service.DashboardService;
+import com.financialapp.util.Money;
+import javafx.application.Platform;
+import javafx.beans.binding.BooleanBinding;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -11,18 +21,18 @@ import javafx.scene.chart.PieChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ThirdScreenController (Annual Dashboard).
- * Fix: Let user see newly added wallets by providing a refresh mechanism.
+ * Transaction changes inside the shown wallet and date range are applied to the pie slice
+ * and monthly points they touch; the wallet list follows wallet changes, and category
+ * changes and imports reload the dashboard.
  */
-public class ThirdScreenController {
+public class ThirdScreenController implements Screen {
 
     @FXML
     private ComboBox<String> walletFilterBox;
@@ -32,8 +42,6 @@ public class ThirdScreenController {
     private DatePicker endFilterDate;
     @FXML
     private Button applyDashboardFilterButton;
-    @FXML
-    private Button refreshWalletsButton; // A button to re-load wallets
 
     @FXML
     private PieChart annualExpensesPieChart;
@@ -43,43 +51,60 @@ public class ThirdScreenController {
     private CategoryAxis monthAxis;
     @FXML
     private NumberAxis amountAxis;
+    @FXML
+    private ProgressIndicator loadingIndicator;
+
+    private final AsyncLoader loader = new AsyncLoader(error ->
+            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to load dashboard data."));
+
+    // The filter the charts were loaded with (wallet -1 and null dates mean all)
+    private long shownWalletId = -1;
+    private LocalDate shownStart;
+    private LocalDate shownEnd;
+    private final Map<String, Long> pieTotals = new HashMap<>();
+    private final Map<String, long[]> monthTotals = new HashMap<>();
+    private XYChart.Series<String, Number> expenseSeries;
+    private XYChart.Series<String, Number> incomeSeries;
 
     @FXML
     public void initialize() {
+        loadingIndicator.visibleProperty().bind(loader.busyProperty());
         loadWalletCombo();
         loadInitialDashboard();
 
         applyDashboardFilterButton.setOnAction(e -> applyFilter());
 
-        // Refresh button => re-load wallets from DB
-        if (refreshWalletsButton != null) {
-            refreshWalletsButton.setOnAction(e -> {
-                loadWalletCombo();
-                // optionally re-apply filter
-                applyFilter();
-            });
-        }
+        EventBus.subscribe(TransactionChanged.class, e -> Platform.runLater(() -> transactionChanged(e)));
+        EventBus.subscribe(TransactionsImported.class, e -> Platform.runLater(this::reload));
+        EventBus.subscribe(DimensionChanged.class, e -> {
+            if (e.getDimension() == DimensionChanged.Dimension.WALLET) {
+                Platform.runLater(this::loadWalletCombo);
+            } else if (e.getDimension() == DimensionChanged.Dimension.CATEGORY) {
+                Platform.runLater(this::reload);
+            }
+        });
     }
 
-    private void loadWalletCombo() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT name FROM wallets ORDER BY name")) {
+    @Override
+    public BooleanBinding busyProperty() {
+        return loader.busyProperty();
+    }
 
-            ResultSet rs = ps.executeQuery();
-            ObservableList<String> walletList = FXCollections.observableArrayList();
-            while (rs.next()) {
-                walletList.add(rs.getString("name"));
-            }
+    private void loadWalletCombo() {
+        // The cache may have to (re)load from the database, so read it off the FX thread
+        loader.load("wallets", DimensionCache::getWalletNames, names -> {
+            String selected = walletFilterBox.getValue();
+            ObservableList<String> walletList = FXCollections.observableArrayList(names);
             walletFilterBox.setItems(walletList);
+            if (selected != null && walletList.contains(selected)) {
+                walletFilterBox.setValue(selected);
+            }
 
             if (walletList.isEmpty()) {
                 // no wallets in DB
                 System.out.println("No wallets found. Add them on the second screen (Manage Wallets).");
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Database Error", "Could not load wallets for Annual Dashboard.");
-        }
+        });
     }
 
     private void loadInitialDashboard() {
@@ -95,110 +120,127 @@ public class ThirdScreenController {
         loadLineChartData(wallet, start, end);
     }
 
-    private void loadExpensePieChart(String walletName, LocalDate start, LocalDate end) {
-        annualExpensesPieChart.getData().clear();
-        StringBuilder sb = new StringBuilder();
-        sb.append("SELECT c.name AS category, SUM(t.amount) AS total ")
-          .append("FROM transactions t ")
-          .append("JOIN categories c ON c.id = t.category_id ")
-          .append("JOIN wallets w ON w.id = t.wallet_id ")
-          .append("WHERE c.type='EXPENSE' ");
-
-        List<Object> params = new ArrayList<>();
-
-        if (walletName != null && !walletName.isEmpty()) {
-            sb.append("AND w.name = ? ");
-            params.add(walletName);
-        }
-        if (start != null) {
-            sb.append("AND t.date >= ? ");
-            params.add(java.sql.Date.valueOf(start));
-        }
-        if (end != null) {
-            sb.append("AND t.date <= ? ");
-            params.add(java.sql.Date.valueOf(end));
-        }
-
-        sb.append("GROUP BY c.name");
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sb.toString())) {
-
-            for (int i = 0; i < params.size(); i++) {
-                ps.setObject(i + 1, params.get(i));
-            }
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                String catName = rs.getString("category");
-                double total = rs.getDouble("total");
-                annualExpensesPieChart.getData().add(new PieChart.Data(catName, total));
-            }
+    /**
+     * Loads both charts again with the filter they show.
+     */
+    private void reload() {
+        String wallet = shownWalletId == -1 ? null : DimensionCache.getWalletName(shownWalletId);
+        loadExpensePieChart(wallet, shownStart, shownEnd);
+        loadLineChartData(wallet, shownStart, shownEnd);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to load expense data.");
-        }
+    private void loadExpensePieChart(String walletName, LocalDate start, LocalDate end) {
+        shownWalletId = DimensionCache.getWalletId(walletName);
+        shownStart = start;
+        shownEnd = end;
+        loader.load("pie", () -> DashboardService.expenseTotals(DimensionCache.getWalletId(walletName), start, end), totals -> {
+            pieTotals.clear();
+            pieTotals.putAll(totals);
+            annualExpensesPieChart.getData().clear();
+            totals.forEach((catName, total) ->
+                    annualExpensesPieChart.getData().add(new PieChart.Data(catName, Money.toDouble(total))));
+        });
     }
 
     private void loadLineChartData(String walletName, LocalDate start, LocalDate end) {
-        monthlyDynamicsLineChart.getData().clear();
         monthAxis.setLabel("Month (YYYY-MM)");
 
-        XYChart.Series<String, Number> expenseSeries = new XYChart.Series<>();
-        expenseSeries.setName("Expenses");
+        loader.load("line", () -> DashboardService.monthlyTotals(DimensionCache.getWalletId(walletName), start, end), monthly -> {
+            monthTotals.clear();
+            monthTotals.putAll(monthly);
+            expenseSeries = new XYChart.Series<>();
+            expenseSeries.setName("Expenses");
 
-        XYChart.Series<String, Number> incomeSeries = new XYChart.Series<>();
-        incomeSeries.setName("Incomes");
+            incomeSeries = new XYChart.Series<>();
+            incomeSeries.setName("Incomes");
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("SELECT EXTRACT(YEAR FROM t.date) AS yr, EXTRACT(MONTH FROM t.date) AS mon, ")
-          .append(" SUM(CASE WHEN c.type='EXPENSE' THEN t.amount ELSE 0 END) AS total_expenses, ")
-          .append(" SUM(CASE WHEN c.type='INCOME' THEN t.amount ELSE 0 END) AS total_incomes ")
-          .append("FROM transactions t ")
-          .append("JOIN categories c ON c.id = t.category_id ")
-          .append("JOIN wallets w ON w.id = t.wallet_id ")
-          .append("WHERE 1=1 ");
+            monthly.forEach((label, totals) -> {
+                expenseSeries.getData().add(new XYChart.Data<>(label, Money.toDouble(totals[0])));
+                incomeSeries.getData().add(new XYChart.Data<>(label, Money.toDouble(totals[1])));
+            });
+            monthlyDynamicsLineChart.getData().clear();
+            monthlyDynamicsLineChart.getData().addAll(expenseSeries, incomeSeries);
+        });
+    }
 
-        List<Object> params = new ArrayList<>();
+    // -------------- Change events ---------------
 
-        if (walletName != null && !walletName.isEmpty()) {
-            sb.append("AND w.name = ? ");
-            params.add(walletName);
+    private void transactionChanged(TransactionChanged change) {
+        if (loader.isLoading("pie") || loader.isLoading("line") || expenseSeries == null) {
+            // A load in flight may or may not include the change
+            reload();
+            return;
         }
-        if (start != null) {
-            sb.append("AND t.date >= ? ");
-            params.add(java.sql.Date.valueOf(start));
+        Transaction before = change.getBefore();
+        Transaction after = change.getAfter();
+        if (before != null) {
+            addAmount(before, -before.getAmountCents());
         }
-        if (end != null) {
-            sb.append("AND t.date <= ? ");
-            params.add(java.sql.Date.valueOf(end));
+        if (after != null) {
+            addAmount(after, after.getAmountCents());
         }
+    }
 
-        sb.append("GROUP BY yr, mon ORDER BY yr, mon");
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+    private void addAmount(Transaction tx, long cents) {
+        LocalDate date = tx.getDate();
+        if ((shownWalletId != -1 && tx.getWalletId() != shownWalletId)
+                || (shownStart != null && date.isBefore(shownStart))
+                || (shownEnd != null && date.isAfter(shownEnd))) {
+            return;
+        }
+        Category category = DimensionCache.getCategory(tx.getCategoryId());
+        if (category == null) {
+            return;
+        }
+        boolean expense = "EXPENSE".equals(category.getType());
+        if (expense) {
+            addToSlice(category.getName(), cents);
+        }
+        addToMonth(String.format("%04d-%02d", date.getYear(), date.getMonthValue()), expense ? 0 : 1, cents);
+    }
 
-            for (int i = 0; i < params.size(); i++) {
-                ps.setObject(i + 1, params.get(i));
+    private void addToSlice(String name, long cents) {
+        long total = pieTotals.getOrDefault(name, 0L) + cents;
+        PieChart.Data slice = null;
+        for (PieChart.Data data : annualExpensesPieChart.getData()) {
+            if (data.getName().equals(name)) {
+                slice = data;
+                break;
+            }
+        }
+        if (total == 0) {
+            pieTotals.remove(name);
+            if (slice != null) {
+                annualExpensesPieChart.getData().remove(slice);
             }
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                int y = rs.getInt("yr");
-                int m = rs.getInt("mon");
-                double exp = rs.getDouble("total_expenses");
-                double inc = rs.getDouble("total_incomes");
-
-                String label = String.format("%04d-%02d", y, m);
-                expenseSeries.getData().add(new XYChart.Data<>(label, exp));
-                incomeSeries.getData().add(new XYChart.Data<>(label, inc));
+        } else {
+            pieTotals.put(name, total);
+            if (slice != null) {
+                slice.setPieValue(Money.toDouble(total));
+            } else {
+                annualExpensesPieChart.getData().add(new PieChart.Data(name, Money.toDouble(total)));
             }
-            monthlyDynamicsLineChart.getData().addAll(expenseSeries, incomeSeries);
+        }
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to load monthly data.");
+    /**
+     * Adds to the month's expense (0) or income (1) point, first inserting the month into
+     * both series, in label order, if it has no points yet.
+     */
+    private void addToMonth(String label, int kind, long cents) {
+        List<XYChart.Data<String, Number>> points = expenseSeries.getData();
+        int at = 0;
+        while (at < points.size() && points.get(at).getXValue().compareTo(label) < 0) {
+            at++;
+        }
+        long[] totals = monthTotals.computeIfAbsent(label, l -> new long[2]);
+        if (at == points.size() || !points.get(at).getXValue().equals(label)) {
+            expenseSeries.getData().add(at, new XYChart.Data<>(label, 0.0));
+            incomeSeries.getData().add(at, new XYChart.Data<>(label, 0.0));
         }
+        totals[kind] += cents;
+        XYChart.Series<String, Number> series = kind == 0 ? expenseSeries : incomeSeries;
+        series.getData().get(at).setYValue(Money.toDouble(totals[kind]));
     }
 
     private void showAlert(Alert.AlertType type, String title, String msg) {
@@ -1,21 +1,36 @@
 package com.financialapp.database;
 
+import com.financialapp.database.metrics.QueryMetrics;
+import com.financialapp.database.migration.MigrationRunner;
+import com.financialapp.database.mirror.DatabaseMirror;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 /**
  * DatabaseConnection sets up a file-based H2 database
  * so data persists across application restarts.
+ * Connections are served from a bounded pool; pool sizing can be tuned with the
+ * financialapp.pool.* system properties. The H2 engine settings come from the configured
+ * {@link StorageProfile}. With -Dfinancialapp.db.mirror=true the pool serves an in-memory
+ * copy of the file database instead, which writes back to it (see {@link DatabaseMirror}).
  */
 public class DatabaseConnection {
 
-    // File-based H2 URL (relative path: ./db/financialdb)
-    private static final String JDBC_URL = "jdbc:h2:./db/financialdb;";
+    private static final StorageProfile PROFILE = StorageProfile.configured();
+
+    // File-based H2 URL (relative path: ./db/financialdb); tools and benchmarks point
+    // the application at another database with -Dfinancialapp.db.url
+    private static final String FILE_URL = PROFILE.appendTo(System.getProperty("financialapp.db.url",
+            "jdbc:h2:./db/financialdb"));
     private static final String USER = "sa";
     private static final String PASSWORD = "";
 
+    // null unless the application runs on an in-memory mirror of the file database
+    private static final DatabaseMirror MIRROR = DatabaseMirror.configured(FILE_URL, USER, PASSWORD);
+    private static final String JDBC_URL = MIRROR != null ? PROFILE.appendTo(DatabaseMirror.MEMORY_URL) : FILE_URL;
+
     static {
         try {
             Class.forName("org.h2.Driver");
@@ -24,80 +39,140 @@ public class DatabaseConnection {
         }
     }
 
+    private static final ConnectionPool POOL = new ConnectionPool(
+            JDBC_URL, USER, PASSWORD,
+            Integer.getInteger("financialapp.pool.minSize", 2),
+            Integer.getInteger("financialapp.pool.maxSize", 10),
+            Long.getLong("financialapp.pool.borrowTimeoutMillis", 10_000L),
+            Long.getLong("financialapp.pool.idleTimeoutMillis", 300_000L));
+
+    private static StorageProfile activeProfile = PROFILE;
+
     /**
-     * Initialize the database schema if needed.
+     * Initialize the database schema if needed by applying pending migrations.
      * No demo data inserted.
+     *
+     * @throws SQLException if the database cannot be opened or its schema cannot be verified
+     *         and migrated (see {@link MigrationRunner#migrate}); nothing may use it then
      */
-    public static void initDatabase() {
-        // Optional: If you only create tables once, you can do it here.
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            // Create Categories table
-            stmt.execute("CREATE TABLE IF NOT EXISTS categories (" +
-                         " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
-                         " name VARCHAR(255) NOT NULL," +
-                         " type VARCHAR(50) NOT NULL" + // "INCOME" or "EXPENSE"
-                         ")");
-
-            // Create Subcategories table
-            stmt.execute("CREATE TABLE IF NOT EXISTS subcategories (" +
-                         " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
-                         " category_id BIGINT NOT NULL," +
-                         " name VARCHAR(255) NOT NULL," +
-                         " FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE CASCADE" +
-                         ")");
-
-            // Create Currencies table
-            stmt.execute("CREATE TABLE IF NOT EXISTS currencies (" +
-                         " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
-                         " code VARCHAR(10) NOT NULL," +
-                         " name VARCHAR(100) NOT NULL" +
-                         ")");
-
-            // Create Wallets table
-            stmt.execute("CREATE TABLE IF NOT EXISTS wallets (" +
-                         " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
-                         " name VARCHAR(255) NOT NULL" +
-                         ")");
-
-            // Create Transactions table (subcategory_id is nullable!)
-            stmt.execute("CREATE TABLE IF NOT EXISTS transactions (" +
-                         " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
-                         " date DATE NOT NULL," +
-                         " category_id BIGINT NOT NULL," +
-                         " subcategory_id BIGINT NULL," +  // ALLOWS NULL
-                         " amount DECIMAL(15,2) NOT NULL," +
-                         " currency_id BIGINT NOT NULL," +
-                         " wallet_id BIGINT NOT NULL," +
-                         " comment VARCHAR(255)," +
-                         " FOREIGN KEY (category_id) REFERENCES categories(id)," +
-                         " FOREIGN KEY (subcategory_id) REFERENCES subcategories(id)," +
-                         " FOREIGN KEY (currency_id) REFERENCES currencies(id)," +
-                         " FOREIGN KEY (wallet_id) REFERENCES wallets(id)" +
-                         ")");
-
-            // Create Plans table
-            stmt.execute("CREATE TABLE IF NOT EXISTS plans (" +
-                         " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
-                         " category_id BIGINT NOT NULL," +
-                         " plan_amount DECIMAL(15,2) NOT NULL," +
-                         " plan_month INT NOT NULL," +  // 1..12
-                         " plan_year INT NOT NULL," +
-                         " FOREIGN KEY (category_id) REFERENCES categories(id)" +
-                         ")");
-
-            System.out.println("Database initialized or already existing (file-based).");
+    public static void initDatabase() throws SQLException {
+        // The mirror loads the in-memory database through a plain connection, before its
+        // triggers and commit journal are in place
+        try (Connection conn = MIRROR != null ? POOL.getConnection() : getConnection()) {
+            int applied = MIRROR != null ? MIRROR.open(conn) : createSchema(conn);
+            System.out.println("Database initialized or already existing ("
+                    + (MIRROR != null ? "in-memory mirror of " + FILE_URL : "file-based") + "), "
+                    + applied + " migration(s) applied, storage profile " + PROFILE + ".");
+        }
+    }
+
+    /**
+     * Brings the schema on the given connection up to date (see {@link MigrationRunner}).
+     * Separate from initDatabase() so tools and benchmarks can build the same schema
+     * in another database.
+     *
+     * @return the number of migrations applied
+     */
+    public static int createSchema(Connection conn) throws SQLException {
+        return new MigrationRunner().migrate(conn);
+    }
 
+    /**
+     * Returns a pooled connection to our file-based H2 database (or its in-memory mirror).
+     * Closing it hands it back to the pool. Its statements are measured by {@link QueryMetrics},
+     * and within {@link DbExecutor#supplyCancellable} they are cancelled with the task.
+     */
+    public static Connection getConnection() throws SQLException {
+        QueryScope scope = QueryScope.current();
+        if (scope != null) {
+            scope.checkCancelled();
+        }
+        long start = System.nanoTime();
+        Connection conn;
+        try {
+            conn = POOL.getConnection();
         } catch (SQLException e) {
-            e.printStackTrace();
+            QueryMetrics.connectionFailed();
+            throw e;
         }
+        QueryMetrics.connectionAcquired(System.nanoTime() - start);
+        if (MIRROR != null) {
+            try {
+                conn = MIRROR.wrap(conn);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        if (scope != null) {
+            conn = scope.wrap(conn);
+        }
+        return QueryMetrics.wrap(conn);
     }
 
     /**
-     * Returns a connection to our file-based H2 database.
+     * The storage profile currently in effect.
      */
-    public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
+    public static synchronized StorageProfile getProfile() {
+        return activeProfile;
+    }
+
+    /**
+     * Switches the open database to {@code profile} (the settings that can change at
+     * runtime, see {@link StorageProfile}).
+     *
+     * @return the profile in effect before, to switch back to
+     */
+    public static synchronized StorageProfile useProfile(StorageProfile profile) throws SQLException {
+        StorageProfile previous = activeProfile;
+        if (profile != previous) {
+            try (Connection conn = getConnection()) {
+                profile.apply(conn);
+            }
+            activeProfile = profile;
+        }
+        return previous;
+    }
+
+    /**
+     * Exposes the pool for metrics (borrow waits, timeouts, sizes).
+     */
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+
+    /**
+     * The in-memory mirror the application runs on, or null.
+     */
+    public static DatabaseMirror getMirror() {
+        return MIRROR;
+    }
+
+    /**
+     * Makes every transaction committed so far durable. On the mirror a commit already is
+     * (it returns once its journal record is forced); on the file database H2 writes
+     * committed changes out in the background, so this forces them to disk. One call
+     * covers the commits of all connections, at the cost of one fsync.
+     */
+    public static void sync(Connection conn) throws SQLException {
+        if (MIRROR != null) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CHECKPOINT SYNC");
+        }
+    }
+
+    /**
+     * Closes all pooled connections, after writing back what the mirror has not flushed yet.
+     * Called when the application stops.
+     */
+    public static void shutdown() {
+        QueryMetrics.stop();
+        if (MIRROR != null) {
+            MIRROR.close();
+        }
+        System.out.println("Closing database: " + POOL);
+        POOL.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.financialapp.database;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs database work off the JavaFX application thread.
+ *
+ * On a Java 21+ runtime each task gets its own virtual thread. The project still
+ * targets Java 17, where virtual threads do not exist, so there the work runs on a
+ * fixed pool of daemon threads sized to the connection pool (more threads would only
+ * queue up waiting for a connection).
+ */
+public final class DbExecutor {
+
+    /**
+     * A unit of database work that produces a result.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run() throws Exception;
+    }
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private DbExecutor() {
+    }
+
+    /**
+     * Runs {@code work} asynchronously. Checked exceptions complete the future exceptionally.
+     */
+    public static <T> CompletableFuture<T> supply(SqlWork<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return work.run();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Like {@link #supply}, but cancelling the returned future also cancels the SQL the work
+     * is running (see {@link QueryScope}), so a superseded query gives back its connection
+     * and thread instead of running to the end. The work then fails; its result is dropped.
+     */
+    public static <T> CompletableFuture<T> supplyCancellable(SqlWork<T> work) {
+        QueryScope scope = new QueryScope();
+        CompletableFuture<T> future = supply(() -> scope.call(work));
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        return future;
+    }
+
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Pre-21 runtime: fall back to platform threads
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "db-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(DatabaseConnection.getPool().getMaxSize(), factory);
+    }
+}
@@ -0,0 +1,512 @@
+package com.financialapp.database;
+
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills an empty database with a synthetic but realistic ledger, for load tests, benchmarks
+ * and reproducing slowness at scale.
+ *
+ * The output depends only on the {@link Config}: the same seed gives the same categories,
+ * plans and transactions (ids included) whatever the number of threads. Transactions are
+ * generated in fixed chunks, each from its own random stream, and inserted with explicit ids
+ * by several connections in parallel; ids increase with the date, as when transactions are
+ * entered as they happen. monthly_totals is rebuilt once at the end.
+ *
+ * The distributions, roughly:
+ * <ul>
+ *   <li>more transactions on Fridays and weekends, in December and in summer, and a little
+ *       more every year;</li>
+ *   <li>a few expense categories get most transactions (Zipf-like), and each category may
+ *       peak in winter, in summer or before the holidays;</li>
+ *   <li>amounts are log-normal around a per-category typical amount; incomes are rarer
+ *       and larger;</li>
+ *   <li>plans are close to what each category is expected to spend in a month.</li>
+ * </ul>
+ *
+ * Usage: java -cp ... com.financialapp.database.LedgerGenerator [options] [jdbcUrl]
+ * (default jdbc:h2:./db/generated; "jdbc:h2:mem:..." works too, but is gone when the tool exits).
+ * Run with --help for the options.
+ */
+public final class LedgerGenerator {
+
+    // Rows per random stream and per committed batch; fixed so the output does not depend on the threads
+    private static final int CHUNK = 10_000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO transactions (id, date, category_id, subcategory_id, amount, currency_id, wallet_id, comment) " +
+            "VALUES (?,?,?,?,?,?,?,?)";
+
+    private static final String[] CURRENCY_CODES = {"USD", "EUR", "GBP", "JPY", "CHF", "CAD", "AUD", "SEK", "NOK", "PLN"};
+
+    /**
+     * What to generate. The defaults describe one household over five years.
+     */
+    public static class Config {
+        private long transactions = 100_000;
+        private int years = 5;
+        private int endYear = 2024;
+        private int expenseCategories = 15;
+        private int incomeCategories = 3;
+        private int subcategoriesPerCategory = 3;
+        private int currencies = 3;
+        private int wallets = 4;
+        private boolean plans = true;
+        private long seed = 42;
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        public long getTransactions() { return transactions; }
+        public void setTransactions(long transactions) { this.transactions = transactions; }
+
+        /** Number of calendar years generated, ending with {@link #getEndYear()}. */
+        public int getYears() { return years; }
+        public void setYears(int years) { this.years = years; }
+
+        public int getEndYear() { return endYear; }
+        public void setEndYear(int endYear) { this.endYear = endYear; }
+
+        public int getExpenseCategories() { return expenseCategories; }
+        public void setExpenseCategories(int expenseCategories) { this.expenseCategories = expenseCategories; }
+
+        public int getIncomeCategories() { return incomeCategories; }
+        public void setIncomeCategories(int incomeCategories) { this.incomeCategories = incomeCategories; }
+
+        public int getSubcategoriesPerCategory() { return subcategoriesPerCategory; }
+        public void setSubcategoriesPerCategory(int subcategoriesPerCategory) { this.subcategoriesPerCategory = subcategoriesPerCategory; }
+
+        public int getCurrencies() { return currencies; }
+        public void setCurrencies(int currencies) { this.currencies = currencies; }
+
+        public int getWallets() { return wallets; }
+        public void setWallets(int wallets) { this.wallets = wallets; }
+
+        /** Whether to create a plan for every expense category and month. */
+        public boolean isPlans() { return plans; }
+        public void setPlans(boolean plans) { this.plans = plans; }
+
+        public long getSeed() { return seed; }
+        public void setSeed(long seed) { this.seed = seed; }
+
+        /** Connections inserting in parallel; does not change the data generated. */
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+
+        public LocalDate getFirstDay() { return LocalDate.of(endYear - years + 1, 1, 1); }
+        public LocalDate getLastDay() { return LocalDate.of(endYear, 12, 31); }
+
+        void validate() {
+            if (transactions < 0 || years < 1 || expenseCategories < 1 || incomeCategories < 0
+                    || subcategoriesPerCategory < 0 || currencies < 1 || currencies > CURRENCY_CODES.length
+                    || wallets < 1 || threads < 1) {
+                throw new IllegalArgumentException("Invalid generator configuration");
+            }
+        }
+    }
+
+    /**
+     * What was generated.
+     */
+    public static class Result {
+        private long transactions;
+        private int plans;
+        private long elapsedNanos;
+
+        public long getTransactions() { return transactions; }
+        public int getPlans() { return plans; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : transactions * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Generated %,d transaction(s) and %,d plan(s) in %.1f s (%,.0f rows/s)",
+                    transactions, plans, elapsedNanos / 1e9, getRowsPerSecond());
+        }
+    }
+
+    private final Config config;
+
+    // Dimension ids as stored
+    private long[] expenseIds;
+    private long[] incomeIds;
+    private long[][] subcategoryIds; // [expense categories..., income categories...][n]
+    private long[] currencyIds;
+    private long[] walletIds;
+
+    // Per-category typical amount in cents, expense categories first
+    private long[] typicalCents;
+
+    // Inverse CDFs: cumulative day weights, and per calendar month the cumulative expense category weights
+    private double[] dayCdf;
+    private double[][] categoryCdf;
+    private double[] walletCdf;
+
+    public LedgerGenerator(Config config) {
+        config.validate();
+        this.config = config;
+    }
+
+    /**
+     * Generates into the database at {@code jdbcUrl}, creating the schema if needed. The
+     * database must not contain transactions yet. An in-memory database must stay open
+     * after the connections close (e.g. DB_CLOSE_DELAY=-1) for the caller to see the data.
+     */
+    public Result generate(String jdbcUrl) throws SQLException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        // Held open for the whole run, so an in-memory database lives until the end
+        try (Connection conn = DriverManager.getConnection(jdbcUrl, "sa", "")) {
+            DatabaseConnection.createSchema(conn);
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM transactions")) {
+                rs.next();
+                if (rs.getLong(1) > 0) {
+                    throw new SQLException("The database already contains transactions: " + jdbcUrl);
+                }
+            }
+
+            SplittableRandom random = new SplittableRandom(config.seed);
+            conn.setAutoCommit(false);
+            insertDimensions(conn, random);
+            prepareDistributions(random);
+            result.plans = config.plans ? insertPlans(conn, random) : 0;
+            conn.commit();
+            conn.setAutoCommit(true);
+
+            long firstId = nextTransactionId(conn);
+            insertTransactions(jdbcUrl, firstId);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE transactions ALTER COLUMN id RESTART WITH " + (firstId + config.transactions));
+            }
+            MonthlyTotals.rebuild(conn);
+            // Once for the whole run: a ledger file made before it is out of date
+            TransactionsVersion.advance(conn);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE");
+            }
+        }
+        result.transactions = config.transactions;
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // ---------------- Dimensions and plans ----------------
+
+    private void insertDimensions(Connection conn, SplittableRandom random) throws SQLException {
+        int categories = config.expenseCategories + config.incomeCategories;
+        expenseIds = new long[config.expenseCategories];
+        incomeIds = new long[config.incomeCategories];
+        subcategoryIds = new long[categories][];
+        typicalCents = new long[categories];
+
+        for (int c = 0; c < categories; c++) {
+            boolean expense = c < config.expenseCategories;
+            long id = insert(conn, "INSERT INTO categories (name, type) VALUES (?, ?)",
+                    expense ? "Expense " + (c + 1) : "Income " + (c - config.expenseCategories + 1),
+                    expense ? "EXPENSE" : "INCOME");
+            if (expense) {
+                expenseIds[c] = id;
+                // Typical expense between 3 and 300 units, log-uniform
+                typicalCents[c] = Math.round(300 * Math.pow(100, random.nextDouble()));
+            } else {
+                incomeIds[c - config.expenseCategories] = id;
+                typicalCents[c] = Math.round(100_000 * Math.pow(4, random.nextDouble()));
+            }
+            subcategoryIds[c] = new long[config.subcategoriesPerCategory];
+            for (int s = 0; s < config.subcategoriesPerCategory; s++) {
+                subcategoryIds[c][s] = insert(conn, "INSERT INTO subcategories (category_id, name) VALUES (?, ?)",
+                        id, "Subcategory " + (c + 1) + "." + (s + 1));
+            }
+        }
+        currencyIds = new long[config.currencies];
+        for (int i = 0; i < config.currencies; i++) {
+            currencyIds[i] = insert(conn, "INSERT INTO currencies (code, name) VALUES (?, ?)",
+                    CURRENCY_CODES[i], CURRENCY_CODES[i]);
+        }
+        walletIds = new long[config.wallets];
+        for (int i = 0; i < config.wallets; i++) {
+            walletIds[i] = insert(conn, "INSERT INTO wallets (name) VALUES (?)", "Wallet " + (i + 1));
+        }
+    }
+
+    /**
+     * Plans near each category's expected monthly spending, between 90% and 120% of it.
+     */
+    private int insertPlans(Connection conn, SplittableRandom random) throws SQLException {
+        LocalDate first = config.getFirstDay();
+        int months = config.years * 12;
+        double expensesPerMonth = config.transactions * (1 - incomeShare()) / months;
+        int plans = 0;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO plans (category_id, plan_amount, plan_month, plan_year) VALUES (?,?,?,?)")) {
+            for (int m = 0; m < months; m++) {
+                LocalDate month = first.plusMonths(m);
+                double[] cdf = categoryCdf[month.getMonthValue() - 1];
+                for (int c = 0; c < config.expenseCategories; c++) {
+                    double share = cdf[c] - (c == 0 ? 0 : cdf[c - 1]);
+                    // Mean of the log-normal amount is typical * e^(sigma^2 / 2)
+                    double expected = expensesPerMonth * share * typicalCents[c] * Math.exp(0.32);
+                    long plan = Math.round(expected * (0.9 + 0.3 * random.nextDouble()) / 1000) * 1000;
+                    ps.setLong(1, expenseIds[c]);
+                    Money.bind(ps, 2, plan);
+                    ps.setInt(3, month.getMonthValue());
+                    ps.setInt(4, month.getYear());
+                    ps.addBatch();
+                    plans++;
+                }
+            }
+            ps.executeBatch();
+        }
+        return plans;
+    }
+
+    private static long insert(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private static long nextTransactionId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM transactions")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // ---------------- Distributions ----------------
+
+    private double incomeShare() {
+        return config.incomeCategories == 0 ? 0 : 0.06;
+    }
+
+    private void prepareDistributions(SplittableRandom random) {
+        LocalDate first = config.getFirstDay();
+        int days = (int) (config.getLastDay().toEpochDay() - first.toEpochDay() + 1);
+        dayCdf = new double[days];
+        double total = 0;
+        for (int d = 0; d < days; d++) {
+            LocalDate day = first.plusDays(d);
+            total += dayWeight(day) * (1 + 0.03 * d / 365.0);
+            dayCdf[d] = total;
+        }
+        normalize(dayCdf);
+
+        // Zipf-like popularity, then a seasonal profile per category
+        int[] profile = new int[config.expenseCategories];
+        for (int c = 0; c < config.expenseCategories; c++) {
+            profile[c] = random.nextInt(4);
+        }
+        categoryCdf = new double[12][config.expenseCategories];
+        for (int m = 1; m <= 12; m++) {
+            double sum = 0;
+            for (int c = 0; c < config.expenseCategories; c++) {
+                sum += Math.pow(c + 1, -0.8) * seasonFactor(profile[c], m);
+                categoryCdf[m - 1][c] = sum;
+            }
+            normalize(categoryCdf[m - 1]);
+        }
+
+        walletCdf = new double[config.wallets];
+        double sum = 0;
+        for (int w = 0; w < config.wallets; w++) {
+            sum += Math.pow(w + 1, -1.2);
+            walletCdf[w] = sum;
+        }
+        normalize(walletCdf);
+    }
+
+    private static double dayWeight(LocalDate day) {
+        DayOfWeek dow = day.getDayOfWeek();
+        double weekday = dow == DayOfWeek.SATURDAY ? 1.4 : dow == DayOfWeek.SUNDAY ? 1.15 : dow == DayOfWeek.FRIDAY ? 1.2 : 1.0;
+        double month = switch (day.getMonthValue()) {
+            case 12 -> 1.35;
+            case 11 -> 1.1;
+            case 1, 2 -> 0.85;
+            case 7, 8 -> 1.15;
+            default -> 1.0;
+        };
+        return weekday * month;
+    }
+
+    /**
+     * 0: flat, 1: winter (e.g. heating), 2: summer (e.g. travel), 3: holiday season (e.g. gifts).
+     */
+    private static double seasonFactor(int profile, int month) {
+        return switch (profile) {
+            case 1 -> month == 12 || month <= 2 ? 1.6 : 1.0;
+            case 2 -> month >= 6 && month <= 8 ? 1.6 : 1.0;
+            case 3 -> month >= 11 ? 2.0 : 1.0;
+            default -> 1.0;
+        };
+    }
+
+    private static void normalize(double[] cdf) {
+        double total = cdf[cdf.length - 1];
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] /= total;
+        }
+        cdf[cdf.length - 1] = 1.0;
+    }
+
+    /**
+     * Index of the first entry of {@code cdf} that is >= u.
+     */
+    private static int sample(double[] cdf, double u) {
+        int i = Arrays.binarySearch(cdf, u);
+        return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+    }
+
+    // ---------------- Transactions ----------------
+
+    private void insertTransactions(String jdbcUrl, long firstId) throws SQLException {
+        int chunks = (int) ((config.transactions + CHUNK - 1) / CHUNK);
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        // The first failure of any worker; a RuntimeException or Error counts too, so no chunk
+        // goes missing without failing the run
+        Throwable[] failure = {null};
+
+        for (int t = 0; t < Math.min(config.threads, Math.max(chunks, 1)); t++) {
+            Thread worker = new Thread(() -> {
+                try (Connection conn = DriverManager.getConnection(jdbcUrl, "sa", "");
+                     PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+                    conn.setAutoCommit(false);
+                    int chunk;
+                    while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                        synchronized (failure) {
+                            if (failure[0] != null) {
+                                return;
+                            }
+                        }
+                        insertChunk(ps, chunk, firstId);
+                        conn.commit();
+                    }
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            }, "ledger-generator-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Generation interrupted", e);
+            }
+        }
+        Throwable e = failure[0];
+        if (e instanceof SQLException) {
+            throw (SQLException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e != null) {
+            throw (Error) e;
+        }
+    }
+
+    private void insertChunk(PreparedStatement ps, int chunk, long firstId) throws SQLException {
+        SplittableRandom random = new SplittableRandom(config.seed * 31 + chunk);
+        long from = (long) chunk * CHUNK;
+        long until = Math.min(from + CHUNK, config.transactions);
+        LocalDate first = config.getFirstDay();
+        double income = incomeShare();
+
+        for (long i = from; i < until; i++) {
+            // Row i sits at quantile (i + 0.5) / n of the day distribution, so dates rise with the id
+            LocalDate date = first.plusDays(sample(dayCdf, (i + 0.5) / config.transactions));
+            boolean isIncome = random.nextDouble() < income;
+            int category;
+            long categoryId;
+            if (isIncome) {
+                category = config.expenseCategories + random.nextInt(config.incomeCategories);
+                categoryId = incomeIds[category - config.expenseCategories];
+            } else {
+                category = sample(categoryCdf[date.getMonthValue() - 1], random.nextDouble());
+                categoryId = expenseIds[category];
+            }
+            double sigma = isIncome ? 0.3 : 0.8;
+            long cents = Math.max(1, Math.round(typicalCents[category] * Math.exp(sigma * random.nextGaussian())));
+
+            ps.setLong(1, firstId + i);
+            ps.setDate(2, Date.valueOf(date));
+            ps.setLong(3, categoryId);
+            long[] subs = subcategoryIds[category];
+            if (subs.length == 0 || random.nextInt(10) < 3) {
+                ps.setNull(4, Types.BIGINT);
+            } else {
+                ps.setLong(4, subs[random.nextInt(subs.length)]);
+            }
+            Money.bind(ps, 5, cents);
+            // Mostly the first currency
+            int currency = currencyIds.length == 1 || random.nextInt(100) < 85 ? 0 : 1 + random.nextInt(currencyIds.length - 1);
+            ps.setLong(6, currencyIds[currency]);
+            ps.setLong(7, walletIds[sample(walletCdf, random.nextDouble())]);
+            ps.setString(8, random.nextInt(5) == 0 ? "Generated #" + (firstId + i) : null);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    // ---------------- Command line ----------------
+
+    public static void main(String[] args) throws SQLException {
+        Config config = new Config();
+        String url = "jdbc:h2:./db/generated";
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--transactions" -> config.setTransactions(Long.parseLong(args[++i]));
+                case "--years" -> config.setYears(Integer.parseInt(args[++i]));
+                case "--end-year" -> config.setEndYear(Integer.parseInt(args[++i]));
+                case "--expense-categories" -> config.setExpenseCategories(Integer.parseInt(args[++i]));
+                case "--income-categories" -> config.setIncomeCategories(Integer.parseInt(args[++i]));
+                case "--subcategories" -> config.setSubcategoriesPerCategory(Integer.parseInt(args[++i]));
+                case "--currencies" -> config.setCurrencies(Integer.parseInt(args[++i]));
+                case "--wallets" -> config.setWallets(Integer.parseInt(args[++i]));
+                case "--no-plans" -> config.setPlans(false);
+                case "--seed" -> config.setSeed(Long.parseLong(args[++i]));
+                case "--threads" -> config.setThreads(Integer.parseInt(args[++i]));
+                case "--help" -> {
+                    System.out.println("Options: --transactions N --years N --end-year YYYY --expense-categories N "
+                            + "--income-categories N --subcategories N (per category) --currencies N --wallets N "
+                            + "--no-plans --seed N --threads N, then the JDBC URL (default " + url + ")");
+                    return;
+                }
+                default -> url = arg;
+            }
+        }
+        System.out.println("Generating " + config.getFirstDay() + " .. " + config.getLastDay() + " into " + url);
+        System.out.println(new LedgerGenerator(config).generate(url));
+    }
+}
@@ -0,0 +1,277 @@
+package com.financialapp.database;
+
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maintains the monthly_totals rollup: one row per
+ * (year, month, category, wallet, currency) with the summed amount and transaction count.
+ *
+ * The dashboards read month totals from here instead of aggregating the transactions table.
+ * Every write to transactions must go through {@link TransactionRepository}, which applies
+ * the matching delta in the same JDBC transaction. If the rollup ever drifts (e.g. after
+ * editing the database by hand), run {@link #main(String[])} to rebuild it.
+ */
+public final class MonthlyTotals {
+
+    // Adds to an existing row or creates it; a single statement, so concurrent writers cannot collide
+    private static final String MERGE_DELTA =
+            "MERGE INTO monthly_totals m " +
+            "USING (VALUES (?, ?, CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), " +
+            "               CAST(? AS DECIMAL(17,2)), CAST(? AS BIGINT))) " +
+            "      d(period_year, period_month, category_id, wallet_id, currency_id, total, tx_count) " +
+            "ON m.period_year = d.period_year AND m.period_month = d.period_month " +
+            "   AND m.category_id = d.category_id AND m.wallet_id = d.wallet_id AND m.currency_id = d.currency_id " +
+            "WHEN MATCHED THEN UPDATE SET total = m.total + d.total, tx_count = m.tx_count + d.tx_count " +
+            "WHEN NOT MATCHED THEN INSERT (period_year, period_month, category_id, wallet_id, currency_id, total, tx_count) " +
+            "     VALUES (d.period_year, d.period_month, d.category_id, d.wallet_id, d.currency_id, d.total, d.tx_count)";
+
+    private static final String DELETE_EMPTY =
+            "DELETE FROM monthly_totals WHERE period_year=? AND period_month=? " +
+            "AND category_id=? AND wallet_id=? AND currency_id=? AND tx_count <= 0";
+
+    private MonthlyTotals() {
+    }
+
+    /**
+     * Adds {@code amountCents} and {@code count} to the bucket of the given transaction attributes.
+     * Pass negative values to remove a transaction. Runs on the caller's connection and
+     * transaction; the caller commits.
+     */
+    public static void add(Connection conn, LocalDate date, long categoryId, long walletId, long currencyId,
+                           long amountCents, int count) throws SQLException {
+        Deltas deltas = new Deltas();
+        deltas.add(date, categoryId, walletId, currencyId, amountCents, count);
+        deltas.apply(conn);
+    }
+
+    /**
+     * Recomputes the whole rollup from the transactions table in one transaction.
+     * @return the number of rollup rows written
+     */
+    public static int rebuild(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM monthly_totals");
+            int rows = stmt.executeUpdate(
+                    "INSERT INTO monthly_totals (period_year, period_month, category_id, wallet_id, currency_id, total, tx_count) " +
+                    "SELECT EXTRACT(YEAR FROM date), EXTRACT(MONTH FROM date), category_id, wallet_id, currency_id, " +
+                    "       SUM(amount), COUNT(*) " +
+                    "FROM transactions " +
+                    "GROUP BY EXTRACT(YEAR FROM date), EXTRACT(MONTH FROM date), category_id, wallet_id, currency_id");
+            conn.commit();
+            return rows;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Repair command: rebuilds monthly_totals in the application database.
+     * Usage: java -cp ... com.financialapp.database.MonthlyTotals
+     * (run it while the app is closed; the embedded database allows one process at a time)
+     */
+    public static void main(String[] args) throws SQLException {
+        DatabaseConnection.initDatabase();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int rows = rebuild(conn);
+            System.out.println("Rebuilt monthly_totals: " + rows + " row(s) in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+    }
+
+    /**
+     * Collects changes to several buckets so they can be applied with one batch,
+     * e.g. for a multi-row import or an update that moves a transaction to another month.
+     * Changes to the same bucket are summed first.
+     */
+    public static class Deltas {
+        private final Map<Key, Delta> byKey = new LinkedHashMap<>();
+
+        public void add(LocalDate date, long categoryId, long walletId, long currencyId,
+                        long amountCents, long count) {
+            Delta d = byKey.computeIfAbsent(
+                    new Key(date.getYear(), date.getMonthValue(), categoryId, walletId, currencyId), k -> new Delta());
+            d.amountCents += amountCents;
+            d.count += count;
+        }
+
+        public boolean isEmpty() {
+            return byKey.isEmpty();
+        }
+
+        /**
+         * Applies all collected changes on the caller's connection and transaction.
+         */
+        public void apply(Connection conn) throws SQLException {
+            boolean removed = false;
+            try (PreparedStatement ps = conn.prepareStatement(MERGE_DELTA)) {
+                for (Map.Entry<Key, Delta> e : byKey.entrySet()) {
+                    Delta d = e.getValue();
+                    if (d.count == 0 && d.amountCents == 0) {
+                        continue;
+                    }
+                    int idx = e.getKey().bind(ps);
+                    Money.bind(ps, idx++, d.amountCents);
+                    ps.setLong(idx, d.count);
+                    ps.addBatch();
+                    removed |= d.count < 0;
+                }
+                ps.executeBatch();
+            }
+            if (removed) {
+                // Drop buckets whose last transaction was removed, so they do not show up as zero rows
+                try (PreparedStatement ps = conn.prepareStatement(DELETE_EMPTY)) {
+                    for (Map.Entry<Key, Delta> e : byKey.entrySet()) {
+                        if (e.getValue().count < 0) {
+                            e.getKey().bind(ps);
+                            ps.addBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        final int year;
+        final int month;
+        final long categoryId;
+        final long walletId;
+        final long currencyId;
+
+        Key(int year, int month, long categoryId, long walletId, long currencyId) {
+            this.year = year;
+            this.month = month;
+            this.categoryId = categoryId;
+            this.walletId = walletId;
+            this.currencyId = currencyId;
+        }
+
+        /** Binds the five key columns; @return the next parameter index */
+        int bind(PreparedStatement ps) throws SQLException {
+            ps.setInt(1, year);
+            ps.setInt(2, month);
+            ps.setLong(3, categoryId);
+            ps.setLong(4, walletId);
+            ps.setLong(5, currencyId);
+            return 6;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return year == k.year && month == k.month && categoryId == k.categoryId
+                    && walletId == k.walletId && currencyId == k.currencyId;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = year * 12 + month;
+            h = h * 31 + Long.hashCode(categoryId);
+            h = h * 31 + Long.hashCode(walletId);
+            return h * 31 + Long.hashCode(currencyId);
+        }
+    }
+
+    private static final class Delta {
+        long amountCents;
+        long count;
+    }
+
+    /**
+     * Splits an inclusive date range into the whole calendar months that can be answered
+     * from the rollup and the partial months at either edge that must still come from
+     * transactions. Null bounds mean open-ended.
+     */
+    public static class Span {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final LocalDate fullFrom;   // first day of the first whole month, or null if open
+        private final LocalDate fullUntil;  // first day after the last whole month, or null if open
+
+        public Span(LocalDate start, LocalDate end) {
+            this.start = start;
+            this.end = end;
+            LocalDate from = start == null || start.getDayOfMonth() == 1
+                    ? start : start.withDayOfMonth(1).plusMonths(1);
+            LocalDate until = end == null ? null : end.plusDays(1).withDayOfMonth(1);
+            if (from != null && until != null && !from.isBefore(until)) {
+                // No whole month inside the range: everything comes from transactions
+                from = until = start;
+            }
+            this.fullFrom = from;
+            this.fullUntil = until;
+        }
+
+        /**
+         * Appends a derived table with the columns (yr, mon, category_id, amount) covering the
+         * span: monthly_totals rows for the whole months, UNION ALL transaction rows for the
+         * partial edge months. When {@code byWallet} is set both halves are restricted to one
+         * wallet. Bind with {@link #bind(PreparedStatement, int, boolean, long)}.
+         */
+        public void appendSource(StringBuilder sb, boolean byWallet) {
+            sb.append("(SELECT m.period_year AS yr, m.period_month AS mon, m.category_id, m.total AS amount ")
+              .append("FROM monthly_totals m WHERE 1=1");
+            if (byWallet) sb.append(" AND m.wallet_id = ?");
+            if (fullFrom != null) sb.append(" AND m.period_year * 12 + m.period_month >= ?");
+            if (fullUntil != null) sb.append(" AND m.period_year * 12 + m.period_month < ?");
+
+            sb.append(" UNION ALL ")
+              .append("SELECT EXTRACT(YEAR FROM t.date), EXTRACT(MONTH FROM t.date), t.category_id, t.amount ")
+              .append("FROM transactions t WHERE 1=1");
+            if (byWallet) sb.append(" AND t.wallet_id = ?");
+            if (fullFrom == null && fullUntil == null) {
+                sb.append(" AND 1=0");
+            } else if (fullFrom == null) {
+                sb.append(" AND t.date >= ? AND t.date <= ?");
+            } else if (fullUntil == null) {
+                sb.append(" AND t.date >= ? AND t.date < ?");
+            } else {
+                sb.append(" AND ((t.date >= ? AND t.date < ?) OR (t.date >= ? AND t.date <= ?))");
+            }
+            sb.append(")");
+        }
+
+        /**
+         * Binds the parameters of {@link #appendSource}; {@code walletId} is ignored unless it was byWallet.
+         * @return the next parameter index
+         */
+        public int bind(PreparedStatement ps, int idx, boolean byWallet, long walletId) throws SQLException {
+            if (byWallet) ps.setLong(idx++, walletId);
+            if (fullFrom != null) ps.setInt(idx++, monthKey(fullFrom));
+            if (fullUntil != null) ps.setInt(idx++, monthKey(fullUntil));
+
+            if (byWallet) ps.setLong(idx++, walletId);
+            if (fullFrom != null) {
+                ps.setDate(idx++, java.sql.Date.valueOf(start));
+                ps.setDate(idx++, java.sql.Date.valueOf(fullFrom));
+            }
+            if (fullUntil != null) {
+                ps.setDate(idx++, java.sql.Date.valueOf(fullUntil));
+                ps.setDate(idx++, java.sql.Date.valueOf(end));
+            }
+            return idx;
+        }
+
+        private static int monthKey(LocalDate date) {
+            return date.getYear() * 12 + date.getMonthValue();
+        }
+    }
+}
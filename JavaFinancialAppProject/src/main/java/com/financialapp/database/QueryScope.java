@@ -0,0 +1,170 @@
+package com.financialapp.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The open statements of one cancellable {@link DbExecutor} task, so that cancelling the
+ * task cancels the query it is waiting on and the task gives its connection back.
+ *
+ * While the task runs, {@link DatabaseConnection#getConnection()} hands out connections
+ * wrapped by {@link #wrap}, which register each statement until it (or its connection) is
+ * closed. After {@link #cancel()} the running statement fails with H2's "statement was
+ * canceled" error, and borrowing another connection or creating another statement fails
+ * the same way.
+ */
+final class QueryScope {
+
+    // SQLSTATE of a canceled statement, as H2 reports it
+    private static final String QUERY_CANCELED = "57014";
+
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<Statement> open = new HashSet<>();
+    private boolean cancelled;
+
+    /**
+     * The scope of the task running on this thread, or null.
+     */
+    static QueryScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs {@code work} on this thread with this scope in effect.
+     */
+    <T> T call(DbExecutor.SqlWork<T> work) throws Exception {
+        CURRENT.set(this);
+        try {
+            return work.run();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Cancels the statements running now and fails the ones started later. Returns at once:
+     * with H2 a cancel only flags the session.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        for (Statement stmt : open) {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                // Closed meanwhile; nothing left to cancel
+            }
+        }
+    }
+
+    synchronized void checkCancelled() throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Cancelled", QUERY_CANCELED);
+        }
+    }
+
+    /**
+     * Wraps a connection of this task so its statements can be cancelled.
+     */
+    Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+    }
+
+    private synchronized void register(Statement stmt) throws SQLException {
+        if (cancelled) {
+            stmt.close();
+            checkCancelled();
+        }
+        open.add(stmt);
+    }
+
+    private synchronized void unregister(Set<Statement> statements) {
+        open.removeAll(statements);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Registers the statements the connection creates; closing it unregisters those still open,
+     * so a statement of a connection back in the pool is never cancelled.
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+        // Only used by the task's thread
+        private final Set<Statement> statements = new HashSet<>();
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createStatement":
+                case "prepareStatement":
+                case "prepareCall": {
+                    Statement stmt = (Statement) QueryScope.invoke(conn, method, args);
+                    register(stmt);
+                    statements.add(stmt);
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{method.getReturnType()}, new StatementHandler(stmt, statements));
+                }
+                case "close":
+                    unregister(statements);
+                    statements.clear();
+                    return QueryScope.invoke(conn, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cancellable[" + conn + "]";
+                default:
+                    return QueryScope.invoke(conn, method, args);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the statement when it is closed.
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement stmt;
+        private final Set<Statement> statements;
+
+        StatementHandler(Statement stmt, Set<Statement> statements) {
+            this.stmt = stmt;
+            this.statements = statements;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    unregister(Set.of(stmt));
+                    statements.remove(stmt);
+                    return QueryScope.invoke(stmt, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return QueryScope.invoke(stmt, method, args);
+            }
+        }
+    }
+}
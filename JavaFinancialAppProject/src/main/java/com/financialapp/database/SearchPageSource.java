@@ -0,0 +1,269 @@
+package com.financialapp.database;
+
+import com.financialapp.models.Transaction;
+import com.financialapp.search.CommentIndex;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pages through the result of a comment search: the keys the {@link CommentIndex} returned,
+ * already filtered by date and category and in (date DESC, id DESC) order. The count and
+ * page positions come from the keys; H2 is only asked for the rows of the page on screen,
+ * by primary key. The filter's other criteria (wallet, amount, ...) are applied once, on
+ * first use, by looking the matches up by primary key.
+ *
+ * The keys are a snapshot, kept current by {@link #changed}; a transaction deleted
+ * after the search without going through it shows as a blank row.
+ */
+public class SearchPageSource extends TransactionPageSource {
+
+    // H2's limit on the elements of an array
+    private static final int MAX_ARRAY = 65_536;
+
+    // Joining the ids as a table makes one primary key lookup per id; "id = ANY(?)" would
+    // also look up by key, but then re-check every row against the whole array
+    private static final String MATCH_SQL =
+            "SELECT " + COLUMNS + " FROM TABLE(match_id BIGINT = ?) m JOIN transactions ON id = match_id";
+    private static final String MATCH_ID_SQL =
+            "SELECT id FROM TABLE(match_id BIGINT = ?) m JOIN transactions ON id = match_id ";
+
+    private long[] matches;
+    private boolean refined;
+
+    /**
+     * @param keys the comment search result for the filter's date range and category,
+     *             from {@link com.financialapp.search.CommentSearch#search}
+     */
+    public SearchPageSource(TransactionFilter filter, long[] keys) {
+        super(filter);
+        this.matches = keys;
+        this.refined = filter.isDateCategoryAndCommentOnly();
+    }
+
+    @Override
+    public int count() throws SQLException {
+        return keys().length;
+    }
+
+    /**
+     * The matching keys, once the criteria the index does not know have been applied.
+     */
+    private synchronized long[] keys() throws SQLException {
+        if (refined) {
+            return matches;
+        }
+        TransactionFilter filter = getFilter();
+        // Date and category again, harmlessly; the comment is already matched
+        String sql = MATCH_ID_SQL + filter.where(false);
+        Set<Long> kept = new HashSet<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < matches.length; from += MAX_ARRAY) {
+                Long[] ids = new Long[Math.min(MAX_ARRAY, matches.length - from)];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = CommentIndex.idOf(matches[from + i]);
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setArray(1, conn.createArrayOf("BIGINT", ids));
+                    filter.bind(ps, 2, false);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            kept.add(rs.getLong(1));
+                        }
+                    }
+                }
+            }
+        }
+        long[] matching = new long[kept.size()];
+        int n = 0;
+        for (long key : matches) {
+            if (kept.contains(CommentIndex.idOf(key))) {
+                matching[n++] = key;
+            }
+        }
+        matches = matching;
+        refined = true;
+        return matches;
+    }
+
+    @Override
+    public List<Transaction> fetchAfter(Key after, int limit) throws SQLException {
+        long[] keys = keys();
+        int from = after == null ? 0 : positionAfter(keys, after);
+        int to = Math.min(keys.length, from + limit);
+        List<Transaction> page = new ArrayList<>(to - from);
+        if (from >= to) {
+            return page;
+        }
+        Long[] ids = new Long[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = CommentIndex.idOf(keys[i]);
+        }
+
+        Map<Long, Transaction> byId = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(MATCH_SQL)) {
+            Array array = conn.createArrayOf("BIGINT", ids);
+            ps.setArray(1, array);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Transaction t = readRow(rs);
+                    byId.put(t.getId(), t);
+                }
+            }
+        }
+        for (Long id : ids) {
+            page.add(byId.get(id)); // null if deleted since the search
+        }
+        return page;
+    }
+
+    /**
+     * Taken from the keys: the page's last row is null if it was deleted since the search.
+     */
+    @Override
+    public Key keyAfter(Key after, List<Transaction> page) throws SQLException {
+        if (page.isEmpty()) {
+            return null;
+        }
+        long[] keys = keys();
+        int last = (after == null ? 0 : positionAfter(keys, after)) + page.size() - 1;
+        // Past the end if the snapshot changed since the page was read; the next page then
+        // locates its start with keyAt
+        return last >= keys.length ? null : new Key(CommentIndex.dayOf(keys[last]), CommentIndex.idOf(keys[last]));
+    }
+
+    @Override
+    public Key keyAt(int offset) throws SQLException {
+        long[] keys = keys();
+        if (offset < 0 || offset >= keys.length) {
+            return null;
+        }
+        return new Key(CommentIndex.dayOf(keys[offset]), CommentIndex.idOf(keys[offset]));
+    }
+
+    /**
+     * Scans the matches in id order. The ids are passed sorted, which is the order the join
+     * visits them in; a result over {@value #MAX_ARRAY} ids is passed as several arrays.
+     */
+    @Override
+    public PreparedStatement prepareScan(Connection conn, int fetchSize) throws SQLException {
+        long[] keys = keys();
+        long[] ids = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = CommentIndex.idOf(keys[i]);
+        }
+        Arrays.sort(ids);
+        int arrays = Math.max(1, (ids.length + MAX_ARRAY - 1) / MAX_ARRAY);
+        StringBuilder sql = new StringBuilder(MATCH_SQL);
+        for (int i = 1; i < arrays; i++) {
+            sql.append(" UNION ALL ").append(MATCH_SQL);
+        }
+        PreparedStatement ps = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < arrays; i++) {
+                int from = i * MAX_ARRAY;
+                Long[] chunk = new Long[Math.min(MAX_ARRAY, ids.length - from)];
+                for (int j = 0; j < chunk.length; j++) {
+                    chunk[j] = ids[from + j];
+                }
+                ps.setArray(i + 1, conn.createArrayOf("BIGINT", chunk));
+            }
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+        return ps;
+    }
+
+    /**
+     * Comment words match as in the index: each starts a word of the comment.
+     */
+    @Override
+    public boolean matches(Transaction tx) {
+        TransactionFilter filter = getFilter();
+        return filter.matches(tx, false) && CommentIndex.matches(filter.getCommentQuery(), tx.getComment());
+    }
+
+    /**
+     * Patches the snapshot: the old row's key goes, the new row's key comes in if it matches.
+     */
+    @Override
+    public synchronized void changed(Transaction before, Transaction after) throws SQLException {
+        long[] keys = keys();
+        if (before != null) {
+            long key = CommentIndex.keyOf(before.getDate(), before.getId());
+            int at = countBefore(keys, key);
+            if (at < keys.length && keys[at] == key) {
+                long[] shorter = new long[keys.length - 1];
+                System.arraycopy(keys, 0, shorter, 0, at);
+                System.arraycopy(keys, at + 1, shorter, at, keys.length - at - 1);
+                keys = shorter;
+            }
+        }
+        if (after != null && matches(after)) {
+            long key = CommentIndex.keyOf(after.getDate(), after.getId());
+            int at = countBefore(keys, key);
+            if (at == keys.length || keys[at] != key) {
+                long[] longer = new long[keys.length + 1];
+                System.arraycopy(keys, 0, longer, 0, at);
+                longer[at] = key;
+                System.arraycopy(keys, at, longer, at + 1, keys.length - at);
+                keys = longer;
+            }
+        }
+        matches = keys;
+    }
+
+    @Override
+    public int indexOf(Key key) throws SQLException {
+        return countBefore(keys(), CommentIndex.keyOf(key.getDate(), key.getId()));
+    }
+
+    /**
+     * Number of keys before {@code key} in the descending array.
+     */
+    private static int countBefore(long[] keys, long key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] > key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Index of the first key after {@code after} in the (date DESC, id DESC) order.
+     */
+    private static int positionAfter(long[] keys, Key after) {
+        long key = CommentIndex.keyOf(after.getDate(), after.getId());
+        // keys are descending: find the first key < key
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] >= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
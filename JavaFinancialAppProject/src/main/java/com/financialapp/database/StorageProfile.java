@@ -0,0 +1,144 @@
+package com.financialapp.database;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * H2 engine settings for a kind of machine or workload.
+ *
+ * The profile is read at startup from {@code storage.profile} in the config file
+ * ({@code -Dfinancialapp.config}, default ./financialapp.properties; a missing file means
+ * defaults), and {@code -Dfinancialapp.storage.profile} overrides it. Its settings are
+ * appended to the JDBC URL, unless the URL already sets them. The CSV import switches to
+ * {@code storage.importProfile} (default BULK_IMPORT) for its duration with
+ * {@link DatabaseConnection#useProfile}.
+ *
+ * Only the cache size, write delay and lock timeout can change on an open database; the
+ * query cache size and auto-compaction keep the values the database was opened with.
+ * The lock timeout is per session, so a switch reaches the connection that applies it and
+ * connections the pool opens afterwards.
+ */
+public enum StorageProfile {
+
+    /** The default: a moderate cache and H2's own write delay and compaction. */
+    INTERACTIVE(64 * 1024, 500, 90, 10_000, 32),
+    /** Large imports: big cache, changes written less often, no background compaction. */
+    BULK_IMPORT(256 * 1024, 2_000, 0, 60_000, 8),
+    /** Read-mostly reporting over a large ledger: biggest cache and query cache. */
+    ANALYTICS(512 * 1024, 1_000, 90, 10_000, 128),
+    /** Small machines: small cache, changes written soon, compaction kicks in earlier. */
+    LOW_MEMORY(4 * 1024, 200, 50, 10_000, 4);
+
+    public static final Path CONFIG_FILE = Paths.get(System.getProperty("financialapp.config", "./financialapp.properties"));
+
+    private final int cacheSizeKb;
+    private final int writeDelayMillis;
+    private final int autoCompactFillRate;
+    private final int lockTimeoutMillis;
+    private final int queryCacheSize;
+
+    StorageProfile(int cacheSizeKb, int writeDelayMillis, int autoCompactFillRate, int lockTimeoutMillis,
+                   int queryCacheSize) {
+        this.cacheSizeKb = cacheSizeKb;
+        this.writeDelayMillis = writeDelayMillis;
+        this.autoCompactFillRate = autoCompactFillRate;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.queryCacheSize = queryCacheSize;
+    }
+
+    /**
+     * H2 page cache in KB, capped at a quarter of the maximum heap (the cache lives there).
+     */
+    public int getCacheSizeKb() {
+        long quarterHeapKb = Runtime.getRuntime().maxMemory() / 4 / 1024;
+        return (int) Math.min(cacheSizeKb, quarterHeapKb);
+    }
+
+    public int getWriteDelayMillis() { return writeDelayMillis; }
+    public int getAutoCompactFillRate() { return autoCompactFillRate; }
+    public int getLockTimeoutMillis() { return lockTimeoutMillis; }
+    public int getQueryCacheSize() { return queryCacheSize; }
+
+    /**
+     * The profile to open the database with (see the class comment).
+     */
+    public static StorageProfile configured() {
+        return fromConfig("financialapp.storage.profile", "storage.profile", INTERACTIVE);
+    }
+
+    /**
+     * The profile the CSV import runs with.
+     */
+    public static StorageProfile forImport() {
+        return fromConfig("financialapp.storage.importProfile", "storage.importProfile", BULK_IMPORT);
+    }
+
+    /**
+     * Appends this profile's settings to {@code url}, except those the URL already sets.
+     */
+    public String appendTo(String url) {
+        StringBuilder sb = new StringBuilder(url.endsWith(";") ? url.substring(0, url.length() - 1) : url);
+        String upper = url.toUpperCase(Locale.ROOT);
+        appendSetting(sb, upper, "CACHE_SIZE", getCacheSizeKb());
+        appendSetting(sb, upper, "WRITE_DELAY", writeDelayMillis);
+        appendSetting(sb, upper, "AUTO_COMPACT_FILL_RATE", autoCompactFillRate);
+        appendSetting(sb, upper, "DEFAULT_LOCK_TIMEOUT", lockTimeoutMillis);
+        appendSetting(sb, upper, "QUERY_CACHE_SIZE", queryCacheSize);
+        return sb.toString();
+    }
+
+    /**
+     * Applies the settings that can change on an open database, through {@code conn}.
+     */
+    void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET CACHE_SIZE " + getCacheSizeKb());
+            stmt.execute("SET WRITE_DELAY " + writeDelayMillis);
+            stmt.execute("SET DEFAULT_LOCK_TIMEOUT " + lockTimeoutMillis);
+            stmt.execute("SET LOCK_TIMEOUT " + lockTimeoutMillis);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name() + "[cache=" + getCacheSizeKb() + " KB, writeDelay=" + writeDelayMillis
+                + " ms, autoCompactFillRate=" + autoCompactFillRate + "%, lockTimeout=" + lockTimeoutMillis
+                + " ms, queryCache=" + queryCacheSize + "]";
+    }
+
+    private static void appendSetting(StringBuilder sb, String upperUrl, String name, int value) {
+        if (!upperUrl.contains(";" + name + "=")) {
+            sb.append(';').append(name).append('=').append(value);
+        }
+    }
+
+    private static StorageProfile fromConfig(String systemProperty, String key, StorageProfile fallback) {
+        String name = System.getProperty(systemProperty);
+        if (name == null && Files.isRegularFile(CONFIG_FILE)) {
+            Properties config = new Properties();
+            try (Reader reader = Files.newBufferedReader(CONFIG_FILE)) {
+                config.load(reader);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            name = config.getProperty(key);
+        }
+        if (name == null || name.isBlank()) {
+            return fallback;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown storage profile '" + name + "', using " + fallback.name());
+            return fallback;
+        }
+    }
+}
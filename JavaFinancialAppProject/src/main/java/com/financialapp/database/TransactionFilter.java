@@ -0,0 +1,280 @@
+package com.financialapp.database;
+
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.models.Category;
+import com.financialapp.models.Transaction;
+import com.financialapp.search.CommentIndex;
+import com.financialapp.util.Money;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What the transaction list shows: any combination of date range, category, category type,
+ * subcategory, wallet, currency, amount range and comment words. Unset criteria (null, or
+ * -1 for ids) do not restrict.
+ *
+ * The filter compiles to a parameterized WHERE clause. The SQL text depends only on which
+ * criteria are set, never on their values, and is built once per such shape, so repeating a
+ * filter with other values reuses H2's parsed statement and plan.
+ *
+ * Pages are read through an index already in (date DESC, id DESC) order, so H2 stops after
+ * the page instead of sorting every match (see
+ * {@link com.financialapp.database.migration.V4FilterIndexes}): the index of the most
+ * selective dimension that is set, else the date index. {@link #from()} names that index
+ * and {@link #orderBy()} spells the order the way the index sorts it.
+ */
+public class TransactionFilter {
+
+    private static final int START = 1;
+    private static final int END = 1 << 1;
+    private static final int CATEGORY = 1 << 2;
+    private static final int CATEGORY_TYPE = 1 << 3;
+    private static final int SUBCATEGORY = 1 << 4;
+    private static final int WALLET = 1 << 5;
+    private static final int CURRENCY = 1 << 6;
+    private static final int MIN_AMOUNT = 1 << 7;
+    private static final int MAX_AMOUNT = 1 << 8;
+    // The number of comment words goes above the criteria bits
+    private static final int WORDS_SHIFT = 16;
+
+    // Dimensions with a (dimension, date DESC, id DESC) index, most selective first
+    private static final int[] LEADS = {SUBCATEGORY, CATEGORY, WALLET, CURRENCY};
+    private static final String[] LEAD_COLUMNS = {"subcategory_id", "category_id", "wallet_id", "currency_id"};
+    private static final String[] LEAD_INDEXES = {
+            "idx_transactions_subcategory_date_desc", "idx_transactions_category_date_desc",
+            "idx_transactions_wallet_date_desc", "idx_transactions_currency_date_desc"};
+
+    // Prefix of the pattern for a comment word: it starts the comment or follows a character
+    // that is not a letter or digit, where CommentIndex#words splits words
+    private static final String WORD_START = "(^|[^\\p{L}\\p{Nd}])";
+
+    // Shape -> WHERE clause
+    private static final ConcurrentHashMap<Integer, String> SHAPES = new ConcurrentHashMap<>();
+
+    private LocalDate start;
+    private LocalDate end;
+    private long categoryId = -1;
+    private String categoryType;
+    private long subcategoryId = -1;
+    private long walletId = -1;
+    private long currencyId = -1;
+    private Long minAmountCents;
+    private Long maxAmountCents;
+    private String commentQuery;
+
+    public TransactionFilter() {
+    }
+
+    /**
+     * Date range and category only, the filter the list has always had.
+     */
+    public TransactionFilter(LocalDate start, LocalDate end, long categoryId) {
+        this.start = start;
+        this.end = end;
+        this.categoryId = categoryId;
+    }
+
+    /** Inclusive lower bound on the date, or null. */
+    public LocalDate getStart() { return start; }
+    public void setStart(LocalDate start) { this.start = start; }
+
+    /** Inclusive upper bound on the date, or null. */
+    public LocalDate getEnd() { return end; }
+    public void setEnd(LocalDate end) { this.end = end; }
+
+    public long getCategoryId() { return categoryId; }
+    public void setCategoryId(long categoryId) { this.categoryId = categoryId; }
+
+    /** "INCOME" or "EXPENSE", or null. */
+    public String getCategoryType() { return categoryType; }
+    public void setCategoryType(String categoryType) { this.categoryType = categoryType; }
+
+    public long getSubcategoryId() { return subcategoryId; }
+    public void setSubcategoryId(long subcategoryId) { this.subcategoryId = subcategoryId; }
+
+    public long getWalletId() { return walletId; }
+    public void setWalletId(long walletId) { this.walletId = walletId; }
+
+    public long getCurrencyId() { return currencyId; }
+    public void setCurrencyId(long currencyId) { this.currencyId = currencyId; }
+
+    /** Inclusive lower bound on the amount in cents, or null. */
+    public Long getMinAmountCents() { return minAmountCents; }
+    public void setMinAmountCents(Long minAmountCents) { this.minAmountCents = minAmountCents; }
+
+    /** Inclusive upper bound on the amount in cents, or null. */
+    public Long getMaxAmountCents() { return maxAmountCents; }
+    public void setMaxAmountCents(Long maxAmountCents) { this.maxAmountCents = maxAmountCents; }
+
+    /** Words the comment must contain (see {@link CommentIndex#words}), or null. */
+    public String getCommentQuery() { return commentQuery; }
+    public void setCommentQuery(String commentQuery) { this.commentQuery = commentQuery; }
+
+    public boolean hasCommentQuery() {
+        return !CommentIndex.words(commentQuery).isEmpty();
+    }
+
+    /**
+     * True if nothing but the date range, category and comment words are set, which the
+     * comment index evaluates on its own.
+     */
+    public boolean isDateCategoryAndCommentOnly() {
+        return (shape(false) & ~(START | END | CATEGORY)) == 0;
+    }
+
+    /**
+     * The WHERE clause ("WHERE 1=1 AND ..." with a trailing space) for this filter's shape.
+     *
+     * @param withComment include the comment word conditions; false when the
+     *                    comment index has already applied them
+     */
+    public String where(boolean withComment) {
+        return SHAPES.computeIfAbsent(shape(withComment), TransactionFilter::compile);
+    }
+
+    /**
+     * True if {@code tx} satisfies the filter, checked in memory the way {@link #where(boolean)}
+     * checks it in H2.
+     *
+     * @param withComment also check the comment words, as the comment conditions and the
+     *                    comment index do: each starts a word of the comment
+     */
+    public boolean matches(Transaction tx, boolean withComment) {
+        LocalDate date = tx.getDate();
+        if ((start != null && date.isBefore(start)) || (end != null && date.isAfter(end))) {
+            return false;
+        }
+        if ((categoryId != -1 && tx.getCategoryId() != categoryId)
+                || (subcategoryId != -1 && tx.getSubcategoryId() != subcategoryId)
+                || (walletId != -1 && tx.getWalletId() != walletId)
+                || (currencyId != -1 && tx.getCurrencyId() != currencyId)) {
+            return false;
+        }
+        if ((minAmountCents != null && tx.getAmountCents() < minAmountCents)
+                || (maxAmountCents != null && tx.getAmountCents() > maxAmountCents)) {
+            return false;
+        }
+        if (categoryType != null) {
+            Category category = DimensionCache.getCategory(tx.getCategoryId());
+            if (category == null || !categoryType.equals(category.getType())) {
+                return false;
+            }
+        }
+        return !withComment || CommentIndex.matches(commentQuery, tx.getComment());
+    }
+
+    /**
+     * "FROM transactions" with the index that reads this filter's matches in paging order.
+     */
+    public String from() {
+        int lead = lead();
+        return "FROM transactions USE INDEX ("
+                + (lead < 0 ? "idx_transactions_date_desc" : LEAD_INDEXES[lead]) + ") ";
+    }
+
+    /**
+     * The (date DESC, id DESC) paging order. With a dimension index, its column leads: it
+     * is fixed by the filter, so the order is the same, but H2 only reads an index in
+     * order when ORDER BY lists all of its leading columns.
+     */
+    public String orderBy() {
+        int lead = lead();
+        return "ORDER BY " + (lead < 0 ? "" : LEAD_COLUMNS[lead] + ", ") + "date DESC, id DESC ";
+    }
+
+    /**
+     * Binds the values for {@link #where(boolean)}, starting at parameter {@code index}.
+     * @return the next free parameter index
+     */
+    public int bind(PreparedStatement ps, int index, boolean withComment) throws SQLException {
+        if (start != null) {
+            ps.setDate(index++, Date.valueOf(start));
+        }
+        if (end != null) {
+            ps.setDate(index++, Date.valueOf(end));
+        }
+        if (categoryId != -1) {
+            ps.setLong(index++, categoryId);
+        }
+        if (categoryType != null) {
+            ps.setString(index++, categoryType);
+        }
+        if (subcategoryId != -1) {
+            ps.setLong(index++, subcategoryId);
+        }
+        if (walletId != -1) {
+            ps.setLong(index++, walletId);
+        }
+        if (currencyId != -1) {
+            ps.setLong(index++, currencyId);
+        }
+        if (minAmountCents != null) {
+            Money.bind(ps, index++, minAmountCents);
+        }
+        if (maxAmountCents != null) {
+            Money.bind(ps, index++, maxAmountCents);
+        }
+        if (withComment) {
+            for (String word : CommentIndex.words(commentQuery)) {
+                ps.setString(index++, "%" + word + "%");
+                ps.setString(index++, WORD_START + word);
+            }
+        }
+        return index;
+    }
+
+    private int lead() {
+        int shape = shape(false);
+        for (int i = 0; i < LEADS.length; i++) {
+            if ((shape & LEADS[i]) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int shape(boolean withComment) {
+        int shape = 0;
+        if (start != null) shape |= START;
+        if (end != null) shape |= END;
+        if (categoryId != -1) shape |= CATEGORY;
+        if (categoryType != null) shape |= CATEGORY_TYPE;
+        if (subcategoryId != -1) shape |= SUBCATEGORY;
+        if (walletId != -1) shape |= WALLET;
+        if (currencyId != -1) shape |= CURRENCY;
+        if (minAmountCents != null) shape |= MIN_AMOUNT;
+        if (maxAmountCents != null) shape |= MAX_AMOUNT;
+        if (withComment) {
+            shape |= CommentIndex.words(commentQuery).size() << WORDS_SHIFT;
+        }
+        return shape;
+    }
+
+    private static String compile(int shape) {
+        StringBuilder sb = new StringBuilder("WHERE 1=1 ");
+        if ((shape & START) != 0) sb.append("AND date >= ? ");
+        if ((shape & END) != 0) sb.append("AND date <= ? ");
+        if ((shape & CATEGORY) != 0) sb.append("AND category_id = ? ");
+        if ((shape & CATEGORY_TYPE) != 0) sb.append("AND category_id IN (SELECT id FROM categories WHERE type = ?) ");
+        if ((shape & SUBCATEGORY) != 0) sb.append("AND subcategory_id = ? ");
+        if ((shape & WALLET) != 0) sb.append("AND wallet_id = ? ");
+        if ((shape & CURRENCY) != 0) sb.append("AND currency_id = ? ");
+        if ((shape & MIN_AMOUNT) != 0) sb.append("AND amount >= ? ");
+        if ((shape & MAX_AMOUNT) != 0) sb.append("AND amount <= ? ");
+        // Words are letters and digits only, so nothing needs escaping. The LIKE is the
+        // cheap test; the regular expression then checks that the word starts a word.
+        for (int i = shape >>> WORDS_SHIFT; i > 0; i--) {
+            sb.append("AND LOWER(comment) LIKE ? AND REGEXP_LIKE(LOWER(comment), ?) ");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionFilter[" + where(true).substring("WHERE 1=1 ".length()).trim() + "]";
+    }
+}
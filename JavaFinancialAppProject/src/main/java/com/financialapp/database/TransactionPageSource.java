@@ -0,0 +1,239 @@
+package com.financialapp.database;
+
+import com.financialapp.analytics.Analytics;
+import com.financialapp.models.Transaction;
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the transactions matching a filter one page at a time, newest first.
+ *
+ * Pages are fetched with keyset pagination on (date, id): each page starts strictly
+ * after the last (date, id) of the previous one, so fetching page N costs the same
+ * as fetching page 1 instead of skipping N * pageSize rows with OFFSET.
+ */
+public class TransactionPageSource {
+
+    /**
+     * Position in the (date DESC, id DESC) ordering.
+     */
+    public static class Key implements Comparable<Key> {
+        private final LocalDate date;
+        private final long id;
+
+        public Key(LocalDate date, long id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        public static Key of(Transaction tx) {
+            return new Key(tx.getDate(), tx.getId());
+        }
+
+        public LocalDate getDate() { return date; }
+        public long getId() { return id; }
+
+        /**
+         * Orders keys as the list does: later dates first, then higher ids.
+         */
+        @Override
+        public int compareTo(Key other) {
+            int byDate = other.date.compareTo(date);
+            return byDate != 0 ? byDate : Long.compare(other.id, id);
+        }
+    }
+
+    static final String COLUMNS =
+            "id, date, category_id, subcategory_id, " + Money.cents("amount") + " AS amount_cents, " +
+            "currency_id, wallet_id, comment";
+
+    private final TransactionFilter filter;
+    private final String whereClause;
+
+    /**
+     * @param start      inclusive lower bound, or null
+     * @param end        inclusive upper bound, or null
+     * @param categoryId category to restrict to, or -1 for all categories
+     */
+    public TransactionPageSource(LocalDate start, LocalDate end, long categoryId) {
+        this(new TransactionFilter(start, end, categoryId));
+    }
+
+    /**
+     * The transactions matching {@code filter}, all in SQL. Comment words are conditions
+     * matching the start of a comment word, as the index does; {@link SearchPageSource}
+     * reads the comment index instead.
+     * The filter must not change afterwards.
+     */
+    public TransactionPageSource(TransactionFilter filter) {
+        this.filter = filter;
+        this.whereClause = filter.where(true);
+    }
+
+    public TransactionFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Number of transactions matching the filter, from the analytics engine when it is loaded.
+     */
+    public int count() throws SQLException {
+        int inMemory = Analytics.count(filter);
+        if (inMemory >= 0) {
+            return inMemory;
+        }
+        String sql = "SELECT COUNT(*) FROM transactions " + whereClause;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindWhere(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Fetches up to {@code limit} transactions that come after {@code after}
+     * in (date DESC, id DESC) order, or from the start when {@code after} is null.
+     */
+    public List<Transaction> fetchAfter(Key after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(' ')
+                .append(filter.from()).append(whereClause);
+        if (after != null) {
+            // "date <= ?" lets H2 seek the index; the OR resolves ties on the same date
+            sql.append("AND date <= ? AND (date < ? OR id < ?) ");
+        }
+        sql.append(filter.orderBy()).append("LIMIT ?");
+
+        List<Transaction> page = new ArrayList<>(limit);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int idx = bindWhere(ps);
+            if (after != null) {
+                Date d = Date.valueOf(after.getDate());
+                ps.setDate(idx++, d);
+                ps.setDate(idx++, d);
+                ps.setLong(idx++, after.getId());
+            }
+            ps.setInt(idx, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    page.add(readRow(rs));
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * The key to fetch the page after {@code page} from, where {@code page} was returned by
+     * {@code fetchAfter(after, ...)}; null if the page is empty.
+     */
+    public Key keyAfter(Key after, List<Transaction> page) throws SQLException {
+        return page.isEmpty() ? null : Key.of(page.get(page.size() - 1));
+    }
+
+    /**
+     * Maps a row selected with {@link #COLUMNS}.
+     */
+    static Transaction readRow(ResultSet rs) throws SQLException {
+        Transaction t = new Transaction();
+        t.setId(rs.getLong("id"));
+        t.setDate(rs.getDate("date").toLocalDate());
+        t.setCategoryId(rs.getLong("category_id"));
+        t.setSubcategoryId(rs.getLong("subcategory_id"));
+        t.setAmountCents(rs.getLong("amount_cents"));
+        t.setCurrencyId(rs.getLong("currency_id"));
+        t.setWalletId(rs.getLong("wallet_id"));
+        t.setComment(rs.getString("comment"));
+        return t;
+    }
+
+    /**
+     * Prepares a forward-only, read-only query over all matching transactions, for callers
+     * that stream the whole result (e.g. CSV export). The statement is bound and ready to
+     * execute; the caller closes it.
+     *
+     * Rows come in id order rather than the paging order: walking the primary key streams
+     * the table, while (date, id) order on a large ledger means a lookup or sort per row.
+     */
+    public PreparedStatement prepareScan(Connection conn, int fetchSize) throws SQLException {
+        String sql = "SELECT " + COLUMNS + " FROM transactions " + whereClause + "ORDER BY id";
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            ps.setFetchSize(fetchSize);
+            bindWhere(ps);
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+        return ps;
+    }
+
+    /**
+     * Key of the row at {@code offset} in (date DESC, id DESC) order.
+     * Used once per page when the user jumps past pages that were never loaded,
+     * so later pages can continue with keyset fetches. Only the (date, id)
+     * columns are read, which the index covers.
+     */
+    public Key keyAt(int offset) throws SQLException {
+        String sql = "SELECT date, id " + filter.from() + whereClause + filter.orderBy() + "LIMIT 1 OFFSET ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = bindWhere(ps);
+            ps.setInt(idx, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new Key(rs.getDate("date").toLocalDate(), rs.getLong("id"));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Number of matching transactions that come before {@code key} in (date DESC, id DESC) order.
+     */
+    public int indexOf(Key key) throws SQLException {
+        String sql = "SELECT COUNT(*) " + filter.from() + whereClause + "AND date >= ? AND (date > ? OR id > ?)";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = bindWhere(ps);
+            Date d = Date.valueOf(key.getDate());
+            ps.setDate(idx++, d);
+            ps.setDate(idx++, d);
+            ps.setLong(idx, key.getId());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * True if {@code tx} belongs to this list.
+     */
+    public boolean matches(Transaction tx) {
+        return filter.matches(tx, true);
+    }
+
+    /**
+     * Takes note of a committed change to a transaction (either row may be null). This source
+     * reads H2 on every fetch, so it sees the change anyway; sources holding a snapshot of
+     * the matches update it here.
+     */
+    public void changed(Transaction before, Transaction after) throws SQLException {
+    }
+
+    private int bindWhere(PreparedStatement ps) throws SQLException {
+        return filter.bind(ps, 1, true);
+    }
+}
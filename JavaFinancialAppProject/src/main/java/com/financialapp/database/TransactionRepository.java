@@ -0,0 +1,426 @@
+package com.financialapp.database;
+
+import com.financialapp.analytics.Analytics;
+import com.financialapp.events.TransactionChanged;
+import com.financialapp.models.Transaction;
+import com.financialapp.search.CommentSearch;
+import com.financialapp.storage.Storage;
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes to the transactions table. Each write also applies the matching delta to the
+ * monthly_totals rollup ({@link MonthlyTotals}) in the same JDBC transaction, so the
+ * dashboards never see a transaction without its total or vice versa; the same transaction
+ * advances {@link TransactionsVersion}. Once committed, the change is also reported to the
+ * in-memory {@link Analytics} engine, the comment search index ({@link CommentSearch}) and,
+ * in ledger storage mode, appended to the ledger file ({@link Storage}). Each write returns
+ * the stored rows before and after it; the services publish them as a
+ * {@link TransactionChanged} event.
+ *
+ * {@link #writeBatch} runs many writes in one JDBC transaction, for callers that collect
+ * them (see {@code WriteQueue}); the single-write methods are batches of one.
+ */
+public final class TransactionRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO transactions (date, category_id, subcategory_id, amount, currency_id, wallet_id, comment) " +
+            "VALUES (?,?,?,?,?,?,?)";
+    private static final String UPDATE_SQL =
+            "UPDATE transactions SET date=?, category_id=?, subcategory_id=?, amount=?, " +
+            "currency_id=?, wallet_id=?, comment=? WHERE id=?";
+    private static final String DELETE_SQL = "DELETE FROM transactions WHERE id=?";
+    // The columns the rollup, the analytics engine, the search index and the ledger keep,
+    // locking the row until commit
+    private static final String READ_SQL =
+            "SELECT date, category_id, COALESCE(subcategory_id, 0) AS subcategory_id, wallet_id, currency_id, " +
+            Money.cents("amount") + " AS amount_cents, comment " +
+            "FROM transactions WHERE id=? FOR UPDATE";
+
+    private TransactionRepository() {
+    }
+
+    /**
+     * Inserts {@code tx} (its id is ignored; a subcategory id <= 0 is stored as NULL).
+     * @return the change, whose id is the generated one
+     */
+    public static TransactionChanged insert(Transaction tx) throws SQLException {
+        return single(Write.insert(tx));
+    }
+
+    /**
+     * Overwrites all fields of the transaction with id {@code tx.getId()}.
+     * @return the change, or null if no such transaction exists
+     */
+    public static TransactionChanged update(Transaction tx) throws SQLException {
+        return single(Write.update(tx));
+    }
+
+    /**
+     * Deletes the transaction with the given id.
+     * @return the change, or null if no such transaction exists
+     */
+    public static TransactionChanged delete(long id) throws SQLException {
+        return single(Write.delete(id));
+    }
+
+    /**
+     * Runs {@code writes} in order in one JDBC transaction, with one rollup update and one
+     * commit for all of them. A write that fails is rolled back on its own (to a savepoint
+     * taken before it) and keeps its error; the others go ahead. Afterwards each write
+     * holds its change or its error.
+     *
+     * @param durable also force the commit to disk before returning (see {@link DatabaseConnection#sync})
+     * @throws SQLException if the transaction as a whole failed, and then none of the writes
+     *         holds a change; or if the committed writes could not be forced to disk, and then
+     *         they keep their changes
+     */
+    public static void writeBatch(List<Write> writes, boolean durable) throws SQLException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statements statements = new Statements(conn)) {
+            try {
+                inTransaction(conn, () -> {
+                    MonthlyTotals.Deltas deltas = new MonthlyTotals.Deltas();
+                    boolean changed = false;
+                    for (Write write : writes) {
+                        // A lone write needs no savepoint: rolling back the transaction undoes it
+                        Savepoint savepoint = writes.size() > 1 ? conn.setSavepoint() : null;
+                        try {
+                            write.run(statements);
+                        } catch (SQLException | RuntimeException e) {
+                            if (savepoint != null) {
+                                conn.rollback(savepoint);
+                            } else {
+                                conn.rollback();
+                            }
+                            write.fail(e);
+                            continue;
+                        }
+                        write.addDeltas(deltas);
+                        changed |= write.before != null || write.after != null;
+                    }
+                    if (!deltas.isEmpty()) {
+                        deltas.apply(conn);
+                    }
+                    if (changed) {
+                        TransactionsVersion.advance(conn);
+                    }
+                    return null;
+                });
+            } catch (SQLException | RuntimeException e) {
+                for (Write write : writes) {
+                    write.discard();
+                }
+                throw e;
+            }
+            boolean reported = false;
+            for (Write write : writes) {
+                reported |= write.report();
+            }
+            if (reported) {
+                Storage.flush();
+            }
+            if (durable) {
+                DatabaseConnection.sync(conn);
+            }
+        }
+    }
+
+    private static TransactionChanged single(Write write) throws SQLException {
+        writeBatch(List.of(write), false);
+        if (write.failure instanceof SQLException) {
+            throw (SQLException) write.failure;
+        }
+        if (write.failure != null) {
+            throw (RuntimeException) write.failure;
+        }
+        return write.getChange();
+    }
+
+    private static void bind(PreparedStatement ps, Transaction tx) throws SQLException {
+        ps.setDate(1, Date.valueOf(tx.getDate()));
+        ps.setLong(2, tx.getCategoryId());
+
+        // If no subcategory, set NULL
+        if (tx.getSubcategoryId() <= 0) {
+            ps.setNull(3, Types.BIGINT);
+        } else {
+            ps.setLong(3, tx.getSubcategoryId());
+        }
+
+        Money.bind(ps, 4, tx.getAmountCents());
+        ps.setLong(5, tx.getCurrencyId());
+        ps.setLong(6, tx.getWalletId());
+        ps.setString(7, tx.getComment());
+    }
+
+    /**
+     * One insert, update or delete, on its own or as part of a {@link #writeBatch batch}.
+     * After the batch it holds its change, or the error that failed it.
+     */
+    public static final class Write {
+        private enum Kind { INSERT, UPDATE, DELETE }
+
+        private final Kind kind;
+        private final Transaction tx;
+        private final long id;
+
+        private Stored before;
+        private Stored after;
+        private boolean done;
+        private Exception failure;
+
+        private Write(Kind kind, Transaction tx, long id) {
+            this.kind = kind;
+            this.tx = tx;
+            this.id = id;
+        }
+
+        /** @see TransactionRepository#insert */
+        public static Write insert(Transaction tx) {
+            return new Write(Kind.INSERT, tx, 0);
+        }
+
+        /** @see TransactionRepository#update */
+        public static Write update(Transaction tx) {
+            return new Write(Kind.UPDATE, tx, tx.getId());
+        }
+
+        /** @see TransactionRepository#delete */
+        public static Write delete(long id) {
+            return new Write(Kind.DELETE, null, id);
+        }
+
+        /**
+         * The stored change; null if the write failed, or if it was an update or delete
+         * and no such transaction exists.
+         */
+        public TransactionChanged getChange() {
+            if (!done || failure != null || (before == null && after == null)) {
+                return null;
+            }
+            return new TransactionChanged(before == null ? null : before.toTransaction(),
+                    after == null ? null : after.toTransaction());
+        }
+
+        /**
+         * The SQLException or RuntimeException that failed this write alone, or null.
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        private void run(Statements statements) throws SQLException {
+            switch (kind) {
+                case INSERT: {
+                    PreparedStatement ps = statements.insert();
+                    bind(ps, tx);
+                    ps.executeUpdate();
+                    long generated;
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        keys.next();
+                        generated = keys.getLong(1);
+                    }
+                    // Delta taken from the stored row, so it has exactly the stored precision
+                    after = statements.read(generated);
+                    break;
+                }
+                case UPDATE: {
+                    before = statements.read(id);
+                    if (before == null) {
+                        break;
+                    }
+                    PreparedStatement ps = statements.update();
+                    bind(ps, tx);
+                    ps.setLong(8, id);
+                    ps.executeUpdate();
+                    after = statements.read(id);
+                    break;
+                }
+                case DELETE: {
+                    before = statements.read(id);
+                    if (before == null) {
+                        break;
+                    }
+                    PreparedStatement ps = statements.delete();
+                    ps.setLong(1, id);
+                    ps.executeUpdate();
+                    break;
+                }
+            }
+            done = true;
+        }
+
+        private void fail(Exception e) {
+            before = null;
+            after = null;
+            failure = e;
+        }
+
+        private void addDeltas(MonthlyTotals.Deltas deltas) {
+            if (before != null) {
+                deltas.add(before.date, before.categoryId, before.walletId, before.currencyId, -before.amountCents, -1);
+            }
+            if (after != null) {
+                deltas.add(after.date, after.categoryId, after.walletId, after.currencyId, after.amountCents, 1);
+            }
+        }
+
+        /**
+         * Forgets what the write did in a transaction that was rolled back.
+         */
+        private void discard() {
+            before = null;
+            after = null;
+            done = false;
+        }
+
+        /**
+         * Reports the committed write to the in-memory mirrors, except the ledger flush.
+         * @return true if there was anything to report
+         */
+        private boolean report() {
+            if (failure != null) {
+                return false;
+            }
+            if (after != null) {
+                after.report(before == null ? null : before.comment);
+                return true;
+            }
+            if (before != null) {
+                Analytics.remove(id);
+                CommentSearch.remove(id, before.comment);
+                Storage.remove(id);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The statements of a batch, prepared on first use.
+     */
+    private static final class Statements implements AutoCloseable {
+        private final Connection conn;
+        private PreparedStatement insert;
+        private PreparedStatement update;
+        private PreparedStatement delete;
+        private PreparedStatement read;
+
+        Statements(Connection conn) {
+            this.conn = conn;
+        }
+
+        PreparedStatement insert() throws SQLException {
+            if (insert == null) {
+                insert = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            }
+            return insert;
+        }
+
+        PreparedStatement update() throws SQLException {
+            if (update == null) {
+                update = conn.prepareStatement(UPDATE_SQL);
+            }
+            return update;
+        }
+
+        PreparedStatement delete() throws SQLException {
+            if (delete == null) {
+                delete = conn.prepareStatement(DELETE_SQL);
+            }
+            return delete;
+        }
+
+        Stored read(long id) throws SQLException {
+            if (read == null) {
+                read = conn.prepareStatement(READ_SQL);
+            }
+            read.setLong(1, id);
+            try (ResultSet rs = read.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Stored(id, rs.getDate("date").toLocalDate(), rs.getLong("category_id"),
+                        rs.getLong("subcategory_id"), rs.getLong("wallet_id"), rs.getLong("currency_id"),
+                        rs.getLong("amount_cents"), rs.getString("comment"));
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement ps : new PreparedStatement[]{insert, update, delete, read}) {
+                if (ps != null) {
+                    ps.close();
+                }
+            }
+        }
+    }
+
+    private interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    private static <T> T inTransaction(Connection conn, Work<T> work) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run();
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static class Stored {
+        final long id;
+        final LocalDate date;
+        final long categoryId;
+        final long subcategoryId;
+        final long walletId;
+        final long currencyId;
+        final long amountCents;
+        final String comment;
+
+        Stored(long id, LocalDate date, long categoryId, long subcategoryId, long walletId, long currencyId,
+               long amountCents, String comment) {
+            this.id = id;
+            this.date = date;
+            this.categoryId = categoryId;
+            this.subcategoryId = subcategoryId;
+            this.walletId = walletId;
+            this.currencyId = currencyId;
+            this.amountCents = amountCents;
+            this.comment = comment;
+        }
+
+        Transaction toTransaction() {
+            return new Transaction(id, date, categoryId, subcategoryId, amountCents, currencyId, walletId, comment);
+        }
+
+        /**
+         * @param previousComment the comment before an update, null after an insert
+         */
+        void report(String previousComment) {
+            Analytics.upsert(id, date, categoryId, subcategoryId, walletId, currencyId, amountCents);
+            CommentSearch.upsert(id, date, categoryId, previousComment, comment);
+            Storage.upsert(id, date, categoryId, subcategoryId, walletId, currencyId, amountCents, comment);
+        }
+    }
+}
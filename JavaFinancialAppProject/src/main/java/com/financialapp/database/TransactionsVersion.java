@@ -0,0 +1,46 @@
+package com.financialapp.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The transactions_version counter (migration V5). Every write to the transactions table
+ * advances it in the same JDBC transaction, so a copy of the transactions kept outside H2
+ * (the ledger file, see {@link com.financialapp.storage.Storage}) can record the version it
+ * is in step with and tell at the next start whether H2 has moved on since.
+ */
+public final class TransactionsVersion {
+
+    private static final String ADVANCE_SQL = "UPDATE transactions_version SET version = version + 1 WHERE id = 1";
+    private static final String READ_SQL = "SELECT version FROM transactions_version WHERE id = 1";
+
+    private TransactionsVersion() {
+    }
+
+    /**
+     * Advances the counter on the caller's connection and transaction; the caller commits.
+     * Once per transaction is enough, however many rows it wrote.
+     */
+    public static void advance(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (stmt.executeUpdate(ADVANCE_SQL) != 1) {
+                throw new SQLException("transactions_version has no row; is the schema migrated?");
+            }
+        }
+    }
+
+    /**
+     * The committed version.
+     */
+    public static long read(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(READ_SQL)) {
+            if (!rs.next()) {
+                throw new SQLException("transactions_version has no row; is the schema migrated?");
+            }
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.financialapp.database.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Wraps a JDBC connection so every statement it creates reports to {@link QueryMetrics}.
+ *
+ * Statements are proxies that time each execute call and count the rows it touched:
+ * update counts for writes, and for queries the rows the caller actually fetches, counted
+ * by a result set proxy and added once the result set (or its statement) is closed.
+ * A prepared statement resolves its {@link StatementStats} once, when it is prepared, so
+ * executing it costs two clock reads and a few counter updates. While the
+ * {@link SlowQueryLog} is on, prepared statements also keep their bound parameters, so a
+ * slow execution can be logged and explained with them.
+ */
+final class InstrumentedConnection {
+
+    private InstrumentedConnection() {
+    }
+
+    static Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall": {
+                    Statement stmt = (Statement) InstrumentedConnection.invoke(conn, method, args);
+                    String sql = (String) args[0];
+                    return wrapStatement(stmt, method.getReturnType(), sql, QueryMetrics.statement(sql));
+                }
+                case "createStatement": {
+                    Statement stmt = (Statement) InstrumentedConnection.invoke(conn, method, args);
+                    return wrapStatement(stmt, Statement.class, null, null);
+                }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented[" + conn + "]";
+                default:
+                    return InstrumentedConnection.invoke(conn, method, args);
+            }
+        }
+
+        private static Object wrapStatement(Statement stmt, Class<?> type, String sql, StatementStats stats) {
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(stmt, sql, stats));
+        }
+    }
+
+    /**
+     * Times the execute methods. A prepared statement has fixed stats; a plain statement
+     * looks them up from the SQL passed to each execute call.
+     */
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement stmt;
+        private final String preparedSql;
+        private final StatementStats prepared;
+        private StatementStats current;
+        private String batchSql;
+        private int batchSize;
+        private ResultSetHandler openResult;
+        // Bound parameters by index, kept only while the slow query log is on
+        private Object[] params;
+        private int paramCount;
+
+        StatementHandler(Statement stmt, String preparedSql, StatementStats prepared) {
+            this.stmt = stmt;
+            this.preparedSql = preparedSql;
+            this.prepared = prepared;
+            this.current = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (prepared != null && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && name.startsWith("set") && SlowQueryLog.enabled()) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            }
+            switch (name) {
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return execute(name, method, args);
+                case "addBatch":
+                    if (args != null && args.length == 1 && batchSql == null) {
+                        batchSql = (String) args[0];
+                    }
+                    batchSize++;
+                    return InstrumentedConnection.invoke(stmt, method, args);
+                case "clearBatch":
+                    batchSql = null;
+                    batchSize = 0;
+                    return InstrumentedConnection.invoke(stmt, method, args);
+                case "clearParameters":
+                    params = null;
+                    paramCount = 0;
+                    return InstrumentedConnection.invoke(stmt, method, args);
+                case "getResultSet": {
+                    ResultSet rs = (ResultSet) InstrumentedConnection.invoke(stmt, method, args);
+                    return rs == null || current == null ? rs : wrapResult(rs);
+                }
+                case "close":
+                    flushResult();
+                    return InstrumentedConnection.invoke(stmt, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return InstrumentedConnection.invoke(stmt, method, args);
+            }
+        }
+
+        private Object execute(String name, Method method, Object[] args) throws Throwable {
+            boolean batch = name.equals("executeLargeBatch") || name.equals("executeBatch");
+            int rows = batch ? batchSize : 0;
+            String sql;
+            StatementStats stats;
+            if (prepared != null) {
+                sql = preparedSql;
+                stats = prepared;
+            } else {
+                sql = batch ? (batchSql != null ? batchSql : "<empty batch>") : (String) args[0];
+                stats = QueryMetrics.statement(sql);
+            }
+            if (batch) {
+                batchSql = null;
+                batchSize = 0;
+            }
+            current = stats;
+            flushResult();
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = InstrumentedConnection.invoke(stmt, method, args);
+            } catch (Throwable e) {
+                long elapsed = System.nanoTime() - start;
+                stats.failed(elapsed);
+                if (SlowQueryLog.isSlow(elapsed)) {
+                    SlowQueryLog.record(stats, sql, boundParams(), elapsed, e, rows);
+                }
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            stats.executed(elapsed);
+            if (SlowQueryLog.isSlow(elapsed)) {
+                SlowQueryLog.record(stats, sql, boundParams(), elapsed, null, rows);
+            }
+
+            if (result instanceof ResultSet) {
+                return wrapResult((ResultSet) result);
+            } else if (result instanceof Integer) {
+                stats.addRows((Integer) result);
+            } else if (result instanceof Long) {
+                stats.addRows((Long) result);
+            } else if (result instanceof int[]) {
+                for (int n : (int[]) result) {
+                    stats.addRows(n);
+                }
+            } else if (result instanceof long[]) {
+                for (long n : (long[]) result) {
+                    stats.addRows(n);
+                }
+            }
+            return result;
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1 || index > 10_000) {
+                return;
+            }
+            if (params == null || index >= params.length) {
+                Object[] grown = new Object[Math.max(index + 1, params == null ? 8 : params.length * 2)];
+                if (params != null) {
+                    System.arraycopy(params, 0, grown, 0, params.length);
+                }
+                params = grown;
+            }
+            params[index] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private Object[] boundParams() {
+            return params == null ? null : Arrays.copyOf(params, paramCount + 1);
+        }
+
+        private ResultSet wrapResult(ResultSet rs) {
+            openResult = new ResultSetHandler(rs, current);
+            return (ResultSet) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, openResult);
+        }
+
+        /**
+         * A new execution or close() closes the previous result set without going through its proxy.
+         */
+        private void flushResult() {
+            if (openResult != null) {
+                openResult.flush();
+                openResult = null;
+            }
+        }
+    }
+
+    /**
+     * Counts the rows fetched with next().
+     */
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet rs;
+        private final StatementStats stats;
+        private long rows;
+
+        ResultSetHandler(ResultSet rs, StatementStats stats) {
+            this.rs = rs;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("next".equals(name)) { // the per-row call, so checked first
+                boolean more = rs.next();
+                if (more) {
+                    rows++;
+                }
+                return more;
+            }
+            switch (name) {
+                case "close":
+                    flush();
+                    return InstrumentedConnection.invoke(rs, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return InstrumentedConnection.invoke(rs, method, args);
+            }
+        }
+
+        void flush() {
+            stats.addRows(rows);
+            rows = 0;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.financialapp.database.metrics;
+
+import com.financialapp.database.ConnectionPool;
+import com.financialapp.database.DatabaseConnection;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on query metrics for the connections {@link DatabaseConnection#getConnection()} hands out.
+ *
+ * Each statement is attributed to its shape, the SQL with string and number literals
+ * replaced by '?' and whitespace collapsed, so a prepared statement and the same query
+ * built with literals share one entry. Per shape it keeps a latency histogram, the rows
+ * read or changed and the number of failures; alongside, the time taken to get a
+ * connection from the pool and the failures to get one.
+ *
+ * The figures are published as the MXBean {@value #OBJECT_NAME} and written to the log
+ * every {@code financialapp.metrics.logIntervalSeconds} (default 300, 0 = never) when
+ * something ran since the last dump, and once more on shutdown.
+ * Statements over a threshold also go to the {@link SlowQueryLog}.
+ * {@code -Dfinancialapp.metrics=false} hands out the pool's connections unwrapped, which
+ * turns off the slow query log too.
+ */
+public final class QueryMetrics {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("financialapp.metrics", "true"));
+
+    public static final String OBJECT_NAME = "com.financialapp:type=QueryMetrics";
+
+    // Beyond this many shapes (e.g. SQL built with unusual literals) new ones share one entry
+    private static final int MAX_SHAPES = 1000;
+    private static final String OVERFLOW_SHAPE = "<other statements>";
+    private static final int DUMP_TOP = 15;
+
+    // Raw SQL -> stats, so the common case (the same SQL text again) skips normalization
+    private static final ConcurrentHashMap<String, StatementStats> BY_SQL = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, StatementStats> BY_SHAPE = new ConcurrentHashMap<>();
+
+    private static final LatencyHistogram CONNECTION_ACQUIRE = new LatencyHistogram();
+    private static final LongAdder CONNECTION_ERRORS = new LongAdder();
+
+    private static ScheduledExecutorService dumper;
+    private static long executionsAtLastDump;
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Wraps a connection from the pool so its statements are measured; returns it as is
+     * when metrics are disabled.
+     */
+    public static Connection wrap(Connection conn) {
+        return ENABLED ? InstrumentedConnection.wrap(conn) : conn;
+    }
+
+    public static void connectionAcquired(long nanos) {
+        CONNECTION_ACQUIRE.record(nanos);
+    }
+
+    public static void connectionFailed() {
+        CONNECTION_ERRORS.increment();
+    }
+
+    static StatementStats statement(String sql) {
+        if (sql == null) {
+            sql = "<null>";
+        }
+        StatementStats stats = BY_SQL.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String shape = shapeOf(sql);
+        stats = BY_SHAPE.get(shape);
+        if (stats == null) {
+            String key = BY_SHAPE.size() < MAX_SHAPES ? shape : OVERFLOW_SHAPE;
+            stats = BY_SHAPE.computeIfAbsent(key, StatementStats::new);
+        }
+        if (BY_SQL.size() < MAX_SHAPES * 4) {
+            BY_SQL.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Replaces string literals and numbers outside identifiers with '?' and collapses whitespace.
+     */
+    static String shapeOf(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < n) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+            } else if (Character.isDigit(c) && (out.length() == 0 || !isIdentifierChar(out.charAt(out.length() - 1)))) {
+                while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (out.length() > 0 && i < n) {
+                    out.append(' ');
+                }
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '"';
+    }
+
+    /**
+     * Every statement shape, the most total time first.
+     */
+    public static List<StatementSnapshot> snapshot() {
+        List<StatementSnapshot> list = new ArrayList<>();
+        for (StatementStats stats : BY_SHAPE.values()) {
+            if (stats.getLatency().getCount() > 0) {
+                list.add(stats.snapshot());
+            }
+        }
+        list.sort(Comparator.comparingDouble(StatementSnapshot::getTotalMillis).reversed());
+        return list;
+    }
+
+    public static long getExecutions() {
+        long total = 0;
+        for (StatementStats stats : BY_SHAPE.values()) {
+            total += stats.getLatency().getCount();
+        }
+        return total;
+    }
+
+    public static long getErrors() {
+        long total = 0;
+        for (StatementStats stats : BY_SHAPE.values()) {
+            total += stats.getErrors();
+        }
+        return total;
+    }
+
+    public static LatencyHistogram getConnectionAcquire() {
+        return CONNECTION_ACQUIRE;
+    }
+
+    public static long getConnectionErrors() {
+        return CONNECTION_ERRORS.sum();
+    }
+
+    /**
+     * A text report: connection acquisition, then the {@code top} statements by total time.
+     */
+    public static String dump(int top) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Query metrics: %d connection(s) acquired, mean %.3f ms, p99 %.3f ms, max %.3f ms, "
+                        + "%d failed; %d statement(s) executed, %d failed, %d slow%n",
+                CONNECTION_ACQUIRE.getCount(), CONNECTION_ACQUIRE.getMeanMillis(),
+                CONNECTION_ACQUIRE.getPercentileMillis(0.99), CONNECTION_ACQUIRE.getMaxNanos() / 1_000_000.0,
+                getConnectionErrors(), getExecutions(), getErrors(), SlowQueryLog.getLogged()));
+        sb.append(String.format("  %8s %6s %10s %10s %9s %9s %9s  %s%n",
+                "count", "errors", "rows", "total ms", "mean ms", "p99 ms", "max ms", "statement"));
+        List<StatementSnapshot> list = snapshot();
+        for (StatementSnapshot s : list.subList(0, Math.min(top, list.size()))) {
+            sb.append(String.format("  %8d %6d %10d %10.1f %9.3f %9.3f %9.3f  %s%n",
+                    s.getExecutions(), s.getErrors(), s.getRows(), s.getTotalMillis(), s.getMeanMillis(),
+                    s.getP99Millis(), s.getMaxMillis(), abbreviate(s.getSql(), 160)));
+        }
+        if (list.size() > top) {
+            sb.append("  ... ").append(list.size() - top).append(" more statement shape(s)").append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    private static String abbreviate(String sql, int max) {
+        return sql.length() <= max ? sql : sql.substring(0, max - 3) + "...";
+    }
+
+    public static void reset() {
+        for (StatementStats stats : BY_SHAPE.values()) {
+            stats.reset();
+        }
+        CONNECTION_ACQUIRE.reset();
+        CONNECTION_ERRORS.reset();
+        synchronized (QueryMetrics.class) {
+            executionsAtLastDump = 0;
+        }
+    }
+
+    /**
+     * Registers the MXBean and starts the periodic log dump. Called at application start.
+     */
+    public static synchronized void start() {
+        if (!ENABLED || dumper != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        long interval = Long.getLong("financialapp.metrics.logIntervalSeconds", 300L);
+        if (interval > 0) {
+            dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "query-metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            dumper.scheduleAtFixedRate(QueryMetrics::dumpIfChanged, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic dump and writes a final one, and closes the slow query log.
+     * Called when the application stops.
+     */
+    public static synchronized void stop() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        SlowQueryLog.close();
+        if (ENABLED && getExecutions() > 0) {
+            System.out.print(dump(DUMP_TOP));
+        }
+    }
+
+    private static void dumpIfChanged() {
+        long executions = getExecutions();
+        synchronized (QueryMetrics.class) {
+            if (executions == executionsAtLastDump) {
+                return;
+            }
+            executionsAtLastDump = executions;
+        }
+        System.out.print(dump(DUMP_TOP));
+    }
+
+    private static class Bean implements QueryMetricsMXBean {
+        @Override public long getConnectionAcquisitions() { return CONNECTION_ACQUIRE.getCount(); }
+        @Override public long getConnectionErrors() { return QueryMetrics.getConnectionErrors(); }
+        @Override public double getConnectionAcquireMeanMillis() { return CONNECTION_ACQUIRE.getMeanMillis(); }
+        @Override public double getConnectionAcquireP99Millis() { return CONNECTION_ACQUIRE.getPercentileMillis(0.99); }
+        @Override public double getConnectionAcquireMaxMillis() { return CONNECTION_ACQUIRE.getMaxNanos() / 1_000_000.0; }
+        @Override public long getExecutions() { return QueryMetrics.getExecutions(); }
+        @Override public long getErrors() { return QueryMetrics.getErrors(); }
+        @Override public int getStatementShapes() { return BY_SHAPE.size(); }
+        @Override public long getSlowQueryThresholdMillis() { return SlowQueryLog.getThresholdMillis(); }
+        @Override public void setSlowQueryThresholdMillis(long millis) { SlowQueryLog.setThresholdMillis(millis); }
+        @Override public long getSlowQueries() { return SlowQueryLog.getLogged(); }
+        @Override public List<StatementSnapshot> getStatements() { return snapshot(); }
+        @Override public String dump(int top) { return QueryMetrics.dump(top); }
+        @Override public void reset() { QueryMetrics.reset(); }
+
+        @Override
+        public String getPoolStatus() {
+            ConnectionPool pool = DatabaseConnection.getPool();
+            return pool.toString();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.financialapp.database.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link QueryMetrics}, registered as {@value QueryMetrics#OBJECT_NAME}
+ * (open it with JConsole or VisualVM). Times are in milliseconds.
+ */
+public interface QueryMetricsMXBean {
+
+    long getConnectionAcquisitions();
+
+    long getConnectionErrors();
+
+    double getConnectionAcquireMeanMillis();
+
+    double getConnectionAcquireP99Millis();
+
+    double getConnectionAcquireMaxMillis();
+
+    /** The pool's own counters: size, active, idle, waits, timeouts. */
+    String getPoolStatus();
+
+    long getExecutions();
+
+    long getErrors();
+
+    int getStatementShapes();
+
+    /** Statements at or over this time go to the slow query log; 0 turns it off. */
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+
+    long getSlowQueries();
+
+    /** Per statement shape, the most total time first. */
+    List<StatementSnapshot> getStatements();
+
+    /** The report written to the log, for the given number of statements. */
+    String dump(int top);
+
+    void reset();
+}
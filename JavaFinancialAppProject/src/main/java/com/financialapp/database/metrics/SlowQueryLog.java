@@ -0,0 +1,310 @@
+package com.financialapp.database.metrics;
+
+import com.financialapp.database.DatabaseConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Writes statements slower than a threshold to a rotating log file, with their bound
+ * parameters, elapsed time and H2's plan.
+ *
+ * <ul>
+ *   <li>{@code financialapp.slowQuery.thresholdMillis} (default 250, 0 = off; also settable
+ *       over JMX as {@link QueryMetricsMXBean#setSlowQueryThresholdMillis}).</li>
+ *   <li>{@code financialapp.slowQuery.file} (default ./logs/slow-queries.%g.log), rotated
+ *       every {@code financialapp.slowQuery.fileLimitBytes} (default 1 MB) over
+ *       {@code financialapp.slowQuery.fileCount} files (default 5).</li>
+ * </ul>
+ * The plan is taken on a background thread with a connection straight from the pool, so the
+ * slow caller is not delayed further and the plan query is not itself measured. Queries get
+ * {@code EXPLAIN ANALYZE}, which runs them again and reports the rows each table scan read;
+ * writes get a plain {@code EXPLAIN}, since analyzing them would apply them twice. A shape is
+ * explained at most once a minute, and only a few plans wait at a time; beyond that the
+ * entry is written without one.
+ */
+final class SlowQueryLog {
+
+    private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static volatile long thresholdNanos =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("financialapp.slowQuery.thresholdMillis", 250L));
+
+    private static final LongAdder LOGGED = new LongAdder();
+    // Shape -> System.nanoTime() of its last plan
+    private static final Map<String, Long> LAST_EXPLAINED = new ConcurrentHashMap<>();
+
+    private static final ThreadPoolExecutor EXPLAINER = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(8), r -> {
+                Thread t = new Thread(r, "slow-query-explain");
+                t.setDaemon(true);
+                return t;
+            });
+
+    static {
+        EXPLAINER.allowCoreThreadTimeOut(true);
+    }
+
+    private static FileHandler file;
+    private static boolean fileFailed;
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * True when parameters need to be captured, i.e. the log is on.
+     */
+    static boolean enabled() {
+        return thresholdNanos > 0;
+    }
+
+    static boolean isSlow(long nanos) {
+        long threshold = thresholdNanos;
+        return threshold > 0 && nanos >= threshold;
+    }
+
+    static long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    static void setThresholdMillis(long millis) {
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    static long getLogged() {
+        return LOGGED.sum();
+    }
+
+    /**
+     * Logs one slow execution.
+     *
+     * @param params a copy of the bound parameters by index (element 0 unused), or null for a plain statement
+     * @param batch  the number of rows of a batch execution, 0 otherwise
+     */
+    static void record(StatementStats stats, String sql, Object[] params, long nanos, Throwable error, int batch) {
+        LOGGED.increment();
+        Entry entry = new Entry(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS), sql, params, nanos, error, batch);
+        String explain = batch == 0 && error == null ? explainPrefix(sql) : null;
+        if (explain != null && replayable(entry.params) && claimExplain(stats.getShape())) {
+            try {
+                EXPLAINER.execute(() -> {
+                    entry.plan(explain, plan(explain + sql, entry.params));
+                    write(entry);
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // too many plans pending; log without one
+            }
+        }
+        write(entry);
+    }
+
+    private static String explainPrefix(String sql) {
+        String head = sql.stripLeading();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        switch (head.substring(0, end).toUpperCase(Locale.ROOT)) {
+            case "SELECT":
+            case "WITH":
+            case "TABLE":
+            case "VALUES":
+                return "EXPLAIN ANALYZE ";
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "MERGE":
+                return "EXPLAIN ";
+            default:
+                return null;
+        }
+    }
+
+    private static boolean replayable(Object[] params) {
+        if (params != null) {
+            for (Object p : params) {
+                if (p instanceof InputStream || p instanceof Reader || p instanceof Blob || p instanceof Clob) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean claimExplain(String shape) {
+        long now = System.nanoTime();
+        Long last = LAST_EXPLAINED.get(shape);
+        if (last != null && now - last < EXPLAIN_INTERVAL_NANOS) {
+            return false;
+        }
+        if (LAST_EXPLAINED.size() > 1000) {
+            LAST_EXPLAINED.clear();
+        }
+        return last == null ? LAST_EXPLAINED.putIfAbsent(shape, now) == null
+                : LAST_EXPLAINED.replace(shape, last, now);
+    }
+
+    private static String plan(String sql, Object[] params) {
+        try (Connection conn = DatabaseConnection.getPool().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (params != null) {
+                for (int i = 1; i < params.length; i++) {
+                    ps.setObject(i, params[i]);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            return "unavailable: " + e.getMessage();
+        }
+    }
+
+    private static synchronized void write(Entry entry) {
+        if (fileFailed) {
+            return;
+        }
+        try {
+            if (file == null) {
+                Path pattern = Paths.get(System.getProperty("financialapp.slowQuery.file", "./logs/slow-queries.%g.log"));
+                if (pattern.getParent() != null) {
+                    Files.createDirectories(pattern.getParent());
+                }
+                file = new FileHandler(pattern.toString(),
+                        Integer.getInteger("financialapp.slowQuery.fileLimitBytes", 1 << 20),
+                        Integer.getInteger("financialapp.slowQuery.fileCount", 5), true);
+                file.setFormatter(new Formatter() {
+                    @Override
+                    public String format(LogRecord record) {
+                        return record.getMessage();
+                    }
+                });
+            }
+            file.publish(new LogRecord(Level.WARNING, entry.toString()));
+            file.flush();
+        } catch (IOException e) {
+            // Don't retry on every slow statement
+            fileFailed = true;
+            System.out.println("Slow query log unavailable");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits for pending plans and closes the file. Called when the application stops.
+     */
+    static void close() {
+        EXPLAINER.shutdown();
+        try {
+            EXPLAINER.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (SlowQueryLog.class) {
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+        }
+    }
+
+    private static class Entry {
+        final LocalDateTime time;
+        final String sql;
+        final Object[] params;
+        final long nanos;
+        final Throwable error;
+        final int batch;
+        String explain;
+        String plan;
+
+        Entry(LocalDateTime time, String sql, Object[] params, long nanos, Throwable error, int batch) {
+            this.time = time;
+            this.sql = sql;
+            this.params = params;
+            this.nanos = nanos;
+            this.error = error;
+            this.batch = batch;
+        }
+
+        void plan(String explain, String plan) {
+            this.explain = explain.trim();
+            this.plan = plan;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(time).append(String.format(" slow statement: %.1f ms (threshold %d ms)",
+                    nanos / 1_000_000.0, getThresholdMillis()));
+            if (batch > 0) {
+                sb.append(", batch of ").append(batch);
+            }
+            if (error != null) {
+                sb.append(", failed: ").append(error.getMessage());
+            }
+            sb.append('\n');
+            sb.append("  ").append(sql.strip().replace("\n", "\n  ")).append('\n');
+            if (params != null && params.length > 1) {
+                sb.append("  parameters:");
+                for (int i = 1; i < params.length; i++) {
+                    sb.append(i == 1 ? " " : ", ").append('[').append(i).append("] ").append(describe(params[i]));
+                }
+                if (batch > 0) {
+                    sb.append(" (last row)");
+                }
+                sb.append('\n');
+            }
+            if (plan != null) {
+                sb.append("  plan (").append(explain).append("):\n");
+                for (String line : plan.split("\n")) {
+                    sb.append("    ").append(line).append('\n');
+                }
+            }
+            return sb.append('\n').toString();
+        }
+
+        private static String describe(Object value) {
+            if (value == null) {
+                return "NULL";
+            }
+            if (value instanceof String) {
+                String s = (String) value;
+                return "'" + (s.length() > 200 ? s.substring(0, 200) + "..." : s) + "'";
+            }
+            if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob) {
+                return "<" + value.getClass().getSimpleName() + ">";
+            }
+            return value.toString();
+        }
+    }
+}
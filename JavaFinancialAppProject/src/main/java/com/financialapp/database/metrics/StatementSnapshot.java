@@ -0,0 +1,49 @@
+package com.financialapp.database.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Point-in-time figures for one statement shape, as published over JMX.
+ */
+public class StatementSnapshot {
+
+    private final String sql;
+    private final long executions;
+    private final long errors;
+    private final long rows;
+    private final double totalMillis;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    @ConstructorParameters({"sql", "executions", "errors", "rows", "totalMillis", "meanMillis", "p50Millis",
+            "p95Millis", "p99Millis", "maxMillis"})
+    public StatementSnapshot(String sql, long executions, long errors, long rows, double totalMillis,
+                             double meanMillis, double p50Millis, double p95Millis, double p99Millis,
+                             double maxMillis) {
+        this.sql = sql;
+        this.executions = executions;
+        this.errors = errors;
+        this.rows = rows;
+        this.totalMillis = totalMillis;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    public String getSql() { return sql; }
+    public long getExecutions() { return executions; }
+    public long getErrors() { return errors; }
+    /** Rows read by queries (counted as they are fetched) or changed by updates. */
+    public long getRows() { return rows; }
+    public double getTotalMillis() { return totalMillis; }
+    public double getMeanMillis() { return meanMillis; }
+    public double getP50Millis() { return p50Millis; }
+    public double getP95Millis() { return p95Millis; }
+    public double getP99Millis() { return p99Millis; }
+    public double getMaxMillis() { return maxMillis; }
+}
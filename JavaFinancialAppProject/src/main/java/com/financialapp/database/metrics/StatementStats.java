@@ -0,0 +1,51 @@
+package com.financialapp.database.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one statement shape: the SQL with its literals replaced by '?'.
+ */
+public class StatementStats {
+
+    private final String shape;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    StatementStats(String shape) {
+        this.shape = shape;
+    }
+
+    public String getShape() { return shape; }
+    public LatencyHistogram getLatency() { return latency; }
+    public long getRows() { return rows.sum(); }
+    public long getErrors() { return errors.sum(); }
+
+    void executed(long nanos) {
+        latency.record(nanos);
+    }
+
+    void failed(long nanos) {
+        latency.record(nanos);
+        errors.increment();
+    }
+
+    void addRows(long count) {
+        if (count > 0) {
+            rows.add(count);
+        }
+    }
+
+    void reset() {
+        latency.reset();
+        rows.reset();
+        errors.reset();
+    }
+
+    StatementSnapshot snapshot() {
+        return new StatementSnapshot(shape, latency.getCount(), errors.sum(), rows.sum(),
+                latency.getTotalNanos() / 1_000_000.0, latency.getMeanMillis(),
+                latency.getPercentileMillis(0.50), latency.getPercentileMillis(0.95),
+                latency.getPercentileMillis(0.99), latency.getMaxNanos() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,62 @@
+package com.financialapp.database.migration;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * One versioned step of the schema history.
+ *
+ * A migration is applied at most once per database and recorded in schema_version
+ * together with a checksum of its statements. Once released, a migration must not be
+ * edited: changing its statements changes the checksum and startup refuses to continue.
+ * Ship a new migration with the next version number instead.
+ */
+public abstract class Migration {
+
+    /**
+     * Position in the schema history; versions are applied in ascending order.
+     */
+    public abstract int getVersion();
+
+    public abstract String getDescription();
+
+    /**
+     * SQL statements run in order, in one JDBC transaction.
+     */
+    protected abstract List<String> getStatements();
+
+    /**
+     * Applies the migration. Override for steps that need more than plain statements;
+     * such overrides should still describe their SQL in {@link #getStatements()} so the
+     * checksum covers it.
+     */
+    public void migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : getStatements()) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * CRC32 over the version and statements.
+     */
+    public long getChecksum() {
+        CRC32 crc = new CRC32();
+        crc.update(Integer.toString(getVersion()).getBytes(StandardCharsets.UTF_8));
+        for (String sql : getStatements()) {
+            crc.update('\n');
+            crc.update(sql.getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return "V" + getVersion() + " (" + getDescription() + ")";
+    }
+}
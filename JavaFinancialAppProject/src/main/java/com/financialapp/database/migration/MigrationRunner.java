@@ -0,0 +1,143 @@
+package com.financialapp.database.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings a database up to the latest schema version.
+ *
+ * Applied versions are recorded in the schema_version table. On every run the recorded
+ * checksums are compared with the migrations shipped in this build, then only the
+ * pending migrations are applied, each in its own transaction. A database that is
+ * already current costs one small SELECT.
+ *
+ * Note that H2 commits DDL statements implicitly, so a migration that fails halfway
+ * through its DDL cannot be rolled back completely; the version row is only written
+ * when all statements succeeded, and migrations use IF NOT EXISTS so a retry is safe.
+ */
+public class MigrationRunner {
+
+    /**
+     * Every migration this build knows about. Append new ones; never edit or remove released ones.
+     */
+    public static List<Migration> allMigrations() {
+        List<Migration> migrations = new ArrayList<>(List.of(
+                new V1InitialSchema(),
+                new V2DateIndexes(),
+                new V3MonthlyTotals(),
+                new V4FilterIndexes(),
+                new V5TransactionsVersion()
+        ));
+        migrations.sort(Comparator.comparingInt(Migration::getVersion));
+        return migrations;
+    }
+
+    private final List<Migration> migrations;
+
+    public MigrationRunner() {
+        this(allMigrations());
+    }
+
+    public MigrationRunner(List<Migration> migrations) {
+        this.migrations = migrations;
+    }
+
+    /**
+     * Verifies the recorded history and applies pending migrations.
+     *
+     * @return the number of migrations applied
+     * @throws SQLException if a recorded checksum does not match this build, or a migration fails
+     */
+    public int migrate(Connection conn) throws SQLException {
+        createVersionTable(conn);
+        Map<Integer, Long> applied = readAppliedChecksums(conn);
+        verify(applied);
+
+        int count = 0;
+        for (Migration migration : migrations) {
+            if (!applied.containsKey(migration.getVersion())) {
+                apply(conn, migration);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                         " version INT PRIMARY KEY," +
+                         " description VARCHAR(255) NOT NULL," +
+                         " checksum BIGINT NOT NULL," +
+                         " installed_on TIMESTAMP NOT NULL," +
+                         " execution_ms BIGINT NOT NULL" +
+                         ")");
+        }
+    }
+
+    private Map<Integer, Long> readAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private void verify(Map<Integer, Long> applied) throws SQLException {
+        Map<Integer, Migration> known = new HashMap<>();
+        for (Migration m : migrations) {
+            known.put(m.getVersion(), m);
+        }
+        for (Map.Entry<Integer, Long> entry : applied.entrySet()) {
+            Migration m = known.get(entry.getKey());
+            if (m == null) {
+                throw new SQLException("Database has schema version " + entry.getKey()
+                        + ", which this build does not know. Was it opened by a newer version of the app?");
+            }
+            if (m.getChecksum() != entry.getValue()) {
+                throw new SQLException("Checksum mismatch for migration " + m
+                        + ": it was changed after being applied to this database");
+            }
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try {
+            migration.migrate(conn);
+
+            String sql = "INSERT INTO schema_version (version, description, checksum, installed_on, execution_ms) " +
+                         "VALUES (?,?,?,?,?)";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, migration.getVersion());
+                ps.setString(2, migration.getDescription());
+                ps.setLong(3, migration.getChecksum());
+                ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                ps.setLong(5, (System.nanoTime() - start) / 1_000_000);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            System.out.println("Applied migration " + migration
+                    + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.financialapp.database.migration;
+
+import java.util.List;
+
+/**
+ * The tables the application has always created at startup.
+ * Written with IF NOT EXISTS, so databases created before migrations existed
+ * adopt this version without changes.
+ */
+public class V1InitialSchema extends Migration {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Initial schema";
+    }
+
+    @Override
+    protected List<String> getStatements() {
+        return List.of(
+            // Categories table
+            "CREATE TABLE IF NOT EXISTS categories (" +
+            " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+            " name VARCHAR(255) NOT NULL," +
+            " type VARCHAR(50) NOT NULL" + // "INCOME" or "EXPENSE"
+            ")",
+
+            // Subcategories table
+            "CREATE TABLE IF NOT EXISTS subcategories (" +
+            " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+            " category_id BIGINT NOT NULL," +
+            " name VARCHAR(255) NOT NULL," +
+            " FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE CASCADE" +
+            ")",
+
+            // Currencies table
+            "CREATE TABLE IF NOT EXISTS currencies (" +
+            " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+            " code VARCHAR(10) NOT NULL," +
+            " name VARCHAR(100) NOT NULL" +
+            ")",
+
+            // Wallets table
+            "CREATE TABLE IF NOT EXISTS wallets (" +
+            " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+            " name VARCHAR(255) NOT NULL" +
+            ")",
+
+            // Transactions table (subcategory_id is nullable!)
+            "CREATE TABLE IF NOT EXISTS transactions (" +
+            " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+            " date DATE NOT NULL," +
+            " category_id BIGINT NOT NULL," +
+            " subcategory_id BIGINT NULL," +  // ALLOWS NULL
+            " amount DECIMAL(15,2) NOT NULL," +
+            " currency_id BIGINT NOT NULL," +
+            " wallet_id BIGINT NOT NULL," +
+            " comment VARCHAR(255)," +
+            " FOREIGN KEY (category_id) REFERENCES categories(id)," +
+            " FOREIGN KEY (subcategory_id) REFERENCES subcategories(id)," +
+            " FOREIGN KEY (currency_id) REFERENCES currencies(id)," +
+            " FOREIGN KEY (wallet_id) REFERENCES wallets(id)" +
+            ")",
+
+            // Plans table
+            "CREATE TABLE IF NOT EXISTS plans (" +
+            " id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+            " category_id BIGINT NOT NULL," +
+            " plan_amount DECIMAL(15,2) NOT NULL," +
+            " plan_month INT NOT NULL," +  // 1..12
+            " plan_year INT NOT NULL," +
+            " FOREIGN KEY (category_id) REFERENCES categories(id)" +
+            ")"
+        );
+    }
+}
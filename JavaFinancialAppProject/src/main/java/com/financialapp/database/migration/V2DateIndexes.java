@@ -0,0 +1,32 @@
+package com.financialapp.database.migration;
+
+import java.util.List;
+
+/**
+ * Secondary indexes for the date-range filters.
+ * Month filters are half-open date ranges, so they can seek these instead of scanning
+ * transactions; the date index also serves the (date, id) keyset paging of the
+ * transaction list, since H2 appends the primary key to index entries.
+ */
+public class V2DateIndexes extends Migration {
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Date, category/date, wallet/date and plan period indexes";
+    }
+
+    @Override
+    protected List<String> getStatements() {
+        return List.of(
+            "CREATE INDEX IF NOT EXISTS idx_transactions_date ON transactions(date)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_category_date ON transactions(category_id, date)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_wallet_date ON transactions(wallet_id, date)",
+            "CREATE INDEX IF NOT EXISTS idx_plans_category_period ON plans(category_id, plan_year, plan_month)"
+        );
+    }
+}
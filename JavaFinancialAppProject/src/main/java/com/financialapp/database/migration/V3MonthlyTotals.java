@@ -0,0 +1,44 @@
+package com.financialapp.database.migration;
+
+import java.util.List;
+
+/**
+ * Monthly rollup of transactions for the dashboards, backfilled from existing data.
+ * Kept in step with transactions by TransactionRepository; see MonthlyTotals.
+ */
+public class V3MonthlyTotals extends Migration {
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public String getDescription() {
+        return "monthly_totals rollup";
+    }
+
+    @Override
+    protected List<String> getStatements() {
+        return List.of(
+            "CREATE TABLE IF NOT EXISTS monthly_totals (" +
+            " period_year INT NOT NULL," +
+            " period_month INT NOT NULL," +  // 1..12
+            " category_id BIGINT NOT NULL," +
+            " wallet_id BIGINT NOT NULL," +
+            " currency_id BIGINT NOT NULL," +
+            " total DECIMAL(17,2) NOT NULL," +
+            " tx_count BIGINT NOT NULL," +
+            " PRIMARY KEY (period_year, period_month, category_id, wallet_id, currency_id)" +
+            ")",
+
+            "DELETE FROM monthly_totals",
+
+            "INSERT INTO monthly_totals (period_year, period_month, category_id, wallet_id, currency_id, total, tx_count) " +
+            "SELECT EXTRACT(YEAR FROM date), EXTRACT(MONTH FROM date), category_id, wallet_id, currency_id, " +
+            "       SUM(amount), COUNT(*) " +
+            "FROM transactions " +
+            "GROUP BY EXTRACT(YEAR FROM date), EXTRACT(MONTH FROM date), category_id, wallet_id, currency_id"
+        );
+    }
+}
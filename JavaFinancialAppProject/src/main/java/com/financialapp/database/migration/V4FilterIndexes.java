@@ -0,0 +1,40 @@
+package com.financialapp.database.migration;
+
+import java.util.List;
+
+/**
+ * Indexes for the transaction list filters, in the list's own (date DESC, id DESC) order.
+ *
+ * H2 does not walk an ascending index backwards, so with the V2 indexes every page of the
+ * list read all matching rows and sorted them. A descending index lets a page stop after
+ * LIMIT rows: (date DESC, id DESC) serves filters without a dimension, and one
+ * (dimension, date DESC, id DESC) index per dimension serves the others (see
+ * {@link com.financialapp.database.TransactionFilter}). They also serve the date-range
+ * seeks of the V2 indexes, which are dropped so writes maintain one index per dimension.
+ */
+public class V4FilterIndexes extends Migration {
+
+    @Override
+    public int getVersion() {
+        return 4;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Descending date indexes per filter dimension";
+    }
+
+    @Override
+    protected List<String> getStatements() {
+        return List.of(
+            "CREATE INDEX IF NOT EXISTS idx_transactions_date_desc ON transactions(date DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_category_date_desc ON transactions(category_id, date DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_subcategory_date_desc ON transactions(subcategory_id, date DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_wallet_date_desc ON transactions(wallet_id, date DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_currency_date_desc ON transactions(currency_id, date DESC, id DESC)",
+            "DROP INDEX IF EXISTS idx_transactions_date",
+            "DROP INDEX IF EXISTS idx_transactions_category_date",
+            "DROP INDEX IF EXISTS idx_transactions_wallet_date"
+        );
+    }
+}
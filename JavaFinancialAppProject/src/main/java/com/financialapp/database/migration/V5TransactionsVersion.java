@@ -0,0 +1,33 @@
+package com.financialapp.database.migration;
+
+import java.util.List;
+
+/**
+ * A change counter for the transactions table, advanced by every write to it in the same
+ * JDBC transaction (see {@link com.financialapp.database.TransactionsVersion}). It starts
+ * at 1, so a copy that never recorded a version (0) is never taken to be in step.
+ */
+public class V5TransactionsVersion extends Migration {
+
+    @Override
+    public int getVersion() {
+        return 5;
+    }
+
+    @Override
+    public String getDescription() {
+        return "transactions_version change counter";
+    }
+
+    @Override
+    protected List<String> getStatements() {
+        return List.of(
+            "CREATE TABLE IF NOT EXISTS transactions_version (" +
+            " id INT PRIMARY KEY," +
+            " version BIGINT NOT NULL" +
+            ")",
+
+            "MERGE INTO transactions_version (id, version) KEY (id) VALUES (1, 1)"
+        );
+    }
+}
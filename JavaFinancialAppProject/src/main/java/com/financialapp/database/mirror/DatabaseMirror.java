@@ -0,0 +1,422 @@
+package com.financialapp.database.mirror;
+
+import com.financialapp.database.DatabaseConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the application on an in-memory copy of the file database
+ * ({@code -Dfinancialapp.db.mirror=true}).
+ *
+ * At startup the file database is migrated, any journal left by an earlier run is replayed
+ * into it, and every table is copied into {@link #MEMORY_URL}, where the connection pool
+ * points. From then on reads never touch the disk. Row triggers on the in-memory tables
+ * record what each transaction writes; on commit the rows are appended to the
+ * {@link MirrorJournal} and the commit returns once the journal is forced to disk, so an
+ * acknowledged write survives a crash. A background flusher then replays the journal into
+ * the file database every {@code financialapp.mirror.flushMillis} (default 1000) ms, one
+ * file transaction per journal segment, and deletes the segment once the file database has
+ * it on disk. Closing the mirror flushes what is left.
+ *
+ * Commits append to the journal in commit order (under one lock), so two transactions
+ * that wrote the same row replay in the order they committed. Schema changes are not
+ * mirrored; the migrations run on the file database at startup, before the copy.
+ */
+public final class DatabaseMirror {
+
+    public static final String MEMORY_URL = "jdbc:h2:mem:financialdb;DB_CLOSE_DELAY=-1";
+
+    private static final long FLUSH_MILLIS = Long.getLong("financialapp.mirror.flushMillis", 1000L);
+    private static final int COPY_BATCH_SIZE = 1000;
+
+    private final String fileUrl;
+    private final String user;
+    private final String password;
+    private final MirrorJournal journal;
+
+    // Commits append to the journal and commit in memory under this lock
+    private final Object commitLock = new Object();
+    // Segments sealed but not yet in the file database, oldest first; guarded by this
+    private final List<Path> sealed = new ArrayList<>();
+    private Connection file;
+    private Map<String, MirrorTable> tables;
+    private ScheduledExecutorService flusher;
+    private volatile boolean open;
+
+    // --- Metrics ---
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder journaledRows = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    private DatabaseMirror(String fileUrl, String user, String password, Path database) {
+        this.fileUrl = fileUrl;
+        this.user = user;
+        this.password = password;
+        this.journal = new MirrorJournal(database);
+    }
+
+    /**
+     * The mirror for the file database at {@code fileUrl} if {@code -Dfinancialapp.db.mirror=true},
+     * otherwise null. Also null, with a message, if the URL is not an embedded file database.
+     */
+    public static DatabaseMirror configured(String fileUrl, String user, String password) {
+        if (!Boolean.getBoolean("financialapp.db.mirror")) {
+            return null;
+        }
+        if (!fileUrl.startsWith("jdbc:h2:")) {
+            System.out.println("Database mirror needs an embedded H2 file database, not " + fileUrl + "; running without it");
+            return null;
+        }
+        String location = fileUrl.substring("jdbc:h2:".length());
+        int settings = location.indexOf(';');
+        if (settings >= 0) {
+            location = location.substring(0, settings);
+        }
+        if (location.startsWith("file:")) {
+            location = location.substring("file:".length());
+        }
+        String lower = location.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("mem:") || lower.startsWith("tcp:") || lower.startsWith("ssl:") || lower.startsWith("zip:")) {
+            System.out.println("Database mirror needs an embedded H2 file database, not " + fileUrl + "; running without it");
+            return null;
+        }
+        if (location.startsWith("~")) {
+            location = System.getProperty("user.home") + location.substring(1);
+        }
+        return new DatabaseMirror(fileUrl, user, password, Paths.get(location));
+    }
+
+    /**
+     * Migrates and recovers the file database, copies it into the in-memory database
+     * through {@code memory} (a plain connection to {@link #MEMORY_URL}) and starts the flusher.
+     *
+     * @return the number of migrations applied to the file database
+     */
+    public synchronized int open(Connection memory) throws SQLException {
+        if (open) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        file = DriverManager.getConnection(fileUrl, user, password);
+        int applied;
+        try {
+            applied = DatabaseConnection.createSchema(file);
+            tables = MirrorTable.readAll(file);
+            tables.values().forEach(MirrorTrigger::register);
+
+            // Writes acknowledged by the last run but not yet flushed
+            sealed.addAll(journal.existingSegments());
+            if (!sealed.isEmpty()) {
+                System.out.println("Database mirror: replaying " + sealed.size() + " journal segment(s) from the last run");
+            }
+            replaySealed();
+            for (MirrorTable table : tables.values()) {
+                table.restartIdentity(file);
+            }
+            journal.open();
+        } catch (IOException e) {
+            file.close();
+            throw new SQLException("Cannot recover the database mirror journal", e);
+        } catch (SQLException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+
+        DatabaseConnection.createSchema(memory);
+        long rows = copyInto(memory);
+        try (Statement stmt = memory.createStatement()) {
+            for (MirrorTable table : tables.values()) {
+                table.restartIdentity(memory);
+                stmt.execute("CREATE TRIGGER IF NOT EXISTS \"MIRROR_" + table.name + "\" AFTER INSERT, UPDATE, DELETE ON \""
+                        + table.name + "\" FOR EACH ROW CALL '" + MirrorTrigger.class.getName() + "'");
+            }
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "database-mirror-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        open = true;
+        System.out.println("Database mirror: " + rows + " row(s) of " + tables.size() + " table(s) loaded into memory in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms, flushing every " + FLUSH_MILLIS + " ms");
+        return applied;
+    }
+
+    /**
+     * Wraps a pooled connection to the in-memory database (see {@link MirroredConnection}).
+     */
+    public Connection wrap(Connection conn) throws SQLException {
+        return MirroredConnection.wrap(this, conn);
+    }
+
+    /**
+     * Commits {@code conn} with the row changes of its transaction: appends them to the
+     * journal, commits in memory and returns once the journal record is on disk.
+     */
+    void commit(Connection conn, List<RowChange> changes) throws SQLException {
+        if (changes.isEmpty()) {
+            conn.commit();
+            return;
+        }
+        byte[] record;
+        try {
+            record = encode(changes);
+        } catch (IOException e) {
+            conn.rollback();
+            throw new SQLException("Cannot journal the transaction; rolled back", e);
+        }
+        long number;
+        synchronized (commitLock) {
+            if (!open) {
+                conn.rollback();
+                throw new SQLException("Database mirror is closed");
+            }
+            try {
+                number = journal.append(record);
+            } catch (IOException e) {
+                conn.rollback();
+                throw new SQLException("Cannot write the database mirror journal; transaction rolled back", e);
+            }
+            conn.commit();
+        }
+        try {
+            journal.sync(number);
+        } catch (IOException e) {
+            throw new SQLException("Transaction committed in memory, but the journal could not be forced to disk", e);
+        }
+        commits.increment();
+        journaledRows.add(changes.size());
+    }
+
+    /**
+     * Replays everything journaled so far into the file database.
+     */
+    public synchronized void flush() throws SQLException {
+        try {
+            Path segment = journal.roll();
+            if (segment != null) {
+                sealed.add(segment);
+            }
+            replaySealed();
+        } catch (IOException e) {
+            throw new SQLException("Cannot read the database mirror journal", e);
+        }
+    }
+
+    /**
+     * Stops the flusher, flushes the rest of the journal and closes the file database.
+     * Connections to the in-memory database should be closed (or idle) by now.
+     */
+    public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            stopping = flusher;
+        }
+        stopping.shutdown();
+        try {
+            stopping.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (commitLock) {
+            open = false;
+        }
+        synchronized (this) {
+            try {
+                flush();
+                journal.close();
+                for (MirrorTable table : tables.values()) {
+                    table.restartIdentity(file);
+                }
+            } catch (SQLException | IOException e) {
+                // The journal stays on disk and is replayed at the next start
+                e.printStackTrace();
+            }
+            try {
+                file.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            System.out.println("Closing database mirror: " + this);
+        }
+    }
+
+    public long getCommits() { return commits.sum(); }
+    public long getJournaledRows() { return journaledRows.sum(); }
+    public long getFlushedRows() { return flushedRows.sum(); }
+    public long getFlushes() { return flushes.sum(); }
+
+    @Override
+    public String toString() {
+        return String.format("DatabaseMirror[commits=%d, journaledRows=%d, flushes=%d, flushedRows=%d]",
+                getCommits(), getJournaledRows(), getFlushes(), getFlushedRows());
+    }
+
+    // --- Internals ---
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            // Retried on the next run; the segments stay until they are in the file database
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replays the sealed segments in order, each in one file transaction made durable
+     * before the segment is deleted.
+     */
+    private void replaySealed() throws SQLException, IOException {
+        while (!sealed.isEmpty()) {
+            Path segment = sealed.get(0);
+            List<byte[]> records = MirrorJournal.read(segment);
+            long rows = replay(records);
+            Files.delete(segment);
+            sealed.remove(0);
+            flushes.increment();
+            flushedRows.add(rows);
+        }
+    }
+
+    private long replay(List<byte[]> records) throws SQLException, IOException {
+        Map<MirrorTable, PreparedStatement[]> statements = new HashMap<>();
+        boolean autoCommit = file.getAutoCommit();
+        long rows = 0;
+        file.setAutoCommit(false);
+        try (Statement stmt = file.createStatement()) {
+            // A replayed segment may repeat rows the file database already has (a crash
+            // after its commit, before the segment was deleted); replay the row images
+            // as they are, including the child rows of cascading deletes
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            try {
+                for (byte[] record : records) {
+                    for (RowChange change : decode(record)) {
+                        PreparedStatement[] ps = statements.get(change.table);
+                        if (ps == null) {
+                            ps = new PreparedStatement[]{
+                                    file.prepareStatement(change.table.mergeSql()),
+                                    file.prepareStatement(change.table.deleteSql())};
+                            statements.put(change.table, ps);
+                        }
+                        change.replay(ps[0], ps[1]);
+                        rows++;
+                    }
+                }
+                file.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                file.rollback();
+                throw e;
+            } finally {
+                stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            }
+            // The file database writes commits lazily (WRITE_DELAY); force them before the
+            // journal segment goes
+            stmt.execute("CHECKPOINT SYNC");
+        } finally {
+            for (PreparedStatement[] ps : statements.values()) {
+                ps[0].close();
+                ps[1].close();
+            }
+            file.setAutoCommit(autoCommit);
+        }
+        return rows;
+    }
+
+    private long copyInto(Connection memory) throws SQLException {
+        long rows = 0;
+        boolean autoCommit = memory.getAutoCommit();
+        memory.setAutoCommit(false);
+        try (Statement stmt = memory.createStatement()) {
+            // Tables are copied in name order, not in foreign key order
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            try {
+                for (MirrorTable table : tables.values()) {
+                    rows += copyTable(table, memory);
+                }
+                memory.commit();
+            } catch (SQLException | RuntimeException e) {
+                memory.rollback();
+                throw e;
+            } finally {
+                stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            }
+        } finally {
+            memory.setAutoCommit(autoCommit);
+        }
+        return rows;
+    }
+
+    private long copyTable(MirrorTable table, Connection memory) throws SQLException {
+        long rows = 0;
+        int columns = table.columns.size();
+        try (Statement select = file.createStatement();
+             PreparedStatement insert = memory.prepareStatement(table.insertSql())) {
+            select.setFetchSize(COPY_BATCH_SIZE);
+            try (ResultSet rs = select.executeQuery(table.selectSql())) {
+                while (rs.next()) {
+                    for (int i = 1; i <= columns; i++) {
+                        insert.setObject(i, rs.getObject(i));
+                    }
+                    insert.addBatch();
+                    if (++rows % COPY_BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+            if (rows % COPY_BATCH_SIZE != 0) {
+                insert.executeBatch();
+            }
+        }
+        return rows;
+    }
+
+    private static byte[] encode(List<RowChange> changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * changes.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(changes.size());
+            for (RowChange change : changes) {
+                change.writeTo(out);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<RowChange> decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        int count = in.readInt();
+        List<RowChange> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            changes.add(RowChange.readFrom(in, tables));
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,214 @@
+package com.financialapp.database.mirror;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of committed transactions, in numbered segment files next to the
+ * database ({@code financialdb.journal.1}, {@code .2}, ...).
+ *
+ * A record is its length, a CRC32 of the payload and the payload. Appending only writes;
+ * {@link #sync} forces the segment to disk, and one force covers every record appended
+ * before it, so threads committing at the same time share an fsync (group commit).
+ * {@link #roll} seals the current segment for the flusher and starts the next one; a
+ * sealed segment is deleted once its records are in the database. A record torn by a crash
+ * (short or failing its checksum) ends a segment when it is read back; it was never
+ * acknowledged, since it had not been forced.
+ */
+final class MirrorJournal {
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final String prefix;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+
+    // Guarded by appendLock
+    private FileChannel channel;
+    private Path current;
+    private long segmentNumber;
+    private long segmentRecords;
+    private long appended;
+    // Guarded by syncLock: records up to this number are on disk
+    private long durable;
+
+    /**
+     * @param database path of the database, without the .mv.db suffix
+     */
+    MirrorJournal(Path database) {
+        Path absolute = database.toAbsolutePath().normalize();
+        this.dir = absolute.getParent();
+        this.prefix = absolute.getFileName() + ".journal.";
+    }
+
+    /**
+     * Segments left by an earlier run (sealed or not), oldest first.
+     */
+    List<Path> existingSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+                for (Path file : files) {
+                    try {
+                        segments.put(Long.parseLong(file.getFileName().toString().substring(prefix.length())), file);
+                    } catch (NumberFormatException e) {
+                        // Not a segment
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(segments.values());
+    }
+
+    /**
+     * Starts a new segment, numbered after any existing one.
+     */
+    void open() throws IOException {
+        Files.createDirectories(dir);
+        long last = 0;
+        for (Path segment : existingSegments()) {
+            last = Math.max(last, Long.parseLong(segment.getFileName().toString().substring(prefix.length())));
+        }
+        synchronized (appendLock) {
+            segmentNumber = last;
+            startSegment();
+        }
+    }
+
+    /**
+     * Writes one record (not yet forced to disk).
+     *
+     * @return the record's number, to pass to {@link #sync}
+     */
+    long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        synchronized (appendLock) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            segmentRecords++;
+            return ++appended;
+        }
+    }
+
+    /**
+     * Returns once record {@code number} is on disk, forcing the segment unless another
+     * thread's force already covered it.
+     */
+    void sync(long number) throws IOException {
+        synchronized (syncLock) {
+            if (durable >= number) {
+                return;
+            }
+            FileChannel target;
+            long upTo;
+            synchronized (appendLock) {
+                target = channel;
+                upTo = appended;
+            }
+            target.force(false);
+            durable = upTo;
+        }
+    }
+
+    /**
+     * Seals the current segment, if it has records, and starts the next one.
+     *
+     * @return the sealed segment, or null if there was nothing to seal
+     */
+    Path roll() throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                if (segmentRecords == 0) {
+                    return null;
+                }
+                channel.force(false);
+                durable = appended;
+                channel.close();
+                Path sealed = current;
+                startSegment();
+                return sealed;
+            }
+        }
+    }
+
+    /**
+     * Closes the current segment, deleting it if it is empty.
+     */
+    void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                if (channel == null) {
+                    return;
+                }
+                channel.force(false);
+                durable = appended;
+                channel.close();
+                channel = null;
+                if (segmentRecords == 0) {
+                    Files.deleteIfExists(current);
+                }
+            }
+        }
+    }
+
+    /**
+     * The complete records of a segment, in order.
+     */
+    static List<byte[]> read(Path segment) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long size = Files.size(segment);
+        long position = 0;
+        try (InputStream file = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (position + HEADER_BYTES <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || position + HEADER_BYTES + length > size) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                records.add(payload);
+                position += HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            // Torn tail, handled below
+        }
+        if (position < size) {
+            System.out.println("Journal " + segment.getFileName() + ": ignoring " + (size - position)
+                    + " byte(s) of an incomplete record at its end");
+        }
+        return records;
+    }
+
+    private void startSegment() throws IOException {
+        segmentNumber++;
+        current = dir.resolve(prefix + segmentNumber);
+        channel = FileChannel.open(current, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentRecords = 0;
+    }
+}
@@ -0,0 +1,175 @@
+package com.financialapp.database.mirror;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table the mirror keeps in step: its columns in table order (the order H2 passes rows
+ * to triggers), its primary key, and its identity column if it has one.
+ * Read from INFORMATION_SCHEMA, so new tables from later migrations are mirrored too.
+ */
+final class MirrorTable {
+
+    // Written only by the migrations at startup, before the mirror is loaded
+    private static final String NOT_MIRRORED = "SCHEMA_VERSION";
+
+    final String name;
+    final List<String> columns;
+    // Positions of the primary key columns in columns
+    final int[] keyIndexes;
+    // null if the table has no identity column
+    final String identityColumn;
+
+    private MirrorTable(String name, List<String> columns, int[] keyIndexes, String identityColumn) {
+        this.name = name;
+        this.columns = columns;
+        this.keyIndexes = keyIndexes;
+        this.identityColumn = identityColumn;
+    }
+
+    /**
+     * Every table of the PUBLIC schema except schema_version, by name.
+     *
+     * @throws SQLException if a table has no primary key (its rows could not be replayed)
+     */
+    static Map<String, MirrorTable> readAll(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES " +
+                     "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME")) {
+            while (rs.next()) {
+                if (!rs.getString(1).equals(NOT_MIRRORED)) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        Map<String, MirrorTable> tables = new LinkedHashMap<>();
+        for (String name : names) {
+            tables.put(name, read(conn, name));
+        }
+        return Collections.unmodifiableMap(tables);
+    }
+
+    private static MirrorTable read(Connection conn, String name) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        String identity = null;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COLUMN_NAME, IS_IDENTITY FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                    if ("YES".equals(rs.getString(2))) {
+                        identity = rs.getString(1);
+                    }
+                }
+            }
+        }
+        List<Integer> keys = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT k.COLUMN_NAME " +
+                "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS c " +
+                "JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k " +
+                "  ON k.CONSTRAINT_SCHEMA = c.CONSTRAINT_SCHEMA AND k.CONSTRAINT_NAME = c.CONSTRAINT_NAME " +
+                "WHERE c.TABLE_SCHEMA = 'PUBLIC' AND c.TABLE_NAME = ? AND c.CONSTRAINT_TYPE = 'PRIMARY KEY' " +
+                "ORDER BY k.ORDINAL_POSITION")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(columns.indexOf(rs.getString(1)));
+                }
+            }
+        }
+        if (keys.isEmpty()) {
+            throw new SQLException("Table " + name + " has no primary key and cannot be mirrored");
+        }
+        return new MirrorTable(name, Collections.unmodifiableList(columns),
+                keys.stream().mapToInt(Integer::intValue).toArray(), identity);
+    }
+
+    /**
+     * The primary key values of a full row.
+     */
+    Object[] key(Object[] row) {
+        Object[] key = new Object[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            key[i] = row[keyIndexes[i]];
+        }
+        return key;
+    }
+
+    String selectSql() {
+        return "SELECT " + columnList() + " FROM " + quote(name);
+    }
+
+    String insertSql() {
+        return "INSERT INTO " + quote(name) + " (" + columnList() + ") VALUES (" + placeholders(columns.size()) + ")";
+    }
+
+    /**
+     * Inserts or overwrites a full row by its primary key.
+     */
+    String mergeSql() {
+        StringBuilder key = new StringBuilder();
+        for (int index : keyIndexes) {
+            key.append(key.length() == 0 ? "" : ", ").append(quote(columns.get(index)));
+        }
+        return "MERGE INTO " + quote(name) + " (" + columnList() + ") KEY (" + key + ") VALUES ("
+                + placeholders(columns.size()) + ")";
+    }
+
+    String deleteSql() {
+        StringBuilder where = new StringBuilder();
+        for (int index : keyIndexes) {
+            where.append(where.length() == 0 ? "" : " AND ").append(quote(columns.get(index))).append(" = ?");
+        }
+        return "DELETE FROM " + quote(name) + " WHERE " + where;
+    }
+
+    /**
+     * Points the identity column past the largest id, which rows inserted with explicit ids
+     * (copied or replayed) do not do by themselves.
+     */
+    void restartIdentity(Connection conn) throws SQLException {
+        if (identityColumn == null) {
+            return;
+        }
+        long next;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + quote(identityColumn) + "), 0) + 1 FROM " + quote(name))) {
+            rs.next();
+            next = rs.getLong(1);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + quote(name) + " ALTER COLUMN " + quote(identityColumn) + " RESTART WITH " + next);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private String columnList() {
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(quote(column));
+        }
+        return sb.toString();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,94 @@
+package com.financialapp.database.mirror;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Row trigger on every mirrored table of the in-memory database. It records each written
+ * row as a {@link RowChange} of the session's open transaction; {@link MirroredConnection}
+ * journals them when the transaction commits and drops them when it rolls back.
+ *
+ * H2 creates the instances (one per table) by class name, hence the public no-argument
+ * constructor. H2 runs the trigger in the session of the statement that fired it, but hands
+ * it a new connection object each time, so the changes are keyed by the session's
+ * SESSION_ID() instead.
+ */
+public class MirrorTrigger implements Trigger {
+
+    // Tables by name, registered before the triggers are created
+    private static final Map<String, MirrorTable> TABLES = new ConcurrentHashMap<>();
+    // Uncommitted changes by H2 session id; each list is only touched by its connection's thread
+    private static final Map<Integer, List<RowChange>> PENDING = new ConcurrentHashMap<>();
+
+    private MirrorTable table;
+
+    static void register(MirrorTable table) {
+        TABLES.put(table.name, table);
+    }
+
+    /**
+     * The id of the H2 session behind {@code conn}, fixed for the life of the connection.
+     */
+    static int session(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("CALL SESSION_ID()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    static int pendingCount(int session) {
+        List<RowChange> changes = PENDING.get(session);
+        return changes == null ? 0 : changes.size();
+    }
+
+    /**
+     * Removes and returns the session's changes (empty if it has none).
+     */
+    static List<RowChange> take(int session) {
+        List<RowChange> changes = PENDING.remove(session);
+        return changes == null ? List.of() : changes;
+    }
+
+    /**
+     * Drops the changes after the first {@code count}, undone by a statement or savepoint rollback.
+     */
+    static void truncate(int session, int count) {
+        List<RowChange> changes = PENDING.get(session);
+        if (changes != null && changes.size() > count) {
+            changes.subList(count, changes.size()).clear();
+        }
+    }
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        table = TABLES.get(tableName);
+        if (table == null) {
+            throw new SQLException("Table " + tableName + " is not registered with the database mirror");
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        List<RowChange> changes = PENDING.computeIfAbsent(session(conn), s -> new ArrayList<>());
+        if (newRow == null) {
+            changes.add(RowChange.delete(table, oldRow));
+            return;
+        }
+        if (oldRow != null && !Arrays.equals(table.key(oldRow), table.key(newRow))) {
+            // An update that changed the primary key: the old row is gone
+            changes.add(RowChange.delete(table, oldRow));
+        }
+        changes.add(RowChange.upsert(table, newRow));
+    }
+}
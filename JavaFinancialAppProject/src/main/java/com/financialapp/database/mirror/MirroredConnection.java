@@ -0,0 +1,173 @@
+package com.financialapp.database.mirror;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Wraps a connection to the in-memory database so its commits go through the
+ * {@link DatabaseMirror} journal.
+ *
+ * The underlying connection always runs with auto-commit off; auto-commit is emulated by
+ * committing (through the mirror) after each statement. A commit returns once the
+ * transaction's row changes are on disk in the journal. A rollback, a failed statement or
+ * a rollback to a savepoint drops the row changes it undid. A failed batch rolls back the
+ * whole transaction, since H2 keeps the batch entries that succeeded and the trigger
+ * cannot tell them apart. Closing the connection rolls back what was not committed.
+ */
+final class MirroredConnection implements InvocationHandler {
+
+    private final DatabaseMirror mirror;
+    private final Connection conn;
+    private final int session;
+    private final Map<Savepoint, Integer> savepoints = new IdentityHashMap<>();
+    private boolean autoCommit;
+    private Connection proxy;
+
+    private MirroredConnection(DatabaseMirror mirror, Connection conn, int session, boolean autoCommit) {
+        this.mirror = mirror;
+        this.conn = conn;
+        this.session = session;
+        this.autoCommit = autoCommit;
+    }
+
+    static Connection wrap(DatabaseMirror mirror, Connection conn) throws SQLException {
+        MirroredConnection handler = new MirroredConnection(mirror, conn, MirrorTrigger.session(conn), conn.getAutoCommit());
+        conn.setAutoCommit(false);
+        handler.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+        return handler.proxy;
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "createStatement":
+            case "prepareStatement":
+            case "prepareCall": {
+                Statement stmt = (Statement) delegate(conn, method, args);
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new StatementHandler(stmt));
+            }
+            case "getAutoCommit":
+                return autoCommit;
+            case "setAutoCommit": {
+                boolean on = (Boolean) args[0];
+                if (on && !autoCommit) {
+                    // JDBC: switching auto-commit on commits the open transaction
+                    commit();
+                }
+                autoCommit = on;
+                return null;
+            }
+            case "commit":
+                commit();
+                return null;
+            case "rollback":
+                if (args == null) {
+                    rollback();
+                } else {
+                    Integer count = savepoints.get((Savepoint) args[0]);
+                    conn.rollback((Savepoint) args[0]);
+                    if (count != null) {
+                        MirrorTrigger.truncate(session, count);
+                    }
+                }
+                return null;
+            case "setSavepoint": {
+                Savepoint savepoint = (Savepoint) delegate(conn, method, args);
+                savepoints.put(savepoint, MirrorTrigger.pendingCount(session));
+                return savepoint;
+            }
+            case "releaseSavepoint":
+                savepoints.remove((Savepoint) args[0]);
+                return delegate(conn, method, args);
+            case "close":
+                if (!conn.isClosed()) {
+                    // An H2 rollback costs even with nothing to undo; only roll back
+                    // uncommitted rows, and hand the connection back in auto-commit mode
+                    // so the pool does not roll back again
+                    savepoints.clear();
+                    if (!MirrorTrigger.take(session).isEmpty()) {
+                        conn.rollback();
+                    }
+                    conn.setAutoCommit(true);
+                }
+                return delegate(conn, method, args);
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Mirrored[" + conn + "]";
+            default:
+                return delegate(conn, method, args);
+        }
+    }
+
+    private void commit() throws SQLException {
+        savepoints.clear();
+        mirror.commit(conn, MirrorTrigger.take(session));
+    }
+
+    private void rollback() throws SQLException {
+        savepoints.clear();
+        MirrorTrigger.take(session);
+        conn.rollback();
+    }
+
+    /**
+     * Undoes what a failed execute call left behind and commits after each successful one
+     * in auto-commit mode.
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement stmt;
+
+        StatementHandler(Statement stmt) {
+            this.stmt = stmt;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return MirroredConnection.this.proxy;
+            }
+            if (!name.startsWith("execute")) {
+                return delegate(stmt, method, args);
+            }
+            int before = MirrorTrigger.pendingCount(session);
+            Object result;
+            try {
+                result = delegate(stmt, method, args);
+            } catch (Throwable e) {
+                if (autoCommit || name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                    rollback();
+                } else {
+                    // H2 undid the failed statement, but its trigger already recorded rows
+                    MirrorTrigger.truncate(session, before);
+                }
+                throw e;
+            }
+            if (autoCommit) {
+                commit();
+            }
+            return result;
+        }
+    }
+}
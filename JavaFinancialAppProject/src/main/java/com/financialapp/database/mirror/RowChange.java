@@ -0,0 +1,144 @@
+package com.financialapp.database.mirror;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+/**
+ * One row written in the in-memory database: the full row after an insert or update, or
+ * the primary key of a deleted row. Replaying a change sets the row to that state whatever
+ * it was before, so replaying a journal segment twice (after a crash mid-flush) is harmless.
+ */
+final class RowChange {
+
+    // Value tags in the journal
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte INT = 2;
+    private static final byte STRING = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte DATE = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte TIMESTAMP = 8;
+
+    final MirrorTable table;
+    final boolean delete;
+    // The full row (insert, update) or its primary key (delete)
+    final Object[] values;
+
+    private RowChange(MirrorTable table, boolean delete, Object[] values) {
+        this.table = table;
+        this.delete = delete;
+        this.values = values;
+    }
+
+    static RowChange upsert(MirrorTable table, Object[] row) {
+        return new RowChange(table, false, row.clone());
+    }
+
+    static RowChange delete(MirrorTable table, Object[] row) {
+        return new RowChange(table, true, table.key(row));
+    }
+
+    /**
+     * Binds this change to the table's MERGE (upsert) or DELETE statement and runs it.
+     */
+    void replay(PreparedStatement merge, PreparedStatement delete) throws SQLException {
+        PreparedStatement ps = this.delete ? delete : merge;
+        for (int i = 0; i < values.length; i++) {
+            ps.setObject(i + 1, values[i]);
+        }
+        ps.executeUpdate();
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(table.name);
+        out.writeBoolean(delete);
+        out.writeShort(values.length);
+        for (Object value : values) {
+            writeValue(out, value);
+        }
+    }
+
+    static RowChange readFrom(DataInputStream in, Map<String, MirrorTable> tables) throws IOException {
+        String name = in.readUTF();
+        MirrorTable table = tables.get(name);
+        if (table == null) {
+            throw new IOException("Journal refers to unknown table " + name);
+        }
+        boolean delete = in.readBoolean();
+        Object[] values = new Object[in.readShort()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(in);
+        }
+        return new RowChange(table, delete, values);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof LocalDate) {
+            out.writeByte(DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime time = (LocalDateTime) value;
+            out.writeByte(TIMESTAMP);
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        } else {
+            throw new IOException("Cannot journal a value of type " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case INT:
+                return in.readInt();
+            case STRING:
+                return in.readUTF();
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case TIMESTAMP:
+                return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            default:
+                throw new IOException("Unknown value tag " + tag + " in journal");
+        }
+    }
+}
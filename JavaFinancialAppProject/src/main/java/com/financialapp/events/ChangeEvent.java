@@ -0,0 +1,11 @@
+package com.financialapp.events;
+
+/**
+ * A committed change to the application's data, published through {@link EventBus}.
+ * Events are immutable and carry the keys (and, for transactions, the rows) they affect,
+ * so subscribers can apply the change without querying the database again.
+ */
+public interface ChangeEvent {
+
+    enum Kind { ADDED, UPDATED, DELETED }
+}
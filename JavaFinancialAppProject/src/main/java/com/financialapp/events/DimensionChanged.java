@@ -0,0 +1,31 @@
+package com.financialapp.events;
+
+/**
+ * A category, subcategory, wallet or currency was added, changed or deleted.
+ * It is published on a database thread once {@link com.financialapp.cache.DimensionCache}
+ * has reloaded, so subscribers reading the cache see the change. It is published even if
+ * the reload failed; the cache is dropped then, and the next lookup reloads it.
+ */
+public final class DimensionChanged implements ChangeEvent {
+
+    public enum Dimension { CATEGORY, SUBCATEGORY, WALLET, CURRENCY }
+
+    private final Dimension dimension;
+    private final Kind kind;
+    private final long id;
+
+    public DimensionChanged(Dimension dimension, Kind kind, long id) {
+        this.dimension = dimension;
+        this.kind = kind;
+        this.id = id;
+    }
+
+    public Dimension getDimension() { return dimension; }
+    public Kind getKind() { return kind; }
+    public long getId() { return id; }
+
+    @Override
+    public String toString() {
+        return "DimensionChanged[" + dimension + " " + kind + " " + id + "]";
+    }
+}
@@ -0,0 +1,59 @@
+package com.financialapp.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for {@link ChangeEvent}s.
+ *
+ * The services publish one event per committed write, after dropping their caches, so a
+ * subscriber that reads through a service sees the change. Listeners run synchronously on
+ * the publishing thread, usually a database worker: screens hand the event to the FX
+ * thread themselves. A failing listener is logged and affects neither the writer nor the
+ * other listeners.
+ */
+public final class EventBus {
+
+    private static final List<Listener<?>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private EventBus() {
+    }
+
+    /**
+     * Calls {@code listener} with every published event of {@code type} (or a subtype).
+     * @return unsubscribes the listener when run
+     */
+    public static <E extends ChangeEvent> Runnable subscribe(Class<E> type, Consumer<? super E> listener) {
+        Listener<E> entry = new Listener<>(type, listener);
+        LISTENERS.add(entry);
+        return () -> LISTENERS.remove(entry);
+    }
+
+    public static void publish(ChangeEvent event) {
+        for (Listener<?> listener : LISTENERS) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                System.out.println("Listener failed on " + event);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static final class Listener<E extends ChangeEvent> {
+        private final Class<E> type;
+        private final Consumer<? super E> consumer;
+
+        Listener(Class<E> type, Consumer<? super E> consumer) {
+            this.type = type;
+            this.consumer = consumer;
+        }
+
+        void accept(ChangeEvent event) {
+            if (type.isInstance(event)) {
+                consumer.accept(type.cast(event));
+            }
+        }
+    }
+}
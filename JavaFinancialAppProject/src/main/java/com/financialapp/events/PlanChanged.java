@@ -0,0 +1,31 @@
+package com.financialapp.events;
+
+/**
+ * The plan of a category for one month was set.
+ */
+public final class PlanChanged implements ChangeEvent {
+
+    private final long categoryId;
+    private final int month;
+    private final int year;
+    private final long planCents;
+
+    public PlanChanged(long categoryId, int month, int year, long planCents) {
+        this.categoryId = categoryId;
+        this.month = month;
+        this.year = year;
+        this.planCents = planCents;
+    }
+
+    public long getCategoryId() { return categoryId; }
+
+    /** 1..12 */
+    public int getMonth() { return month; }
+    public int getYear() { return year; }
+    public long getPlanCents() { return planCents; }
+
+    @Override
+    public String toString() {
+        return "PlanChanged[category " + categoryId + ", " + year + "-" + month + "]";
+    }
+}
@@ -0,0 +1,44 @@
+package com.financialapp.events;
+
+import com.financialapp.models.Transaction;
+
+/**
+ * One transaction was added, updated or deleted. Carries the stored row before and after
+ * the change, so a subscriber can take the old row out of its totals and put the new one in.
+ */
+public final class TransactionChanged implements ChangeEvent {
+
+    private final Transaction before;
+    private final Transaction after;
+
+    /**
+     * @param before the row before the change, null for an insert
+     * @param after  the row after the change, null for a delete
+     */
+    public TransactionChanged(Transaction before, Transaction after) {
+        if (before == null && after == null) {
+            throw new IllegalArgumentException("A change needs a row before or after it");
+        }
+        this.before = before;
+        this.after = after;
+    }
+
+    public Kind getKind() {
+        return before == null ? Kind.ADDED : after == null ? Kind.DELETED : Kind.UPDATED;
+    }
+
+    public long getId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    /** The row before the change, or null if it was added. */
+    public Transaction getBefore() { return before; }
+
+    /** The row after the change, or null if it was deleted. */
+    public Transaction getAfter() { return after; }
+
+    @Override
+    public String toString() {
+        return "TransactionChanged[" + getKind() + " " + getId() + "]";
+    }
+}
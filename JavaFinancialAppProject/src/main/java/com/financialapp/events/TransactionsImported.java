@@ -0,0 +1,23 @@
+package com.financialapp.events;
+
+/**
+ * A CSV import committed transactions in bulk. Published once per import (also when it
+ * failed part-way, since the chunks committed before the failure stay), instead of one
+ * {@link TransactionChanged} per row; subscribers reload what they show.
+ */
+public final class TransactionsImported implements ChangeEvent {
+
+    private final long imported;
+
+    public TransactionsImported(long imported) {
+        this.imported = imported;
+    }
+
+    /** Number of transactions committed, or -1 if unknown because the import failed. */
+    public long getImported() { return imported; }
+
+    @Override
+    public String toString() {
+        return "TransactionsImported[" + imported + "]";
+    }
+}
@@ -0,0 +1,111 @@
+package com.financialapp.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plan and actual expense per category for one month. Immutable, so one instance can be
+ * cached and rendered by both the Overview bar chart and its summary table.
+ * Amounts are in cents; see {@link com.financialapp.util.Money}.
+ */
+public final class PlanVsActual {
+
+    /**
+     * Plan and actual amount of one EXPENSE category.
+     */
+    public static final class Line {
+        private final String category;
+        private final long plan;
+        private final long actual;
+
+        public Line(String category, long plan, long actual) {
+            this.category = category;
+            this.plan = plan;
+            this.actual = actual;
+        }
+
+        public String getCategory() { return category; }
+        public long getPlan() { return plan; }
+        public long getActual() { return actual; }
+        public long getDeviation() { return plan - actual; }
+    }
+
+    private final int month;
+    private final int year;
+    private final List<Line> lines;
+    private final long totalPlan;
+    private final long totalActual;
+
+    /**
+     * @param lines one entry per category, in display order
+     */
+    public PlanVsActual(int month, int year, List<Line> lines) {
+        this.month = month;
+        this.year = year;
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+        long plan = 0;
+        long actual = 0;
+        for (Line line : lines) {
+            plan += line.getPlan();
+            actual += line.getActual();
+        }
+        this.totalPlan = plan;
+        this.totalActual = actual;
+    }
+
+    public int getMonth() { return month; }
+    public int getYear() { return year; }
+    public List<Line> getLines() { return lines; }
+    public long getTotalPlan() { return totalPlan; }
+    public long getTotalActual() { return totalActual; }
+
+    /**
+     * The line of {@code category}, or null if it has none.
+     */
+    public Line getLine(String category) {
+        for (Line line : lines) {
+            if (line.getCategory().equals(category)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A copy with {@code cents} added to the actual amount of {@code category}, or this
+     * instance if the category has no line.
+     */
+    public PlanVsActual withActualAdded(String category, long cents) {
+        Line line = getLine(category);
+        return line == null ? this
+                : with(new Line(category, line.getPlan(), line.getActual() + cents));
+    }
+
+    /**
+     * A copy with the plan of {@code category} replaced, or this instance if the category
+     * has no line.
+     */
+    public PlanVsActual withPlan(String category, long cents) {
+        Line line = getLine(category);
+        return line == null ? this : with(new Line(category, cents, line.getActual()));
+    }
+
+    private PlanVsActual with(Line replacement) {
+        List<Line> copy = new ArrayList<>(lines);
+        copy.replaceAll(line -> line.getCategory().equals(replacement.getCategory()) ? replacement : line);
+        return new PlanVsActual(month, year, copy);
+    }
+
+    /**
+     * Fresh table rows for the lines, followed by a TOTAL row.
+     */
+    public List<SummaryRow> toSummaryRows() {
+        List<SummaryRow> rows = new ArrayList<>(lines.size() + 1);
+        for (Line line : lines) {
+            rows.add(new SummaryRow(line.getCategory(), line.getPlan(), line.getActual()));
+        }
+        rows.add(new SummaryRow("TOTAL", totalPlan, totalActual));
+        return rows;
+    }
+}
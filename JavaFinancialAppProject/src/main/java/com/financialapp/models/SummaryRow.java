@@ -1,12 +1,15 @@
 package com.financialapp.models;
 
+/**
+ * One row of the Overview plan/fact table. Amounts are in cents; see {@link com.financialapp.util.Money}.
+ */
 public class SummaryRow {
     private String category;
-    private double plan;
-    private double actual;
-    private double deviation; // plan - actual
+    private long plan;
+    private long actual;
+    private long deviation; // plan - actual
 
-    public SummaryRow(String category, double plan, double actual) {
+    public SummaryRow(String category, long plan, long actual) {
         this.category = category;
         this.plan = plan;
         this.actual = actual;
@@ -16,12 +19,12 @@ public class SummaryRow {
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
 
-    public double getPlan() { return plan; }
-    public void setPlan(double plan) { this.plan = plan; }
+    public long getPlan() { return plan; }
+    public void setPlan(long plan) { this.plan = plan; }
 
-    public double getActual() { return actual; }
-    public void setActual(double actual) { this.actual = actual; }
+    public long getActual() { return actual; }
+    public void setActual(long actual) { this.actual = actual; }
 
-    public double getDeviation() { return deviation; }
-    public void setDeviation(double deviation) { this.deviation = deviation; }
+    public long getDeviation() { return deviation; }
+    public void setDeviation(long deviation) { this.deviation = deviation; }
 }
\ No newline at end of file
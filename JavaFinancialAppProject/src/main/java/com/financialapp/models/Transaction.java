@@ -7,7 +7,7 @@ public class Transaction {
     private LocalDate date;
     private long categoryId;
     private long subcategoryId;
-    private double amount;
+    private long amountCents;
     private long currencyId;
     private long walletId;
     private String comment;
@@ -18,7 +18,7 @@ public class Transaction {
                        LocalDate date,
                        long categoryId,
                        long subcategoryId,
-                       double amount,
+                       long amountCents,
                        long currencyId,
                        long walletId,
                        String comment) {
@@ -26,7 +26,7 @@ public class Transaction {
         this.date = date;
         this.categoryId = categoryId;
         this.subcategoryId = subcategoryId;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.currencyId = currencyId;
         this.walletId = walletId;
         this.comment = comment;
@@ -44,8 +44,9 @@ public class Transaction {
     public long getSubcategoryId() { return subcategoryId; }
     public void setSubcategoryId(long subcategoryId) { this.subcategoryId = subcategoryId; }
 
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    /** Amount in cents; see {@link com.financialapp.util.Money}. */
+    public long getAmountCents() { return amountCents; }
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
 
     public long getCurrencyId() { return currencyId; }
     public void setCurrencyId(long currencyId) { this.currencyId = currencyId; }
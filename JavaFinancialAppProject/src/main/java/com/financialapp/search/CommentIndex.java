@@ -0,0 +1,348 @@
+package com.financialapp.search;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over transaction comments: for every word, the {@link PostingList} of
+ * the transactions whose comment contains it. Next to it, the date and category of every
+ * indexed transaction (in arrays indexed by id), so the date and category filters of the
+ * transactions screen are applied in memory and a search never touches H2 until the
+ * matching rows are displayed.
+ *
+ * Words are maximal runs of letters and digits, lower-cased. A query matches the
+ * transactions containing, for each of its words, a word starting with it: "coff star"
+ * finds "Coffee at Starbucks".
+ *
+ * Readers share a read lock; writers take the write lock.
+ */
+public final class CommentIndex {
+
+    private static final int MAX_WORD_LENGTH = 40;
+    private static final int NOT_INDEXED = Integer.MIN_VALUE;
+    // Keys sort dates before ids: (epoch day + DAY_OFFSET) << ID_BITS | id
+    private static final int ID_BITS = 31;
+    private static final long DAY_OFFSET = 1 << 20;
+
+    private static final String LOAD_SQL =
+            "SELECT id, DATEDIFF(DAY, DATE '1970-01-01', date) AS epoch_day, category_id, comment " +
+            "FROM transactions WHERE comment IS NOT NULL AND comment <> '' ORDER BY id";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+
+    // By id; days[id] == NOT_INDEXED for ids without a (non-empty) comment
+    private int[] days = new int[1024];
+    private int[] categories = new int[1024];
+    private int documents;
+
+    {
+        Arrays.fill(days, NOT_INDEXED);
+    }
+
+    /**
+     * Indexes every commented transaction in one forward scan of the primary key.
+     */
+    public static CommentIndex load(Connection conn) throws SQLException {
+        CommentIndex index = new CommentIndex();
+        try (PreparedStatement ps = conn.prepareStatement(LOAD_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                // Not shared yet, so no lock
+                while (rs.next()) {
+                    index.put(rs.getLong(1), rs.getInt(2), rs.getLong(3), null, rs.getString(4));
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Splits text into distinct lower-case words, in order of appearance.
+     */
+    public static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_WORD_LENGTH) {
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * True if {@code comment} matches {@code query} the way {@link #search} matches it:
+     * every word of the query starts a word of the comment.
+     */
+    public static boolean matches(String query, String comment) {
+        Set<String> commentWords = words(comment);
+        for (String word : words(query)) {
+            boolean found = false;
+            for (String candidate : commentWords) {
+                if (candidate.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of transactions with a comment.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Total encoded size of the posting lists, in bytes.
+     */
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList list : terms.values()) {
+                bytes += list.bytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a committed insert or update. {@code previousComment} is the comment the
+     * transaction had before (null for an insert); its words are dropped first. Applying
+     * the same write twice is harmless.
+     */
+    public void upsert(long id, LocalDate date, long categoryId, String previousComment, String comment) {
+        lock.writeLock().lock();
+        try {
+            put(id, (int) date.toEpochDay(), categoryId, previousComment, comment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops a deleted transaction that had the given comment.
+     */
+    public void remove(long id, String comment) {
+        lock.writeLock().lock();
+        try {
+            put(id, 0, 0, comment, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(long id, int day, long categoryId, String previousComment, String comment) {
+        if (id <= 0 || id >= Integer.MAX_VALUE) {
+            return;
+        }
+        int slot = (int) id;
+        Set<String> before = words(previousComment);
+        Set<String> after = words(comment);
+        for (String word : before) {
+            if (!after.contains(word)) {
+                PostingList list = terms.get(word);
+                if (list != null && list.remove(id) && list.size() == 0) {
+                    terms.remove(word);
+                }
+            }
+        }
+        for (String word : after) {
+            terms.computeIfAbsent(word, w -> new PostingList()).add(id);
+        }
+
+        ensureCapacity(slot);
+        boolean wasIndexed = days[slot] != NOT_INDEXED;
+        if (after.isEmpty()) {
+            days[slot] = NOT_INDEXED;
+            categories[slot] = 0;
+            if (wasIndexed) {
+                documents--;
+            }
+        } else {
+            days[slot] = day;
+            categories[slot] = (int) categoryId;
+            if (!wasIndexed) {
+                documents++;
+            }
+        }
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot < days.length) {
+            return;
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) days.length * 2, slot + 1L));
+        int old = days.length;
+        days = Arrays.copyOf(days, capacity);
+        Arrays.fill(days, old, capacity, NOT_INDEXED);
+        categories = Arrays.copyOf(categories, capacity);
+    }
+
+    /**
+     * The transactions whose comment matches {@code query} with {@code fromDay <= day < untilDay},
+     * newest first (by date, then id), as keys for {@link #idOf} and {@link #dayOf}.
+     * A query without words matches nothing.
+     *
+     * @param categoryId restrict to one category, or -1 for all
+     */
+    public long[] search(String query, int fromDay, int untilDay, long categoryId) {
+        List<String> words = new ArrayList<>(words(query));
+        if (words.isEmpty()) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            // Each query word matches every indexed word it is a prefix of
+            List<List<PostingList>> matches = new ArrayList<>(words.size());
+            for (String word : words) {
+                List<PostingList> lists = new ArrayList<>(prefixed(word).values());
+                if (lists.isEmpty()) {
+                    return new long[0];
+                }
+                matches.add(lists);
+            }
+            // Start from the rarest word, so the candidate set is smallest from the outset
+            matches.sort((a, b) -> Long.compare(total(a), total(b)));
+
+            long[] ids = union(matches.get(0));
+            int count = ids.length;
+            for (int w = 1; w < matches.size() && count > 0; w++) {
+                List<PostingList> lists = matches.get(w);
+                if (lists.size() == 1) {
+                    count = lists.get(0).retainIn(ids, count);
+                } else {
+                    count = intersect(ids, count, union(lists));
+                }
+            }
+
+            long[] keys = new long[count];
+            int found = 0;
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ids[i];
+                int day = days[slot];
+                if (day != NOT_INDEXED && day >= fromDay && day < untilDay
+                        && (categoryId == -1 || categories[slot] == categoryId)) {
+                    keys[found++] = (day + DAY_OFFSET) << ID_BITS | slot;
+                }
+            }
+            Arrays.sort(keys, 0, found);
+            long[] newestFirst = new long[found];
+            for (int i = 0; i < found; i++) {
+                newestFirst[i] = keys[found - 1 - i];
+            }
+            return newestFirst;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static long keyOf(LocalDate date, long id) {
+        return (date.toEpochDay() + DAY_OFFSET) << ID_BITS | id;
+    }
+
+    public static long idOf(long key) {
+        return key & ((1L << ID_BITS) - 1);
+    }
+
+    public static LocalDate dayOf(long key) {
+        return LocalDate.ofEpochDay((key >>> ID_BITS) - DAY_OFFSET);
+    }
+
+    private NavigableMap<String, PostingList> prefixed(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static long total(List<PostingList> lists) {
+        long total = 0;
+        for (PostingList list : lists) {
+            total += list.size();
+        }
+        return total;
+    }
+
+    /**
+     * The sorted, distinct ids of all the lists.
+     */
+    private static long[] union(List<PostingList> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0).decode();
+        }
+        long[] all = new long[(int) total(lists)];
+        int n = 0;
+        for (PostingList list : lists) {
+            long[] ids = list.decode();
+            System.arraycopy(ids, 0, all, n, ids.length);
+            n += ids.length;
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || all[i] != all[distinct - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, distinct);
+    }
+
+    /**
+     * Keeps the ids of {@code ids[0, count)} also in {@code other}, in place; both sorted.
+     */
+    private static int intersect(long[] ids, int count, long[] other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < other.length; i++) {
+            while (j < other.length && other[j] < ids[i]) {
+                j++;
+            }
+            if (j < other.length && other[j] == ids[i]) {
+                ids[kept++] = ids[i];
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,130 @@
+package com.financialapp.search;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.DbExecutor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link CommentIndex} behind the transaction search box.
+ *
+ * On by default; {@code -Dfinancialapp.search=sql} turns it off, and searches then run as
+ * word-prefix filters in H2 (see {@link com.financialapp.database.TransactionFilter}). {@link #start()} builds the index in the background; until it is
+ * built {@link #search} returns null and callers fall back to SQL.
+ *
+ * Every committed write to transactions must be reported through {@link #upsert} or
+ * {@link #remove}. As in {@link com.financialapp.analytics.Analytics}, writes arriving
+ * while the index is being built are queued and replayed on top of it.
+ */
+public final class CommentSearch {
+
+    public static final boolean ENABLED =
+            !"sql".equalsIgnoreCase(System.getProperty("financialapp.search", "index"));
+
+    private static final Object LOCK = new Object();
+    private static volatile CommentIndex index;
+    // Writes seen while building; null when no build is running
+    private static List<Consumer<CommentIndex>> pending;
+
+    private CommentSearch() {
+    }
+
+    /**
+     * Builds the index in the background if search indexing is enabled.
+     */
+    public static void start() {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (index != null || pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        DbExecutor.supply(() -> {
+            long start = System.nanoTime();
+            CommentIndex built = null;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                built = CommentIndex.load(conn);
+            } catch (SQLException | RuntimeException e) {
+                System.out.println("Comment search index disabled: could not load transactions");
+                e.printStackTrace();
+            }
+            synchronized (LOCK) {
+                if (built != null) {
+                    for (Consumer<CommentIndex> write : pending) {
+                        write.accept(built);
+                    }
+                    index = built;
+                }
+                pending = null;
+            }
+            if (built != null) {
+                System.out.printf("Comment search index: %d commented transactions, %d words, %d KB of postings, built in %d ms%n",
+                        built.size(), built.termCount(), built.postingBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The built index, or null if indexing is disabled or still running.
+     */
+    public static CommentIndex index() {
+        return index;
+    }
+
+    // ---------------- Write hooks ----------------
+
+    /**
+     * Reports a committed insert ({@code previousComment} null) or update.
+     */
+    public static void upsert(long id, LocalDate date, long categoryId, String previousComment, String comment) {
+        apply(i -> i.upsert(id, date, categoryId, previousComment, comment));
+    }
+
+    /**
+     * Reports a committed delete of a transaction with the given comment.
+     */
+    public static void remove(long id, String comment) {
+        apply(i -> i.remove(id, comment));
+    }
+
+    private static void apply(Consumer<CommentIndex> write) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (pending != null) {
+                pending.add(write);
+            } else if (index != null) {
+                write.accept(index);
+            }
+        }
+    }
+
+    // ---------------- Queries ----------------
+
+    /**
+     * The transactions matching {@code query} with {@code start <= date <= end} (null bounds
+     * are open), newest first, as {@link CommentIndex} keys.
+     *
+     * @param categoryId restrict to one category, or -1 for all
+     * @return the keys, or null if the index is not available
+     */
+    public static long[] search(String query, LocalDate start, LocalDate end, long categoryId) {
+        CommentIndex i = index;
+        if (i == null) {
+            return null;
+        }
+        int fromDay = start == null ? Integer.MIN_VALUE : (int) start.toEpochDay();
+        int untilDay = end == null ? Integer.MAX_VALUE : (int) end.toEpochDay() + 1;
+        return i.search(query, fromDay, untilDay, categoryId);
+    }
+}
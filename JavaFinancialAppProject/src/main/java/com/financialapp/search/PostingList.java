@@ -0,0 +1,156 @@
+package com.financialapp.search;
+
+import java.util.Arrays;
+
+/**
+ * The sorted ids of the transactions containing one term, stored as the gaps between
+ * consecutive ids in a variable-length byte encoding (7 bits per byte, high bit set on
+ * all but the last byte of a gap). Ids grow with time, so gaps are small and most take
+ * one or two bytes instead of eight.
+ *
+ * Appending an id larger than the last one, the usual case for new transactions, writes
+ * only its gap; any other change decodes and re-encodes the list.
+ * Not thread-safe; {@link CommentIndex} guards it.
+ */
+final class PostingList {
+
+    private byte[] data = new byte[4];
+    private int length;
+    private int size;
+    private long last;
+
+    int size() {
+        return size;
+    }
+
+    long last() {
+        return last;
+    }
+
+    /**
+     * Adds {@code id} unless present.
+     */
+    void add(long id) {
+        if (size == 0 || id > last) {
+            writeGap(size == 0 ? id : id - last);
+            last = id;
+            size++;
+            return;
+        }
+        long[] ids = decode();
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return;
+        }
+        int insert = -pos - 1;
+        long[] grown = new long[size + 1];
+        System.arraycopy(ids, 0, grown, 0, insert);
+        grown[insert] = id;
+        System.arraycopy(ids, insert, grown, insert + 1, size - insert);
+        encode(grown, grown.length);
+    }
+
+    /**
+     * Removes {@code id} if present.
+     * @return true if it was present
+     */
+    boolean remove(long id) {
+        if (size == 0 || id > last) {
+            return false;
+        }
+        long[] ids = decode();
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        encode(ids, size - 1);
+        return true;
+    }
+
+    /**
+     * All ids in ascending order.
+     */
+    long[] decode() {
+        long[] ids = new long[size];
+        int in = 0;
+        long id = 0;
+        for (int i = 0; i < size; i++) {
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[in++];
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += gap;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Keeps the ids of {@code sorted[0, count)} that are also in this list, in place.
+     * Walks both in step, so the list is decoded without allocating.
+     * @return the number kept
+     */
+    int retainIn(long[] sorted, int count) {
+        int kept = 0;
+        int in = 0;
+        int decoded = 0;
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            long want = sorted[i];
+            while ((decoded == 0 || id < want) && decoded < size) {
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[in++];
+                    gap |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                decoded++;
+            }
+            if (decoded == 0 || id < want) {
+                break; // list exhausted
+            }
+            if (id == want) {
+                sorted[kept++] = want;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Encoded size in bytes.
+     */
+    int bytes() {
+        return length;
+    }
+
+    private void encode(long[] ids, int count) {
+        data = new byte[Math.max(4, count * 2)];
+        length = 0;
+        size = 0;
+        last = 0;
+        for (int i = 0; i < count; i++) {
+            writeGap(i == 0 ? ids[i] : ids[i] - ids[i - 1]);
+        }
+        size = count;
+        last = count == 0 ? 0 : ids[count - 1];
+    }
+
+    private void writeGap(long gap) {
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        while ((gap & ~0x7FL) != 0) {
+            data[length++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        data[length++] = (byte) gap;
+    }
+}
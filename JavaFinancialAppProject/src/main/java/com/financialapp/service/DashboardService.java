@@ -0,0 +1,130 @@
+package com.financialapp.service;
+
+import com.financialapp.analytics.Analytics;
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.MonthlyTotals;
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregates behind the Overview and Annual Dashboard charts. Each query is answered by
+ * the in-memory {@link Analytics} engine when it is enabled and loaded, and otherwise
+ * from the monthly_totals rollup. Amounts are in cents.
+ */
+public final class DashboardService {
+
+    private DashboardService() {
+    }
+
+    /**
+     * Expense totals per category name for one month (1..12) and year.
+     */
+    public static Map<String, Long> expensesByCategory(int month, int year) throws SQLException {
+        LocalDate first = LocalDate.of(year, month, 1);
+        Map<String, Long> inMemory = Analytics.expensesByCategory(first, first.plusMonths(1).minusDays(1), -1);
+        if (inMemory != null) {
+            return inMemory;
+        }
+
+        String sql =
+            "SELECT c.name AS category, " + Money.cents("SUM(m.total)") + " AS total_cents " +
+            "FROM monthly_totals m " + // rollup maintained by TransactionRepository
+            "JOIN categories c ON m.category_id = c.id " +
+            "WHERE c.type='EXPENSE' " + // Exclude INCOME
+            "  AND m.period_year = ? AND m.period_month = ? " +
+            "GROUP BY c.name";
+
+        Map<String, Long> totals = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, year);
+            ps.setInt(2, month);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString("category"), rs.getLong("total_cents"));
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Expense totals per category name in [start, end] (null bounds are open) for one
+     * wallet, or all wallets if {@code walletId} is -1.
+     */
+    public static Map<String, Long> expenseTotals(long walletId, LocalDate start, LocalDate end) throws SQLException {
+        Map<String, Long> inMemory = Analytics.expensesByCategory(start, end, walletId);
+        if (inMemory != null) {
+            return inMemory;
+        }
+        boolean byWallet = walletId != -1;
+        MonthlyTotals.Span span = new MonthlyTotals.Span(start, end);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT c.name AS category, ").append(Money.cents("SUM(x.amount)")).append(" AS total_cents FROM ");
+        span.appendSource(sb, byWallet);
+        sb.append(" x JOIN categories c ON c.id = x.category_id ")
+          .append("WHERE c.type='EXPENSE' ")
+          .append("GROUP BY c.name");
+
+        Map<String, Long> totals = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+
+            span.bind(ps, 1, byWallet, walletId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString("category"), rs.getLong("total_cents"));
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Expense and income totals per month in [start, end] for one wallet, or all wallets
+     * if {@code walletId} is -1.
+     * @return "YYYY-MM" label -> {expenses, incomes}, in month order
+     */
+    public static Map<String, long[]> monthlyTotals(long walletId, LocalDate start, LocalDate end) throws SQLException {
+        Map<String, long[]> inMemory = Analytics.monthlyTotals(start, end, walletId);
+        if (inMemory != null) {
+            return inMemory;
+        }
+        boolean byWallet = walletId != -1;
+        MonthlyTotals.Span span = new MonthlyTotals.Span(start, end);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT x.yr, x.mon, ")
+          .append(" ").append(Money.cents("SUM(CASE WHEN c.type='EXPENSE' THEN x.amount ELSE 0 END)")).append(" AS total_expenses, ")
+          .append(" ").append(Money.cents("SUM(CASE WHEN c.type='INCOME' THEN x.amount ELSE 0 END)")).append(" AS total_incomes ")
+          .append("FROM ");
+        span.appendSource(sb, byWallet);
+        sb.append(" x JOIN categories c ON c.id = x.category_id ")
+          .append("GROUP BY x.yr, x.mon ORDER BY x.yr, x.mon");
+
+        Map<String, long[]> monthly = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+
+            span.bind(ps, 1, byWallet, walletId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int y = rs.getInt("yr");
+                    int m = rs.getInt("mon");
+                    String label = String.format("%04d-%02d", y, m);
+                    monthly.put(label, new long[]{rs.getLong("total_expenses"), rs.getLong("total_incomes")});
+                }
+            }
+        }
+        return monthly;
+    }
+}
@@ -0,0 +1,78 @@
+package com.financialapp.service;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.events.EventBus;
+import com.financialapp.events.PlanChanged;
+import com.financialapp.models.PlanVsActual;
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Monthly spending plans per category.
+ */
+public final class PlanService {
+
+    private PlanService() {
+    }
+
+    /**
+     * Sets the plan of a category for a month (1..12) and year, creating it if there is none
+     * yet, and publishes a {@link PlanChanged} event.
+     */
+    public static void setPlan(long categoryId, int month, int year, long planCents) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long planId = findPlanId(conn, categoryId, month, year);
+                if (planId == -1) {
+                    String insertSql = "INSERT INTO plans (category_id, plan_amount, plan_month, plan_year) " +
+                                       "VALUES (?,?,?,?)";
+                    try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                        ps.setLong(1, categoryId);
+                        Money.bind(ps, 2, planCents);
+                        ps.setInt(3, month);
+                        ps.setInt(4, year);
+                        ps.executeUpdate();
+                    }
+                } else {
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE plans SET plan_amount=? WHERE id=?")) {
+                        Money.bind(ps, 1, planCents);
+                        ps.setLong(2, planId);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                PlanVsActualService.invalidate();
+            }
+        }
+        EventBus.publish(new PlanChanged(categoryId, month, year, planCents));
+    }
+
+    /**
+     * Plan vs. actual expenses per category for the given month (1..12) and year.
+     */
+    public static PlanVsActual getPlanVsActual(int month, int year) throws SQLException {
+        return PlanVsActualService.get(month, year);
+    }
+
+    private static long findPlanId(Connection conn, long categoryId, int month, int year) throws SQLException {
+        String sql = "SELECT id FROM plans WHERE category_id=? AND plan_month=? AND plan_year=? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, categoryId);
+            ps.setInt(2, month);
+            ps.setInt(3, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong("id") : -1;
+            }
+        }
+    }
+}
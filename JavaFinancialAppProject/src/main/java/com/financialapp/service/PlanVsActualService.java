@@ -0,0 +1,105 @@
+package com.financialapp.service;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.models.PlanVsActual;
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan vs. actual expenses per category for a month, as shown on the Overview tab.
+ *
+ * The figures come from one grouped join of categories, plans and the monthly_totals
+ * rollup. Results are cached per period until {@link #invalidate()}, which every write to
+ * transactions, plans or categories must call.
+ */
+public final class PlanVsActualService {
+
+    private static final int MAX_CACHED_PERIODS = 24;
+
+    private static final String SQL =
+            "SELECT c.name AS category, " +
+            "       " + Money.cents("COALESCE(p.plan_amount, 0)") + " AS plan_cents, " +
+            "       " + Money.cents("COALESCE(SUM(m.total), 0)") + " AS actual_cents " +
+            "FROM categories c " +
+            "LEFT JOIN plans p ON p.category_id = c.id AND p.plan_month = ? AND p.plan_year = ? " +
+            "LEFT JOIN monthly_totals m ON m.category_id = c.id AND m.period_year = ? AND m.period_month = ? " +
+            "WHERE c.type='EXPENSE' " + // Exclude INCOME
+            "GROUP BY c.id, c.name, p.id, p.plan_amount " +
+            "ORDER BY c.name";
+
+    private static final Object LOCK = new Object();
+    // period key (year * 12 + month) -> result, least recently used first
+    private static final Map<Integer, PlanVsActual> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PlanVsActual> eldest) {
+            return size() > MAX_CACHED_PERIODS;
+        }
+    };
+    private static long generation;
+
+    private PlanVsActualService() {
+    }
+
+    /**
+     * Returns the plan vs. actual figures for the given month (1..12) and year,
+     * from the cache when possible.
+     */
+    public static PlanVsActual get(int month, int year) throws SQLException {
+        int key = year * 12 + month;
+        long gen;
+        synchronized (LOCK) {
+            PlanVsActual cached = CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            gen = generation;
+        }
+
+        PlanVsActual loaded = query(month, year);
+
+        synchronized (LOCK) {
+            // Do not cache a result that a concurrent write may already have made stale
+            if (gen == generation) {
+                CACHE.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops all cached periods.
+     */
+    public static void invalidate() {
+        synchronized (LOCK) {
+            generation++;
+            CACHE.clear();
+        }
+    }
+
+    private static PlanVsActual query(int month, int year) throws SQLException {
+        List<PlanVsActual.Line> lines = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL)) {
+            ps.setInt(1, month);
+            ps.setInt(2, year);
+            ps.setInt(3, year);
+            ps.setInt(4, month);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(new PlanVsActual.Line(rs.getString("category"),
+                            rs.getLong("plan_cents"), rs.getLong("actual_cents")));
+                }
+            }
+        }
+        return new PlanVsActual(month, year, lines);
+    }
+}
@@ -0,0 +1,204 @@
+package com.financialapp.service;
+
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.events.ChangeEvent.Kind;
+import com.financialapp.events.DimensionChanged;
+import com.financialapp.events.DimensionChanged.Dimension;
+import com.financialapp.events.EventBus;
+import com.financialapp.models.Category;
+import com.financialapp.models.Currency;
+import com.financialapp.models.Subcategory;
+import com.financialapp.models.Wallet;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Categories, subcategories, currencies and wallets. Every write reloads
+ * {@link DimensionCache}, and writes to categories also drop the plan vs. actual cache;
+ * a {@link DimensionChanged} event is published once the reloaded cache is in place.
+ */
+public final class ReferenceDataService {
+
+    private ReferenceDataService() {
+    }
+
+    // ---------------- Categories ----------------
+
+    public static List<Category> listCategories() throws SQLException {
+        List<Category> categories = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name, type FROM categories ORDER BY name")) {
+            while (rs.next()) {
+                categories.add(new Category(rs.getLong("id"), rs.getString("name"), rs.getString("type")));
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * @param type "INCOME" or "EXPENSE"
+     */
+    public static void addCategory(String name, String type) throws SQLException {
+        long id = insert("INSERT INTO categories (name, type) VALUES (?, ?)", name, type);
+        categoriesChanged(Kind.ADDED, id);
+    }
+
+    public static void updateCategory(long id, String name, String type) throws SQLException {
+        update("UPDATE categories SET name = ?, type = ? WHERE id = ?", name, type, id);
+        categoriesChanged(Kind.UPDATED, id);
+    }
+
+    public static void deleteCategory(long id) throws SQLException {
+        update("DELETE FROM categories WHERE id = ?", id);
+        categoriesChanged(Kind.DELETED, id);
+    }
+
+    /**
+     * A category with subcategories must not be deleted until they are.
+     */
+    public static boolean hasSubcategories(long categoryId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM subcategories WHERE category_id = ?")) {
+            ps.setLong(1, categoryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    // ---------------- Subcategories ----------------
+
+    public static List<Subcategory> listSubcategories(long categoryId) throws SQLException {
+        List<Subcategory> subcategories = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT id, category_id, name FROM subcategories WHERE category_id = ? ORDER BY name")) {
+            ps.setLong(1, categoryId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    subcategories.add(new Subcategory(rs.getLong("id"), rs.getLong("category_id"), rs.getString("name")));
+                }
+            }
+        }
+        return subcategories;
+    }
+
+    public static void addSubcategory(long categoryId, String name) throws SQLException {
+        long id = insert("INSERT INTO subcategories (category_id, name) VALUES (?, ?)", categoryId, name);
+        changed(Dimension.SUBCATEGORY, Kind.ADDED, id);
+    }
+
+    public static void renameSubcategory(long id, String name) throws SQLException {
+        update("UPDATE subcategories SET name = ? WHERE id = ?", name, id);
+        changed(Dimension.SUBCATEGORY, Kind.UPDATED, id);
+    }
+
+    public static void deleteSubcategory(long id) throws SQLException {
+        update("DELETE FROM subcategories WHERE id = ?", id);
+        changed(Dimension.SUBCATEGORY, Kind.DELETED, id);
+    }
+
+    // ---------------- Currencies ----------------
+
+    public static List<Currency> listCurrencies() throws SQLException {
+        List<Currency> currencies = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, code, name FROM currencies ORDER BY code")) {
+            while (rs.next()) {
+                currencies.add(new Currency(rs.getLong("id"), rs.getString("code"), rs.getString("name")));
+            }
+        }
+        return currencies;
+    }
+
+    public static void addCurrency(String code, String name) throws SQLException {
+        long id = insert("INSERT INTO currencies (code, name) VALUES (?, ?)", code, name);
+        changed(Dimension.CURRENCY, Kind.ADDED, id);
+    }
+
+    public static void deleteCurrency(long id) throws SQLException {
+        update("DELETE FROM currencies WHERE id=?", id);
+        changed(Dimension.CURRENCY, Kind.DELETED, id);
+    }
+
+    // ---------------- Wallets ----------------
+
+    public static List<Wallet> listWallets() throws SQLException {
+        List<Wallet> wallets = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM wallets ORDER BY name")) {
+            while (rs.next()) {
+                wallets.add(new Wallet(rs.getLong("id"), rs.getString("name")));
+            }
+        }
+        return wallets;
+    }
+
+    public static void addWallet(String name) throws SQLException {
+        long id = insert("INSERT INTO wallets (name) VALUES (?)", name);
+        changed(Dimension.WALLET, Kind.ADDED, id);
+    }
+
+    public static void deleteWallet(long id) throws SQLException {
+        update("DELETE FROM wallets WHERE id=?", id);
+        changed(Dimension.WALLET, Kind.DELETED, id);
+    }
+
+    // ---------------- Helpers ----------------
+
+    private static void categoriesChanged(Kind kind, long id) {
+        PlanVsActualService.invalidate();
+        changed(Dimension.CATEGORY, kind, id);
+    }
+
+    private static void changed(Dimension dimension, Kind kind, long id) {
+        // Listeners read the new names from the cache, so they are told once it has them
+        DimensionCache.invalidate().whenComplete((v, e) -> EventBus.publish(new DimensionChanged(dimension, kind, id)));
+    }
+
+    /**
+     * Runs one UPDATE/DELETE with String and Long parameters.
+     */
+    private static void update(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs one INSERT with String and Long parameters.
+     * @return the generated id
+     */
+    private static long insert(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            bind(ps, params);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                return keys.next() ? keys.getLong(1) : -1;
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] instanceof Long) {
+                ps.setLong(i + 1, (Long) params[i]);
+            } else {
+                ps.setString(i + 1, (String) params[i]);
+            }
+        }
+    }
+}
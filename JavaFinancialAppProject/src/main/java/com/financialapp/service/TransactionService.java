@@ -0,0 +1,154 @@
+package com.financialapp.service;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.SearchPageSource;
+import com.financialapp.database.StorageProfile;
+import com.financialapp.database.TransactionFilter;
+import com.financialapp.database.TransactionPageSource;
+import com.financialapp.database.TransactionRepository;
+import com.financialapp.events.EventBus;
+import com.financialapp.events.TransactionChanged;
+import com.financialapp.events.TransactionsImported;
+import com.financialapp.models.Transaction;
+import com.financialapp.search.CommentIndex;
+import com.financialapp.search.CommentSearch;
+import com.financialapp.util.CsvExporter;
+import com.financialapp.util.CsvImporter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Adds, changes, lists, imports and exports transactions. Writes go through
+ * {@link TransactionRepository}, drop the plan vs. actual cache and then publish a
+ * {@link TransactionChanged} (or, for an import, {@link TransactionsImported}) event, so
+ * callers never have to remember to. Single writes are group-committed by a
+ * {@link WriteQueue}; the CSV import commits its own large batches.
+ *
+ * All methods block on the database; UI code calls them off the FX thread.
+ */
+public final class TransactionService {
+
+    private static final WriteQueue WRITES = new WriteQueue();
+
+    private TransactionService() {
+    }
+
+    /**
+     * Stores a new transaction (its id is ignored) and waits until it is on disk.
+     * @return the generated id
+     */
+    public static long add(Transaction tx) throws SQLException {
+        return await(WRITES.insert(tx)).getId();
+    }
+
+    /**
+     * @return false if no transaction has id {@code tx.getId()}
+     */
+    public static boolean update(Transaction tx) throws SQLException {
+        return await(WRITES.update(tx)) != null;
+    }
+
+    /**
+     * @return false if no such transaction exists
+     */
+    public static boolean delete(long id) throws SQLException {
+        return await(WRITES.delete(id)) != null;
+    }
+
+    /**
+     * The queue the writes above go through, for callers that would rather not block:
+     * its futures complete once the write is on disk and its event published.
+     */
+    public static WriteQueue getWriteQueue() {
+        return WRITES;
+    }
+
+    /**
+     * Stores the writes still queued. Called when the application stops, before the
+     * database closes.
+     */
+    public static void shutdown() {
+        WRITES.close();
+        System.out.println("Closing write queue: " + WRITES);
+    }
+
+    /**
+     * The transactions in [start, end] (null bounds are open) of the given category
+     * (-1 for all), newest first, for paged reading.
+     */
+    public static TransactionPageSource find(LocalDate start, LocalDate end, long categoryId) {
+        return find(new TransactionFilter(start, end, categoryId));
+    }
+
+    /**
+     * The transactions matching {@code filter}, newest first, for paged reading.
+     *
+     * Comment words are matched by the comment search index: for each word of the query, a
+     * word of the comment starting with it (see {@link CommentIndex}). While the index is
+     * being built, or with {@code -Dfinancialapp.search=sql}, H2 checks the same thing with
+     * LIKE and REGEXP_LIKE conditions instead, so both find the same rows.
+     */
+    public static TransactionPageSource find(TransactionFilter filter) {
+        if (filter.hasCommentQuery()) {
+            long[] keys = CommentSearch.search(filter.getCommentQuery(), filter.getStart(), filter.getEnd(),
+                    filter.getCategoryId());
+            if (keys != null) {
+                return new SearchPageSource(filter, keys);
+            }
+        }
+        return new TransactionPageSource(filter);
+    }
+
+    /**
+     * Imports a CSV file in batches, with the import storage profile in effect.
+     * Chunks committed before a failure stay imported.
+     */
+    public static CsvImporter.Result importCsv(Path file) throws IOException, SQLException {
+        CsvImporter.Result result = null;
+        StorageProfile previous = DatabaseConnection.useProfile(StorageProfile.forImport());
+        try {
+            result = new CsvImporter().importFile(file);
+            return result;
+        } finally {
+            try {
+                DatabaseConnection.useProfile(previous);
+            } catch (SQLException e) {
+                // Only the tuning is off until the next switch; keep the import's own outcome
+                e.printStackTrace();
+            }
+            PlanVsActualService.invalidate();
+            EventBus.publish(new TransactionsImported(result == null ? -1 : result.getImported()));
+        }
+    }
+
+    /**
+     * Writes every transaction of {@code source} to {@code file}, gzip-compressed if asked.
+     * @return the number of rows written
+     */
+    public static long exportCsv(TransactionPageSource source, Path file, boolean gzip) throws IOException, SQLException {
+        return CsvExporter.exportTransactions(source, file, gzip);
+    }
+
+    private static TransactionChanged await(CompletableFuture<TransactionChanged> write) throws SQLException {
+        try {
+            return write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a write; it may still be stored", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+}
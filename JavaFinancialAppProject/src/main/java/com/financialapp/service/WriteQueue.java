@@ -0,0 +1,238 @@
+package com.financialapp.service;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.TransactionRepository;
+import com.financialapp.events.EventBus;
+import com.financialapp.events.TransactionChanged;
+import com.financialapp.models.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single writer for transaction inserts, updates and deletes (group commit).
+ *
+ * Callers from any thread queue a write and get a future; one writer thread takes what is
+ * queued, up to {@code maxBatch} writes, and stores it with
+ * {@link TransactionRepository#writeBatch} in one JDBC transaction forced to disk once
+ * ({@link DatabaseConnection#sync}). Each future completes when its write is durable, with
+ * its change (null if an update or delete found no such transaction), or exceptionally
+ * with the error that failed it; a write that fails does not fail the rest of its batch.
+ * Writes that arrive while a batch is being stored wait for the next one, so under load
+ * batches grow by themselves and the number of fsyncs stays flat. {@code maxLatencyMillis}
+ * (default 0) lets the writer also wait that long after the first write of a batch for
+ * more to arrive, trading latency for fewer fsyncs when writes trickle in.
+ *
+ * After each batch the plan vs. actual cache is dropped and the changes are published on
+ * the {@link EventBus} in order, before their futures complete. The queue holds at most
+ * {@code capacity} writes; beyond that, submitting blocks until the writer catches up.
+ */
+public final class WriteQueue implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH = Integer.getInteger("financialapp.writes.maxBatch", 256);
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = Long.getLong("financialapp.writes.maxLatencyMillis", 0L);
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("financialapp.writes.capacity", 10_000);
+
+    // Queued by close(): the writer stores what is queued and stops
+    private static final Request STOP = new Request(null);
+
+    private final int maxBatch;
+    private final long maxLatencyNanos;
+    private final BlockingQueue<Request> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public WriteQueue() {
+        this(DEFAULT_MAX_BATCH, DEFAULT_MAX_LATENCY_MILLIS, DEFAULT_CAPACITY);
+    }
+
+    public WriteQueue(int maxBatch, long maxLatencyMillis, int capacity) {
+        if (maxBatch < 1 || maxLatencyMillis < 0 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid write queue settings: maxBatch=" + maxBatch
+                    + ", maxLatencyMillis=" + maxLatencyMillis + ", capacity=" + capacity);
+        }
+        this.maxBatch = maxBatch;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, "transaction-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an insert of {@code tx} (its id is ignored); the change holds the generated id.
+     */
+    public CompletableFuture<TransactionChanged> insert(Transaction tx) {
+        return submit(TransactionRepository.Write.insert(tx));
+    }
+
+    /**
+     * Queues an overwrite of the transaction with id {@code tx.getId()}.
+     */
+    public CompletableFuture<TransactionChanged> update(Transaction tx) {
+        return submit(TransactionRepository.Write.update(tx));
+    }
+
+    /**
+     * Queues a delete of the transaction with the given id.
+     */
+    public CompletableFuture<TransactionChanged> delete(long id) {
+        return submit(TransactionRepository.Write.delete(id));
+    }
+
+    /**
+     * Stops taking writes and waits for the queued ones to be stored.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        // Not an interrupt: that would close the database's file channels mid-write
+        try {
+            queue.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getBatches() { return batches.get(); }
+    public long getWrites() { return writes.get(); }
+    public long getFailedBatches() { return failedBatches.get(); }
+
+    @Override
+    public String toString() {
+        long b = batches.get();
+        return "WriteQueue[maxBatch=" + maxBatch + ", maxLatency=" + TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos)
+                + " ms, queued=" + queue.size() + ", batches=" + b + ", writes=" + writes.get()
+                + String.format(", avgBatch=%.1f", b == 0 ? 0.0 : (double) writes.get() / b)
+                + ", failedBatches=" + failedBatches.get() + "]";
+    }
+
+    private CompletableFuture<TransactionChanged> submit(TransactionRepository.Write write) {
+        Request request = new Request(write);
+        if (closed) {
+            request.future.completeExceptionally(new SQLException("The write queue is closed"));
+            return request.future;
+        }
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(e);
+            return request.future;
+        }
+        // Closed meanwhile: if the writer has not taken it, it never will
+        if (closed && queue.remove(request)) {
+            request.future.completeExceptionally(new SQLException("The write queue is closed"));
+        }
+        return request.future;
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(Math.min(maxBatch, 1024));
+        boolean stopping = false;
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                if (stopping) {
+                    queue.drainTo(batch, maxBatch);
+                } else {
+                    collect(batch);
+                }
+            } catch (InterruptedException e) {
+                // Never interrupted on purpose; keep serving until closed
+                continue;
+            }
+            // Writes queued after the stop marker are still stored; later ones are
+            // taken back by their submitters
+            stopping |= batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for a write, then adds what else is queued, up to maxBatch, waiting up to
+     * maxLatency for more if there is room.
+     */
+    private void collect(List<Request> batch) throws InterruptedException {
+        batch.add(queue.take());
+        queue.drainTo(batch, maxBatch - batch.size());
+        if (maxLatencyNanos > 0) {
+            long deadline = batch.get(0).submitted + maxLatencyNanos;
+            long wait;
+            while (batch.size() < maxBatch && !batch.contains(STOP)
+                    && (wait = deadline - System.nanoTime()) > 0) {
+                Request next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                queue.drainTo(batch, maxBatch - batch.size());
+            }
+        }
+    }
+
+    private void write(List<Request> batch) {
+        List<TransactionRepository.Write> writes = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            writes.add(request.write);
+        }
+        SQLException failure = null;
+        try {
+            TransactionRepository.writeBatch(writes, true);
+        } catch (SQLException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new SQLException("Batch of " + batch.size() + " write(s) failed", e);
+        } finally {
+            PlanVsActualService.invalidate();
+        }
+        batches.incrementAndGet();
+        this.writes.addAndGet(batch.size());
+        if (failure != null) {
+            failedBatches.incrementAndGet();
+            failure.printStackTrace();
+        }
+        for (Request request : batch) {
+            // Committed changes are published even if forcing them to disk failed
+            TransactionChanged change = request.write.getChange();
+            if (change != null) {
+                EventBus.publish(change);
+            }
+            if (failure != null) {
+                request.future.completeExceptionally(failure);
+            } else if (request.write.getFailure() != null) {
+                request.future.completeExceptionally(request.write.getFailure());
+            } else {
+                request.future.complete(change);
+            }
+        }
+    }
+
+    private static final class Request {
+        final TransactionRepository.Write write;
+        final long submitted = System.nanoTime();
+        final CompletableFuture<TransactionChanged> future = new CompletableFuture<>();
+
+        Request(TransactionRepository.Write write) {
+            this.write = write;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.financialapp.storage;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.TransactionRepository;
+import com.financialapp.models.Transaction;
+import com.financialapp.util.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+/**
+ * The transactions table in the application's H2 database. Writes go through
+ * {@link TransactionRepository}, so they keep monthly_totals and the other mirrors in step.
+ */
+public class H2TransactionStore implements TransactionStore {
+
+    private static final String COLUMNS =
+            "id, date, category_id, COALESCE(subcategory_id, 0) AS subcategory_id, wallet_id, currency_id, " +
+            Money.cents("amount") + " AS amount_cents, comment";
+
+    @Override
+    public long insert(Transaction tx) throws SQLException {
+        return TransactionRepository.insert(tx).getId();
+    }
+
+    @Override
+    public boolean update(Transaction tx) throws SQLException {
+        return TransactionRepository.update(tx) != null;
+    }
+
+    @Override
+    public boolean delete(long id) throws SQLException {
+        return TransactionRepository.delete(id) != null;
+    }
+
+    @Override
+    public Transaction find(long id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT " + COLUMNS + " FROM transactions WHERE id=?")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM transactions")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public void scan(RowVisitor visitor) throws SQLException {
+        String sql = "SELECT id, DATEDIFF(DAY, DATE '1970-01-01', date) AS epoch_day, category_id, " +
+                     "COALESCE(subcategory_id, 0) AS subcategory_id, wallet_id, currency_id, " +
+                     Money.cents("amount") + " AS amount_cents FROM transactions ORDER BY id";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    visitor.visit(rs.getLong(1), rs.getInt(2), rs.getLong(3), rs.getLong(4),
+                            rs.getLong(5), rs.getLong(6), rs.getLong(7));
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits every transaction with all its columns, in id order.
+     */
+    public void forEach(Consumer<Transaction> action) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT " + COLUMNS + " FROM transactions ORDER BY id",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(read(rs));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // Connections are pooled and returned after every call
+    }
+
+    private static Transaction read(ResultSet rs) throws SQLException {
+        return new Transaction(rs.getLong("id"), rs.getDate("date").toLocalDate(), rs.getLong("category_id"),
+                rs.getLong("subcategory_id"), rs.getLong("amount_cents"), rs.getLong("currency_id"),
+                rs.getLong("wallet_id"), rs.getString("comment"));
+    }
+}
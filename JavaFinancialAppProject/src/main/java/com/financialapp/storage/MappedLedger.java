@@ -0,0 +1,842 @@
+package com.financialapp.storage;
+
+import com.financialapp.models.Transaction;
+import com.financialapp.util.LongIntHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Transactions kept in an append-only file of fixed-width records, read and written through
+ * {@link FileChannel#map memory mappings}.
+ *
+ * Files in the ledger directory, for the generation named in CURRENT:
+ * <ul>
+ *   <li>ledger-N.dat: a 4 KB header, then one {@value #RECORD_SIZE}-byte record per slot,
+ *       mapped in segments of 64 MB. Records are never moved: an update appends a new record
+ *       and then flags the old one deleted, a delete only sets the flag.</li>
+ *   <li>ledger-N.comments: UTF-8 comment bytes, appended; records point into it.</li>
+ *   <li>ledger-N.idx: id -> slot index written on a clean {@link #close()}. It is deleted
+ *       as soon as it has been read, so after a crash the index is rebuilt from the records
+ *       instead of being trusted.</li>
+ * </ul>
+ * Appends only become part of the ledger when {@link #flush()} forces them to disk and then
+ * advances the record count in the header. An update flags the old record in that same
+ * flush, once the new one is on disk, so a crash in between leaves two copies, never none;
+ * reopening keeps the later one. Until then reads skip the old record.
+ *
+ * The header also keeps the version of the copied store the ledger was last known to match
+ * ({@link #getSyncedVersion()}); the ledger itself never interprets it.
+ *
+ * When deleted records make up a quarter of the file, a background thread writes the live
+ * records, in id order, to generation N+1 and switches CURRENT over to it.
+ * {@link #scan} reads the mapped records in place without creating objects.
+ */
+public final class MappedLedger implements TransactionStore {
+
+    static final int RECORD_SIZE = 64;
+    private static final int HEADER_SIZE = 4096;
+    private static final int SEGMENT_SHIFT = 20; // 1M records, 64 MB per mapping
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+    private static final long SEGMENT_BYTES = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    private static final long MAGIC = 0x3152_4744_454C_4146L;       // "FALEDGR1"
+    private static final long INDEX_MAGIC = 0x3158_4449_454C_4146L; // "FALEIDX1"
+    private static final int VERSION = 1;
+
+    // Header layout
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 8;
+    private static final int H_RECORD_SIZE = 12;
+    private static final int H_COUNT = 16;
+    private static final int H_NEXT_ID = 24;
+    private static final int H_SYNCED_VERSION = 32;
+
+    // Record layout
+    private static final int R_ID = 0;
+    private static final int R_DAY = 8;
+    private static final int R_FLAGS = 12;
+    private static final int R_CATEGORY = 16;
+    private static final int R_SUBCATEGORY = 20;
+    private static final int R_WALLET = 24;
+    private static final int R_CURRENCY = 28;
+    private static final int R_CENTS = 32;
+    private static final int R_COMMENT_POS = 40;
+    private static final int R_COMMENT_LEN = 48;
+
+    private static final int FLAG_DELETED = 1;
+    private static final int NULL_COMMENT = -1;
+
+    private static final int COMPACT_MIN_DELETED = Integer.getInteger("financialapp.ledger.compactMin", 65_536);
+
+    private static final String CURRENT = "CURRENT";
+    private static final Pattern GENERATION_FILE = Pattern.compile("ledger-(\\d+)\\.(dat|comments|idx)");
+
+    private final Path dir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ledger-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Generation gen;
+    private LongIntHashMap index;
+    // Segments written since the last flush
+    private final BitSet dirtySegments = new BitSet();
+    // Slots replaced by an update, flagged deleted at the next flush
+    private final BitSet replacedSlots = new BitSet();
+    // Slots in use, including deleted records and appends not flushed yet
+    private int recordCount;
+    private long nextId;
+    private boolean compactionQueued;
+    private boolean closed;
+
+    private MappedLedger(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Opens the ledger in {@code dir}, creating an empty one if the directory has none.
+     */
+    public static MappedLedger open(Path dir) throws SQLException {
+        MappedLedger ledger = new MappedLedger(dir);
+        try {
+            Files.createDirectories(dir);
+            int number = readCurrent(dir);
+            ledger.gen = Generation.open(dir, number);
+            ledger.recordCount = (int) ledger.gen.header.getLong(H_COUNT);
+            ledger.nextId = ledger.gen.header.getLong(H_NEXT_ID);
+            ledger.gen.ensureMapped(ledger.recordCount);
+            ledger.index = ledger.readIndex();
+            if (ledger.index == null) {
+                ledger.rebuildIndex();
+            }
+            ledger.deleteOtherGenerations();
+        } catch (IOException e) {
+            if (ledger.gen != null) {
+                ledger.gen.close();
+            }
+            throw failure("Cannot open ledger in " + dir, e);
+        }
+        return ledger;
+    }
+
+    // ---------------- Writes ----------------
+
+    @Override
+    public long insert(Transaction tx) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            long id = nextId;
+            index.put(id, append(id, tx));
+            nextId++;
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean update(Transaction tx) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (index.get(tx.getId()) == LongIntHashMap.NO_VALUE) {
+                return false;
+            }
+            put(tx);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores {@code tx} under its own id, replacing any transaction with that id.
+     * Used to mirror another store, whose ids the ledger keeps.
+     */
+    public void put(Transaction tx) throws SQLException {
+        if (tx.getId() <= 0) {
+            throw new IllegalArgumentException("Transaction id must be positive: " + tx.getId());
+        }
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            int slot = append(tx.getId(), tx);
+            int old = index.put(tx.getId(), slot);
+            nextId = Math.max(nextId, tx.getId() + 1);
+            if (old != LongIntHashMap.NO_VALUE) {
+                // The new record must be on disk before the old one is flagged
+                replacedSlots.set(old);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(long id) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            int slot = index.remove(id);
+            if (slot == LongIntHashMap.NO_VALUE) {
+                return false;
+            }
+            markDeleted(slot);
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            flushLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------- Reads ----------------
+
+    @Override
+    public Transaction find(long id) throws SQLException {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            int slot = index.get(id);
+            if (slot == LongIntHashMap.NO_VALUE) {
+                return null;
+            }
+            ByteBuffer seg = gen.segment(slot);
+            int off = offset(slot);
+            return new Transaction(seg.getLong(off + R_ID),
+                    LocalDate.ofEpochDay(seg.getInt(off + R_DAY)),
+                    seg.getInt(off + R_CATEGORY),
+                    seg.getInt(off + R_SUBCATEGORY),
+                    seg.getLong(off + R_CENTS),
+                    seg.getInt(off + R_CURRENCY),
+                    seg.getInt(off + R_WALLET),
+                    gen.readComment(seg.getLong(off + R_COMMENT_POS), seg.getInt(off + R_COMMENT_LEN)));
+        } catch (IOException e) {
+            throw failure("Cannot read ledger comment", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the live records in slot order: id order, except for transactions updated
+     * since the last compaction, which come at the end.
+     */
+    @Override
+    public void scan(RowVisitor visitor) throws SQLException {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (int slot = 0; slot < recordCount; slot++) {
+                ByteBuffer seg = gen.segment(slot);
+                int off = offset(slot);
+                if ((seg.getInt(off + R_FLAGS) & FLAG_DELETED) != 0 || replacedSlots.get(slot)) {
+                    continue;
+                }
+                visitor.visit(seg.getLong(off + R_ID), seg.getInt(off + R_DAY), seg.getInt(off + R_CATEGORY),
+                        seg.getInt(off + R_SUBCATEGORY), seg.getInt(off + R_WALLET), seg.getInt(off + R_CURRENCY),
+                        seg.getLong(off + R_CENTS));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The largest live id, or 0 if the ledger is empty.
+     */
+    public long maxId() throws SQLException {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            long[] max = {0};
+            index.forEach((id, slot) -> max[0] = Math.max(max[0], id));
+            return max[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The version last recorded with {@link #setSyncedVersion}; 0 for a new ledger.
+     */
+    public long getSyncedVersion() throws SQLException {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return gen.header.getLong(H_SYNCED_VERSION);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the ledger and records {@code version} in its header, on disk before this returns.
+     * Compaction keeps it.
+     */
+    public void setSyncedVersion(long version) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            flushLocked();
+            gen.header.putLong(H_SYNCED_VERSION, version);
+            gen.header.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record slots in use, including deleted records waiting for compaction.
+     */
+    public int slotCount() {
+        lock.readLock().lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------- Compaction ----------------
+
+    /**
+     * Rewrites the live records into a new generation now, in id order. Normally this runs
+     * on its own in the background.
+     */
+    public void compact() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            compactionQueued = false;
+            if (closed) {
+                return;
+            }
+            flushLocked();
+            long start = System.nanoTime();
+            int before = recordCount;
+            Generation next = null;
+            try {
+                next = Generation.create(dir, gen.number + 1);
+                LongIntHashMap nextIndex = new LongIntHashMap(index.size());
+                long[] ids = liveIdsSorted();
+                for (int i = 0; i < ids.length; i++) {
+                    int slot = index.get(ids[i]);
+                    next.ensureMapped(i + 1);
+                    ByteBuffer from = gen.segment(slot);
+                    ByteBuffer to = next.segment(i);
+                    int src = offset(slot);
+                    int dst = offset(i);
+                    for (int b = 0; b < RECORD_SIZE; b += 8) {
+                        to.putLong(dst + b, from.getLong(src + b));
+                    }
+                    int len = from.getInt(src + R_COMMENT_LEN);
+                    if (len != NULL_COMMENT) {
+                        to.putLong(dst + R_COMMENT_POS, next.appendComment(
+                                gen.readCommentBytes(from.getLong(src + R_COMMENT_POS), len)));
+                    }
+                    nextIndex.put(ids[i], i);
+                }
+                next.forceAll(ids.length, nextId, gen.header.getLong(H_SYNCED_VERSION));
+                writeCurrent(dir, next.number);
+
+                Generation old = gen;
+                gen = next;
+                index = nextIndex;
+                recordCount = ids.length;
+                dirtySegments.clear();
+                old.close();
+                deleteOtherGenerations();
+                System.out.println("Compacted ledger: " + before + " -> " + recordCount + " records in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            } catch (IOException e) {
+                if (next != null && next != gen) {
+                    next.close();
+                    next.delete();
+                }
+                throw failure("Ledger compaction failed", e);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            flushLocked();
+            // The deleted flags that flush set; the index written next trusts them
+            forceLocked();
+            try {
+                writeIndex();
+            } catch (IOException e) {
+                // Not fatal: the index is rebuilt from the records on the next open
+                e.printStackTrace();
+            }
+            closed = true;
+            gen.close();
+            compactor.shutdownNow();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------- Internals (write lock held) ----------------
+
+    private int append(long id, Transaction tx) throws SQLException {
+        int slot = recordCount;
+        try {
+            gen.ensureMapped(slot + 1);
+            long commentPos = 0;
+            int commentLen = NULL_COMMENT;
+            if (tx.getComment() != null) {
+                byte[] bytes = tx.getComment().getBytes(StandardCharsets.UTF_8);
+                commentPos = gen.appendComment(bytes);
+                commentLen = bytes.length;
+            }
+            ByteBuffer seg = gen.segment(slot);
+            int off = offset(slot);
+            seg.putLong(off + R_ID, id);
+            seg.putInt(off + R_DAY, (int) tx.getDate().toEpochDay());
+            seg.putInt(off + R_FLAGS, 0);
+            seg.putInt(off + R_CATEGORY, Math.toIntExact(tx.getCategoryId()));
+            seg.putInt(off + R_SUBCATEGORY, tx.getSubcategoryId() <= 0 ? 0 : Math.toIntExact(tx.getSubcategoryId()));
+            seg.putInt(off + R_WALLET, Math.toIntExact(tx.getWalletId()));
+            seg.putInt(off + R_CURRENCY, Math.toIntExact(tx.getCurrencyId()));
+            seg.putLong(off + R_CENTS, tx.getAmountCents());
+            seg.putLong(off + R_COMMENT_POS, commentPos);
+            seg.putInt(off + R_COMMENT_LEN, commentLen);
+        } catch (IOException e) {
+            throw failure("Cannot append to ledger", e);
+        }
+        dirtySegments.set(slot >> SEGMENT_SHIFT);
+        recordCount++;
+        return slot;
+    }
+
+    private void markDeleted(int slot) {
+        ByteBuffer seg = gen.segment(slot);
+        int off = offset(slot);
+        seg.putInt(off + R_FLAGS, seg.getInt(off + R_FLAGS) | FLAG_DELETED);
+        dirtySegments.set(slot >> SEGMENT_SHIFT);
+    }
+
+    /**
+     * Forces the appended records, then flags the records they replaced. The flags reach disk
+     * with the next force; until then a crash leaves both copies.
+     */
+    private void flushLocked() throws SQLException {
+        forceLocked();
+        for (int slot = replacedSlots.nextSetBit(0); slot >= 0; slot = replacedSlots.nextSetBit(slot + 1)) {
+            markDeleted(slot);
+        }
+        replacedSlots.clear();
+    }
+
+    private void forceLocked() throws SQLException {
+        try {
+            gen.comments.force(false);
+            for (int s = dirtySegments.nextSetBit(0); s >= 0; s = dirtySegments.nextSetBit(s + 1)) {
+                gen.segments[s].force();
+            }
+            dirtySegments.clear();
+            // Only now do the appended records count
+            gen.header.putLong(H_COUNT, recordCount);
+            gen.header.putLong(H_NEXT_ID, nextId);
+            gen.header.force();
+        } catch (IOException e) {
+            throw failure("Cannot flush ledger", e);
+        }
+    }
+
+    private void compactIfNeeded() {
+        int deleted = recordCount - index.size();
+        if (!compactionQueued && deleted >= COMPACT_MIN_DELETED && deleted >= recordCount / 4) {
+            compactionQueued = true;
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    private void rebuildIndex() {
+        LongIntHashMap rebuilt = new LongIntHashMap(recordCount);
+        long maxId = 0;
+        for (int slot = 0; slot < recordCount; slot++) {
+            ByteBuffer seg = gen.segment(slot);
+            int off = offset(slot);
+            if ((seg.getInt(off + R_FLAGS) & FLAG_DELETED) != 0) {
+                continue;
+            }
+            long id = seg.getLong(off + R_ID);
+            int previous = rebuilt.put(id, slot);
+            if (previous != LongIntHashMap.NO_VALUE) {
+                // An update interrupted before it flagged the old record: the later one wins
+                markDeleted(previous);
+            }
+            maxId = Math.max(maxId, id);
+        }
+        index = rebuilt;
+        nextId = Math.max(nextId, maxId + 1);
+    }
+
+    private long[] liveIdsSorted() {
+        long[] ids = new long[index.size()];
+        int[] n = {0};
+        index.forEach((id, slot) -> ids[n[0]++] = id);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Ledger in " + dir + " is closed");
+        }
+    }
+
+    // ---------------- Sidecar index ----------------
+
+    private LongIntHashMap readIndex() throws IOException {
+        Path file = gen.file("idx");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        LongIntHashMap loaded = null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, buf, 20);
+            if (buf.getLong() == INDEX_MAGIC && buf.getLong() == recordCount) {
+                int size = buf.getInt();
+                loaded = new LongIntHashMap(size);
+                buf.clear();
+                int remaining = size;
+                while (remaining > 0) {
+                    int batch = Math.min(remaining, buf.capacity() / 12);
+                    readFully(ch, buf, batch * 12);
+                    for (int i = 0; i < batch; i++) {
+                        loaded.put(buf.getLong(), buf.getInt());
+                    }
+                    buf.clear();
+                    remaining -= batch;
+                }
+            }
+        } catch (IOException e) {
+            // A damaged index is rebuilt from the records
+            loaded = null;
+        }
+        // Valid only until the next write; a crash must not leave it behind
+        Files.delete(file);
+        return loaded;
+    }
+
+    private void writeIndex() throws IOException {
+        Path file = gen.file("idx");
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putLong(INDEX_MAGIC).putLong(recordCount).putInt(index.size());
+            IOException[] error = {null};
+            index.forEach((id, slot) -> {
+                if (buf.remaining() < 12) {
+                    error[0] = error[0] != null ? error[0] : drain(ch, buf);
+                }
+                buf.putLong(id).putInt(slot);
+            });
+            IOException last = drain(ch, buf);
+            if (error[0] != null || last != null) {
+                throw error[0] != null ? error[0] : last;
+            }
+            ch.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static IOException drain(FileChannel ch, ByteBuffer buf) {
+        buf.flip();
+        try {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        } finally {
+            buf.clear();
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, int length) throws IOException {
+        buf.limit(length);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf) < 0) {
+                throw new IOException("Unexpected end of index file");
+            }
+        }
+        buf.flip();
+    }
+
+    // ---------------- Generations ----------------
+
+    private static int readCurrent(Path dir) throws IOException {
+        Path current = dir.resolve(CURRENT);
+        if (!Files.exists(current)) {
+            writeCurrent(dir, 1);
+            return 1;
+        }
+        try {
+            return Integer.parseInt(Files.readString(current, StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Damaged " + current, e);
+        }
+    }
+
+    private static void writeCurrent(Path dir, int number) throws IOException {
+        Path tmp = dir.resolve(CURRENT + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(Integer.toString(number).getBytes(StandardCharsets.US_ASCII));
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(CURRENT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Best effort: files of older generations (left by compaction) and newer ones (left by an
+     * interrupted compaction). A file that is still mapped somewhere is retried on the next open.
+     */
+    private void deleteOtherGenerations() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "ledger-*")) {
+            for (Path file : files) {
+                Matcher m = GENERATION_FILE.matcher(file.getFileName().toString());
+                if (m.matches() && Integer.parseInt(m.group(1)) != gen.number) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Still mapped (Windows); retried on the next open
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static int offset(int slot) {
+        return (slot & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+    }
+
+    private static SQLException failure(String message, IOException e) {
+        return new SQLException(message + ": " + e.getMessage(), e);
+    }
+
+    /**
+     * The files of one generation and their mappings.
+     */
+    private static final class Generation {
+        final int number;
+        final Path dir;
+        final FileChannel data;
+        final FileChannel comments;
+        final MappedByteBuffer header;
+        MappedByteBuffer[] segments = new MappedByteBuffer[0];
+        long commentEnd;
+
+        private Generation(Path dir, int number, FileChannel data, FileChannel comments, MappedByteBuffer header) {
+            this.dir = dir;
+            this.number = number;
+            this.data = data;
+            this.comments = comments;
+            this.header = header;
+        }
+
+        static Generation open(Path dir, int number) throws IOException {
+            Path dataFile = dir.resolve("ledger-" + number + ".dat");
+            boolean fresh = !Files.exists(dataFile) || Files.size(dataFile) == 0;
+            Generation g = map(dir, number);
+            if (fresh) {
+                g.writeHeader(0, 1);
+            } else if (g.header.getLong(H_MAGIC) != MAGIC || g.header.getInt(H_VERSION) != VERSION
+                    || g.header.getInt(H_RECORD_SIZE) != RECORD_SIZE) {
+                g.close();
+                throw new IOException(dataFile + " is not a version " + VERSION + " ledger file");
+            }
+            // Comment bytes past the last flushed record are orphans and simply stay unused
+            g.commentEnd = g.comments.size();
+            return g;
+        }
+
+        static Generation create(Path dir, int number) throws IOException {
+            Files.deleteIfExists(dir.resolve("ledger-" + number + ".dat"));
+            Files.deleteIfExists(dir.resolve("ledger-" + number + ".comments"));
+            Generation g = map(dir, number);
+            g.writeHeader(0, 1);
+            return g;
+        }
+
+        private static Generation map(Path dir, int number) throws IOException {
+            FileChannel data = FileChannel.open(dir.resolve("ledger-" + number + ".dat"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            FileChannel comments = null;
+            try {
+                comments = FileChannel.open(dir.resolve("ledger-" + number + ".comments"),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+                MappedByteBuffer header = data.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                return new Generation(dir, number, data, comments, header);
+            } catch (IOException e) {
+                data.close();
+                if (comments != null) {
+                    comments.close();
+                }
+                throw e;
+            }
+        }
+
+        Path file(String extension) {
+            return dir.resolve("ledger-" + number + "." + extension);
+        }
+
+        void writeHeader(long count, long nextId) {
+            header.putLong(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.putInt(H_RECORD_SIZE, RECORD_SIZE);
+            header.putLong(H_COUNT, count);
+            header.putLong(H_NEXT_ID, nextId);
+            header.putLong(H_SYNCED_VERSION, 0);
+            header.force();
+        }
+
+        /**
+         * Maps enough segments to hold {@code slots} records; mapping past the end grows the file.
+         */
+        void ensureMapped(int slots) throws IOException {
+            int needed = (slots + SEGMENT_RECORDS - 1) >> SEGMENT_SHIFT;
+            if (needed <= segments.length) {
+                return;
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(segments, needed);
+            for (int s = segments.length; s < needed; s++) {
+                grown[s] = data.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + s * SEGMENT_BYTES, SEGMENT_BYTES);
+                grown[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            segments = grown;
+        }
+
+        ByteBuffer segment(int slot) {
+            return segments[slot >> SEGMENT_SHIFT];
+        }
+
+        long appendComment(byte[] bytes) throws IOException {
+            long pos = commentEnd;
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) {
+                comments.write(buf, pos + buf.position());
+            }
+            commentEnd += bytes.length;
+            return pos;
+        }
+
+        byte[] readCommentBytes(long pos, int len) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(len);
+            while (buf.hasRemaining()) {
+                if (comments.read(buf, pos + buf.position()) < 0) {
+                    throw new IOException("Comment past the end of " + file("comments"));
+                }
+            }
+            return buf.array();
+        }
+
+        String readComment(long pos, int len) throws IOException {
+            return len == NULL_COMMENT ? null : new String(readCommentBytes(pos, len), StandardCharsets.UTF_8);
+        }
+
+        void forceAll(int count, long nextId, long syncedVersion) throws IOException {
+            comments.force(false);
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            header.putLong(H_COUNT, count);
+            header.putLong(H_NEXT_ID, nextId);
+            header.putLong(H_SYNCED_VERSION, syncedVersion);
+            header.force();
+        }
+
+        void close() {
+            try {
+                data.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                comments.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        void delete() {
+            for (String extension : new String[]{"dat", "comments", "idx"}) {
+                try {
+                    Files.deleteIfExists(file(extension));
+                } catch (IOException e) {
+                    // Cleaned up on the next open
+                }
+            }
+        }
+    }
+}
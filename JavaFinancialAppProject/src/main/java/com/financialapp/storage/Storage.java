@@ -0,0 +1,287 @@
+package com.financialapp.storage;
+
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.TransactionsVersion;
+import com.financialapp.models.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Selects the storage mode for transactions at startup.
+ *
+ * <ul>
+ *   <li>{@code -Dfinancialapp.storage=h2} (default): transactions live in H2 only.</li>
+ *   <li>{@code -Dfinancialapp.storage=ledger}: every committed write is also appended to a
+ *       {@link MappedLedger} in {@code financialapp.ledger.dir} (default ./db/ledger), and
+ *       the analytics engine cold-starts from that file instead of scanning H2.</li>
+ * </ul>
+ * H2 stays the store the screens page, filter and export from, so the ledger follows it and
+ * keeps H2's ids. The ledger is only trusted while it provably matches H2: on a clean
+ * shutdown it records the {@link TransactionsVersion} of H2 it holds, and at the next start
+ * that version, the transaction count and the largest id must all still match. Otherwise
+ * (a run in H2 mode, a crash, a write the ledger missed, an edit by another tool) it is
+ * rebuilt from H2; if that fails, the application runs on H2 alone rather than on a stale
+ * ledger. LedgerParityTest in the benchmarks module checks the copy row by row.
+ */
+public final class Storage {
+
+    public enum Mode { H2, LEDGER }
+
+    public static final Mode MODE = "ledger".equalsIgnoreCase(System.getProperty("financialapp.storage", "h2"))
+            ? Mode.LEDGER : Mode.H2;
+
+    public static final Path LEDGER_DIR = Paths.get(System.getProperty("financialapp.ledger.dir", "./db/ledger"));
+
+    private static volatile MappedLedger ledger;
+    // H2's version when the ledger was opened, and the commits mirrored since (see flush())
+    private static long startVersion;
+    private static final AtomicLong mirroredCommits = new AtomicLong();
+    // Set when a write could not be mirrored; the ledger is then rebuilt at the next start
+    private static volatile boolean missedWrite;
+
+    private Storage() {
+    }
+
+    /**
+     * Opens the ledger in ledger mode, rebuilding it from H2 unless it is known to match.
+     * Call after the database is initialized, before anything writes transactions or reads
+     * {@link #ledger()}.
+     */
+    public static void start() {
+        if (MODE != Mode.LEDGER) {
+            return;
+        }
+        MappedLedger opened = null;
+        try {
+            long start = System.nanoTime();
+            Watermark h2 = Watermark.read();
+            opened = MappedLedger.open(LEDGER_DIR);
+            String stale = h2.mismatch(opened);
+            if (stale != null) {
+                System.out.println("Ledger " + LEDGER_DIR + " does not match H2 (" + stale + "), rebuilding it");
+                opened.close();
+                opened = null;
+                opened = rebuild(LEDGER_DIR, new H2TransactionStore());
+                // Nothing writes while the application starts, so H2 still has the same rows
+                String still = h2.contentMismatch(opened);
+                if (still != null) {
+                    throw new SQLException("Rebuilt ledger does not match H2: " + still);
+                }
+            }
+            // Until a clean shutdown records the version again, a crash leaves the ledger untrusted
+            opened.setSyncedVersion(0);
+            startVersion = h2.version();
+            mirroredCommits.set(0);
+            missedWrite = false;
+            ledger = opened;
+            System.out.println("Opened ledger " + LEDGER_DIR + " with " + opened.count() + " transactions in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (SQLException e) {
+            System.out.println("Ledger storage unavailable, continuing with H2 only");
+            e.printStackTrace();
+            if (opened != null) {
+                try {
+                    opened.close();
+                } catch (SQLException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+        }
+    }
+
+    /**
+     * The open ledger, or null in H2 mode or if it could not be opened.
+     */
+    public static MappedLedger ledger() {
+        return ledger;
+    }
+
+    /**
+     * Copies every transaction of {@code source} into {@code target}, keeping ids.
+     * @return the number copied
+     */
+    public static int seed(MappedLedger target, H2TransactionStore source) throws SQLException {
+        int[] copied = {0};
+        SQLException[] error = {null};
+        source.forEach(tx -> {
+            if (error[0] != null) {
+                return;
+            }
+            try {
+                target.put(tx);
+                copied[0]++;
+            } catch (SQLException e) {
+                error[0] = e;
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        target.flush();
+        return copied[0];
+    }
+
+    /**
+     * Replaces the ledger in {@code dir} with a copy of {@code source}.
+     * @return the new ledger, open
+     */
+    public static MappedLedger rebuild(Path dir, H2TransactionStore source) throws SQLException {
+        try {
+            if (Files.isDirectory(dir)) {
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot clear ledger in " + dir + ": " + e.getMessage(), e);
+        }
+        MappedLedger rebuilt = MappedLedger.open(dir);
+        try {
+            int seeded = seed(rebuilt, source);
+            System.out.println("Rebuilt ledger with " + seeded + " transactions from H2");
+            return rebuilt;
+        } catch (SQLException | RuntimeException e) {
+            rebuilt.close();
+            throw e;
+        }
+    }
+
+    // ---------------- Write hooks ----------------
+
+    /**
+     * Mirrors a committed insert or update. Call {@link #flush()} once the transaction's
+     * writes are all reported.
+     */
+    public static void upsert(long id, LocalDate date, long categoryId, long subcategoryId, long walletId,
+                              long currencyId, long amountCents, String comment) {
+        MappedLedger l = ledger;
+        if (l == null) {
+            return;
+        }
+        try {
+            l.put(new Transaction(id, date, categoryId, subcategoryId, amountCents, currencyId, walletId, comment));
+        } catch (SQLException e) {
+            // H2 already committed; the ledger is rebuilt from it at the next start
+            missedWrite = true;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Mirrors a committed delete.
+     */
+    public static void remove(long id) {
+        MappedLedger l = ledger;
+        if (l == null) {
+            return;
+        }
+        try {
+            l.delete(id);
+        } catch (SQLException e) {
+            missedWrite = true;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Makes the mirrored writes of one committed transaction durable. Call exactly once per
+     * transaction that advanced {@link TransactionsVersion}, after its upserts and removes:
+     * the calls are counted against the version at shutdown.
+     */
+    public static void flush() {
+        MappedLedger l = ledger;
+        if (l == null) {
+            return;
+        }
+        try {
+            l.flush();
+            mirroredCommits.incrementAndGet();
+        } catch (SQLException e) {
+            missedWrite = true;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the ledger, writing its index for a fast next start. If every transaction H2
+     * committed since {@link #start()} was mirrored, records H2's version so the next start
+     * can trust the ledger. Called when the application stops, before the database closes.
+     */
+    public static void shutdown() {
+        MappedLedger l = ledger;
+        ledger = null;
+        if (l == null) {
+            return;
+        }
+        try {
+            long version;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                version = TransactionsVersion.read(conn);
+            }
+            // A commit still being mirrored, or one from another process, leaves the count short
+            if (!missedWrite && startVersion + mirroredCommits.get() == version) {
+                l.setSyncedVersion(version);
+            } else {
+                System.out.println("Ledger missed writes to H2; it will be rebuilt at the next start");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                l.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * What the ledger must agree with: H2's version, transaction count and largest id.
+     */
+    private record Watermark(long version, int count, long maxId) {
+
+        static Watermark read() throws SQLException {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*), COALESCE(MAX(id), 0) FROM transactions")) {
+                rs.next();
+                return new Watermark(TransactionsVersion.read(conn), rs.getInt(1), rs.getLong(2));
+            }
+        }
+
+        /**
+         * @return why {@code l} does not match, or null if it does
+         */
+        String mismatch(MappedLedger l) throws SQLException {
+            if (l.getSyncedVersion() != version) {
+                return "version " + l.getSyncedVersion() + ", H2 at " + version;
+            }
+            return contentMismatch(l);
+        }
+
+        /**
+         * Like {@link #mismatch} without the version, for a ledger just copied from H2.
+         */
+        String contentMismatch(MappedLedger l) throws SQLException {
+            if (l.count() != count) {
+                return l.count() + " transactions, H2 has " + count;
+            }
+            if (l.maxId() != maxId) {
+                return "largest id " + l.maxId() + ", H2 has " + maxId;
+            }
+            return null;
+        }
+    }
+}
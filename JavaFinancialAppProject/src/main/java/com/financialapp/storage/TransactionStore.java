@@ -0,0 +1,67 @@
+package com.financialapp.storage;
+
+import com.financialapp.models.Transaction;
+
+import java.sql.SQLException;
+
+/**
+ * Storage engine for transactions: H2 ({@link H2TransactionStore}) or the memory-mapped
+ * ledger file ({@link MappedLedger}). Both report failures as SQLException so callers
+ * handle them the same way as every other database error in the app.
+ */
+public interface TransactionStore extends AutoCloseable {
+
+    /**
+     * Receives the numeric columns of each stored transaction during {@link #scan}.
+     * Implementations read straight from their storage, without building Transaction objects.
+     */
+    @FunctionalInterface
+    interface RowVisitor {
+        /**
+         * @param subcategoryId 0 when the transaction has no subcategory
+         */
+        void visit(long id, int epochDay, long categoryId, long subcategoryId,
+                   long walletId, long currencyId, long amountCents);
+    }
+
+    /**
+     * Stores {@code tx} under a new id (its own id is ignored).
+     * @return the new id
+     */
+    long insert(Transaction tx) throws SQLException;
+
+    /**
+     * Overwrites the transaction with id {@code tx.getId()}.
+     * @return false if no such transaction exists
+     */
+    boolean update(Transaction tx) throws SQLException;
+
+    /**
+     * @return false if no such transaction exists
+     */
+    boolean delete(long id) throws SQLException;
+
+    /**
+     * @return the transaction, or null if there is none with this id
+     */
+    Transaction find(long id) throws SQLException;
+
+    /**
+     * Number of stored transactions.
+     */
+    int count() throws SQLException;
+
+    /**
+     * Visits every stored transaction once, in no particular order.
+     */
+    void scan(RowVisitor visitor) throws SQLException;
+
+    /**
+     * Makes all writes so far durable. Engines that commit every write themselves do nothing.
+     */
+    default void flush() throws SQLException {
+    }
+
+    @Override
+    void close() throws SQLException;
+}
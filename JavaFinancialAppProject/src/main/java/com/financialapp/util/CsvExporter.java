@@ -1,30 +1,90 @@
 package com.financialapp.util;
 
-import com.financialapp.models.Transaction;
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.TransactionPageSource;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Exports transactions to CSV straight from the database.
+ *
+ * Rows are read from one forward-only cursor and written through a buffered {@link CsvWriter},
+ * so memory use does not depend on how many transactions are exported. Columns are
+ * ID,Date,CategoryId,SubcategoryId,Amount,CurrencyId,WalletId,Comment, which is what
+ * {@link CsvImporter} reads back; a missing subcategory is an empty field.
+ */
 public class CsvExporter {
 
-    public static void exportTransactions(List<Transaction> transactions, String filePath) {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write("ID,Date,CategoryId,SubcategoryId,Amount,CurrencyId,WalletId,Comment\n");
-            for (Transaction tx : transactions) {
-                writer.write(tx.getId() + "," +
-                             tx.getDate() + "," +
-                             tx.getCategoryId() + "," +
-                             tx.getSubcategoryId() + "," +
-                             tx.getAmount() + "," +
-                             tx.getCurrencyId() + "," +
-                             tx.getWalletId() + "," +
-                             (tx.getComment() == null ? "" : tx.getComment().replace(",", " ")) +
-                             "\n");
+    public static final String HEADER = "ID,Date,CategoryId,SubcategoryId,Amount,CurrencyId,WalletId,Comment";
+
+    private static final int FETCH_SIZE = 1_000;
+
+    /**
+     * Writes every transaction matching {@code source}'s filter to {@code file}, in id order.
+     *
+     * @param gzip compress the output with gzip
+     * @return the number of transactions written
+     */
+    public static long exportTransactions(TransactionPageSource source, Path file, boolean gzip)
+            throws IOException, SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             CsvWriter csv = new CsvWriter(openChannel(file, gzip))) {
+            csv.record(HEADER.split(","));
+            // Without lazy execution embedded H2 materialises the whole result before returning it
+            setLazy(conn, true);
+            try (PreparedStatement ps = source.prepareScan(conn, FETCH_SIZE);
+                 ResultSet rs = ps.executeQuery()) {
+                long rows = 0;
+                while (rs.next()) {
+                    csv.field(rs.getLong("id"));
+                    csv.field(rs.getDate("date").toString());
+                    csv.field(rs.getLong("category_id"));
+                    long sub = rs.getLong("subcategory_id");
+                    csv.field(rs.wasNull() ? null : Long.toString(sub));
+                    csv.field(Money.format(rs.getLong("amount_cents")));
+                    csv.field(rs.getLong("currency_id"));
+                    csv.field(rs.getLong("wallet_id"));
+                    csv.field(rs.getString("comment"));
+                    csv.endRecord();
+                    rows++;
+                }
+                return rows;
+            } finally {
+                setLazy(conn, false);
             }
-            writer.flush();
+        }
+    }
+
+    private static WritableByteChannel openChannel(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!gzip) {
+            return channel;
+        }
+        try {
+            OutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            return Channels.newChannel(out);
         } catch (IOException e) {
-            e.printStackTrace();
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void setLazy(Connection conn, boolean lazy) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
         }
     }
-}
\ No newline at end of file
+}
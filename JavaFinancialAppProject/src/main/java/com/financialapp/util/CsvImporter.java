@@ -0,0 +1,355 @@
+package com.financialapp.util;
+
+import com.financialapp.analytics.Analytics;
+import com.financialapp.cache.DimensionCache;
+import com.financialapp.database.DatabaseConnection;
+import com.financialapp.database.MonthlyTotals;
+import com.financialapp.database.TransactionsVersion;
+import com.financialapp.search.CommentSearch;
+import com.financialapp.storage.Storage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bulk import of transactions from CSV, the counterpart of {@link CsvExporter}.
+ *
+ * Expected columns are the export layout: ID,Date,CategoryId,SubcategoryId,Amount,CurrencyId,WalletId,Comment.
+ * The ID column is ignored (new ids are generated). Category, subcategory, currency and wallet
+ * may be given either as ids or as names (currency code), resolved through {@link DimensionCache}.
+ * An empty or 0 subcategory means none.
+ *
+ * A background thread parses and resolves the file while the calling thread inserts the
+ * rows with JDBC batches. Each chunk of {@code batchSize} rows is committed in its own
+ * transaction together with its monthly_totals deltas, then reported to the {@link Analytics}
+ * engine and the ledger file ({@link Storage}) when they are enabled. Rows that cannot be
+ * parsed or resolved are skipped and listed in the {@link Result}; a database error stops
+ * the import, keeping the chunks committed so far.
+ */
+public class CsvImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("financialapp.import.batchSize", 5_000);
+
+    // Parsed chunks waiting for the inserting thread
+    private static final int QUEUE_CHUNKS = 4;
+    // Error rows kept for the report; the rest are only counted
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // Limits of the transactions columns (V1InitialSchema): amount DECIMAL(15,2), comment VARCHAR(255).
+    // A value over them would fail the whole batch, so such a row is an error row instead.
+    private static final long MAX_AMOUNT_CENTS = 999_999_999_999_999L;
+    private static final int MAX_COMMENT_LENGTH = 255;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO transactions (date, category_id, subcategory_id, amount, currency_id, wallet_id, comment) " +
+            "VALUES (?,?,?,?,?,?,?)";
+
+    private final int batchSize;
+
+    public CsvImporter() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public CsvImporter(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports a UTF-8 CSV file into the application database.
+     */
+    public Result importFile(Path file) throws IOException, SQLException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Connection conn = DatabaseConnection.getConnection()) {
+            return importFrom(reader, conn);
+        }
+    }
+
+    /**
+     * Imports CSV data from {@code reader} using {@code conn}. The connection's auto-commit
+     * setting is restored afterwards; the reader is not closed.
+     */
+    public Result importFrom(Reader reader, Connection conn) throws IOException, SQLException {
+        long start = System.nanoTime();
+        DimensionCache.preload();
+
+        Result result = new Result();
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        Thread parser = new Thread(() -> parse(reader, queue), "csv-import-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        // Generated ids are only needed to keep the analytics engine, the search index and the ledger file in sync
+        int keys = mirrored() ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, keys)) {
+            while (true) {
+                Chunk chunk = queue.take();
+                if (chunk.failure != null) {
+                    throw chunk.failure;
+                }
+                insert(conn, ps, chunk.rows);
+                result.imported += chunk.rows.size();
+                result.addErrors(chunk.errors, chunk.errorCount);
+                if (chunk.last) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            parser.interrupt();
+            conn.setAutoCommit(autoCommit);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // ---------------- Inserting (calling thread) ----------------
+
+    private void insert(Connection conn, PreparedStatement ps, List<Row> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        MonthlyTotals.Deltas deltas = new MonthlyTotals.Deltas();
+        for (Row row : rows) {
+            ps.setDate(1, Date.valueOf(row.date));
+            ps.setLong(2, row.categoryId);
+            if (row.subcategoryId <= 0) {
+                ps.setNull(3, Types.BIGINT);
+            } else {
+                ps.setLong(3, row.subcategoryId);
+            }
+            Money.bind(ps, 4, row.amountCents);
+            ps.setLong(5, row.currencyId);
+            ps.setLong(6, row.walletId);
+            ps.setString(7, row.comment);
+            ps.addBatch();
+
+            deltas.add(row.date, row.categoryId, row.walletId, row.currencyId, row.amountCents, 1);
+        }
+        ps.executeBatch();
+        long[] ids = mirrored() ? generatedIds(ps, rows.size()) : null;
+        deltas.apply(conn);
+        TransactionsVersion.advance(conn);
+        conn.commit();
+
+        if (ids != null) {
+            for (int i = 0; i < ids.length; i++) {
+                Row row = rows.get(i);
+                Analytics.upsert(ids[i], row.date, row.categoryId, row.subcategoryId, row.walletId,
+                        row.currencyId, row.amountCents);
+                CommentSearch.upsert(ids[i], row.date, row.categoryId, null, row.comment);
+                Storage.upsert(ids[i], row.date, row.categoryId, row.subcategoryId, row.walletId,
+                        row.currencyId, row.amountCents, row.comment);
+            }
+            Storage.flush();
+        }
+    }
+
+    private static boolean mirrored() {
+        return Analytics.ENABLED || CommentSearch.ENABLED || Storage.ledger() != null;
+    }
+
+    private static long[] generatedIds(PreparedStatement ps, int count) throws SQLException {
+        long[] ids = new long[count];
+        int n = 0;
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next() && n < count) {
+                ids[n++] = rs.getLong(1);
+            }
+        }
+        if (n != count) {
+            throw new SQLException("Expected " + count + " generated ids, got " + n);
+        }
+        return ids;
+    }
+
+    // ---------------- Parsing (background thread) ----------------
+
+    private void parse(Reader reader, BlockingQueue<Chunk> queue) {
+        try {
+            CsvReader csv = new CsvReader(reader);
+            Chunk chunk = new Chunk(batchSize);
+            List<String> fields;
+            boolean first = true;
+            while ((fields = csv.readRecord()) != null) {
+                if (first) {
+                    first = false;
+                    if (!fields.isEmpty() && fields.get(0).trim().equalsIgnoreCase("ID")) {
+                        continue; // header
+                    }
+                }
+                if (fields.size() == 1 && fields.get(0).trim().isEmpty()) {
+                    continue; // blank line
+                }
+                try {
+                    chunk.rows.add(toRow(fields));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    chunk.addError("line " + csv.getRecordLine() + ": " + e.getMessage());
+                }
+                if (chunk.rows.size() >= batchSize) {
+                    queue.put(chunk);
+                    chunk = new Chunk(batchSize);
+                }
+            }
+            chunk.last = true;
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            // The inserting side gave up
+        } catch (IOException e) {
+            offerFailure(queue, e);
+        } catch (RuntimeException e) {
+            offerFailure(queue, new IOException("Could not parse CSV", e));
+        }
+    }
+
+    private static void offerFailure(BlockingQueue<Chunk> queue, IOException e) {
+        Chunk failed = new Chunk(0);
+        failed.failure = e;
+        try {
+            queue.put(failed);
+        } catch (InterruptedException ignored) {
+            // The inserting side gave up
+        }
+    }
+
+    private static Row toRow(List<String> f) {
+        if (f.size() != 8) {
+            throw new IllegalArgumentException("expected 8 columns but found " + f.size());
+        }
+        Row row = new Row();
+        row.date = LocalDate.parse(f.get(1).trim());
+        row.categoryId = resolve("category", f.get(2), DimensionCache::getCategoryName, DimensionCache::getCategoryId);
+        String sub = f.get(3).trim();
+        row.subcategoryId = sub.isEmpty() || sub.equals("0") ? -1
+                : resolve("subcategory", sub, DimensionCache::getSubcategoryName, DimensionCache::getSubcategoryId);
+        try {
+            row.amountCents = Money.parse(f.get(4));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid amount '" + f.get(4) + "'");
+        }
+        if (Math.abs(row.amountCents) > MAX_AMOUNT_CENTS) {
+            throw new IllegalArgumentException("amount '" + f.get(4) + "' has more than 13 integer digits");
+        }
+        row.currencyId = resolve("currency", f.get(5), DimensionCache::getCurrencyCode, DimensionCache::getCurrencyId);
+        row.walletId = resolve("wallet", f.get(6), DimensionCache::getWalletName, DimensionCache::getWalletId);
+        if (f.get(7).length() > MAX_COMMENT_LENGTH) {
+            throw new IllegalArgumentException("comment longer than " + MAX_COMMENT_LENGTH + " characters");
+        }
+        row.comment = f.get(7).isEmpty() ? null : f.get(7);
+        return row;
+    }
+
+    /**
+     * Accepts an existing id or a name.
+     */
+    private static long resolve(String what, String value, LongFunction<String> nameById, ToLongFunction<String> idByName) {
+        String v = value.trim();
+        if (!v.isEmpty() && v.chars().allMatch(Character::isDigit) && v.length() < 19) {
+            long id = Long.parseLong(v);
+            if (!nameById.apply(id).isEmpty()) {
+                return id;
+            }
+        }
+        long id = idByName.applyAsLong(v);
+        if (id == -1) {
+            throw new IllegalArgumentException("unknown " + what + " '" + value + "'");
+        }
+        return id;
+    }
+
+    private static class Row {
+        LocalDate date;
+        long categoryId;
+        long subcategoryId;
+        long amountCents;
+        long currencyId;
+        long walletId;
+        String comment;
+    }
+
+    private static class Chunk {
+        final List<Row> rows;
+        final List<String> errors = new ArrayList<>();
+        int errorCount;
+        boolean last;
+        IOException failure;
+
+        Chunk(int capacity) {
+            rows = new ArrayList<>(capacity);
+        }
+
+        void addError(String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static class Result {
+        private long imported;
+        private long errorCount;
+        private final List<String> errors = new ArrayList<>();
+        private long elapsedNanos;
+
+        public long getImported() { return imported; }
+
+        /** Number of rows skipped because they could not be parsed or resolved. */
+        public long getErrorCount() { return errorCount; }
+
+        /** Messages for the first skipped rows ("line N: reason"). */
+        public List<String> getErrors() { return Collections.unmodifiableList(errors); }
+
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : imported * 1e9 / elapsedNanos;
+        }
+
+        void addErrors(List<String> messages, int count) {
+            errorCount += count;
+            for (String m : messages) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(m);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %,d row(s) in %.1f s (%,.0f rows/s), %,d error row(s)",
+                    imported, elapsedNanos / 1e9, getRowsPerSecond(), errorCount);
+        }
+    }
+}
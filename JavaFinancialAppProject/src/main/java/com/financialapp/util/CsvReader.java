@@ -0,0 +1,126 @@
+package com.financialapp.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV parser: one record at a time, so files of any size can be read in
+ * constant memory.
+ *
+ * Fields may be quoted; inside quotes, commas and line breaks are literal and {@code ""} is
+ * an escaped quote. Records end with CRLF, LF or CR. A quote inside an unquoted field is kept
+ * as is, and an unterminated quoted field runs to the end of the input.
+ */
+public class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buf = new char[BUFFER_SIZE];
+    private int pos;
+    private int len;
+    private boolean eof;
+
+    private long line = 1;          // line the next record starts on
+    private long recordLine;        // line the last returned record started on
+    private boolean firstRecord = true;
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the fields of the next record, or null at end of input
+     */
+    public List<String> readRecord() throws IOException {
+        if (firstRecord) {
+            firstRecord = false;
+            // Skip a UTF-8 byte order mark, as written by e.g. Excel
+            if (fill() && buf[pos] == '\uFEFF') {
+                pos++;
+            }
+        }
+        if (!fill()) {
+            return null;
+        }
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;      // inside a quoted section
+        boolean wasQuoted = false;   // current field started with a quote
+
+        while (fill()) {
+            char c = buf[pos++];
+            if (quoted) {
+                if (c == '"') {
+                    if (fill() && buf[pos] == '"') {
+                        field.append('"');
+                        pos++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append(c);
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && fill() && buf[pos] == '\n') {
+                    pos++;
+                }
+                line++;
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Line number (1-based) on which the record last returned by {@link #readRecord()} started.
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * @return true if at least one character is available at {@code pos}
+     */
+    private boolean fill() throws IOException {
+        if (pos < len) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        int n;
+        do {
+            n = in.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        pos = 0;
+        len = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
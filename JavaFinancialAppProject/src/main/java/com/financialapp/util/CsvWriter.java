@@ -0,0 +1,178 @@
+package com.financialapp.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered RFC 4180 CSV writer on top of a byte channel, the counterpart of {@link CsvReader}.
+ *
+ * Fields are collected in a char buffer and encoded to UTF-8 into a large byte buffer, which
+ * goes to the channel in big writes. A field is quoted only if it contains a comma, a quote
+ * or a line break; quotes inside it are doubled. Records end with CRLF.
+ */
+public class CsvWriter implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(16 * 1024);
+    private final ByteBuffer bytes;
+    private boolean firstField = true;
+
+    public CsvWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Writes one field, quoting it if needed. Null is written as an empty field.
+     */
+    public CsvWriter field(String value) throws IOException {
+        separator();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (needsQuotes(value)) {
+            put('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    put('"');
+                }
+                put(c);
+            }
+            put('"');
+        } else {
+            put(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number; never quoted.
+     */
+    public CsvWriter field(long value) throws IOException {
+        separator();
+        put(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Ends the current record.
+     */
+    public void endRecord() throws IOException {
+        put('\r');
+        put('\n');
+        firstField = true;
+    }
+
+    /**
+     * Writes a whole record.
+     */
+    public void record(String... fields) throws IOException {
+        for (String f : fields) {
+            field(f);
+        }
+        endRecord();
+    }
+
+    /**
+     * Pushes everything buffered so far to the channel.
+     */
+    public void flush() throws IOException {
+        encode(false);
+        drain();
+    }
+
+    /**
+     * Flushes and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            encode(true);
+            while (encoder.flush(bytes) == CoderResult.OVERFLOW) {
+                drain();
+            }
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void separator() throws IOException {
+        if (firstField) {
+            firstField = false;
+        } else {
+            put(',');
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+    }
+
+    private void put(String s) throws IOException {
+        int off = 0;
+        while (off < s.length()) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int n = Math.min(chars.remaining(), s.length() - off);
+            chars.put(s, off, off + n);
+            off += n;
+        }
+    }
+
+    /**
+     * Moves the buffered chars into the byte buffer, writing to the channel whenever it fills up.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+        // A trailing high surrogate stays in the buffer until its pair arrives
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
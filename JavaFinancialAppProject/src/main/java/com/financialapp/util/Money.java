@@ -0,0 +1,119 @@
+package com.financialapp.util;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Money amounts as a primitive {@code long} number of cents.
+ *
+ * The schema stores amounts as DECIMAL(15,2); the app reads them as cents with
+ * {@link #cents(String)} in SQL and {@code ResultSet.getLong}, adds them up as longs, and
+ * only converts to text ({@link #format}) or to a chart value ({@link #toDouble}) at the
+ * edges. Sums are therefore exact, and reading a row allocates no BigDecimal.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * SQL expression reading a DECIMAL(…,2) column or aggregate as BIGINT cents,
+     * e.g. {@code cents("SUM(t.amount)")}.
+     */
+    public static String cents(String decimalExpression) {
+        return "CAST(" + decimalExpression + " * 100 AS BIGINT)";
+    }
+
+    /**
+     * Binds an amount in cents to a DECIMAL parameter.
+     */
+    public static void bind(PreparedStatement ps, int index, long cents) throws SQLException {
+        ps.setBigDecimal(index, BigDecimal.valueOf(cents, 2));
+    }
+
+    /**
+     * Parses a decimal amount such as "12", "-3.5" or "0.125" into cents.
+     * More than two decimals are rounded half up, as DECIMAL(15,2) does.
+     *
+     * @throws NumberFormatException if {@code text} is not a plain decimal number or is too large
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("null");
+        }
+        String s = text.trim();
+        int i = 0;
+        boolean negative = false;
+        if (i < s.length() && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        try {
+            for (; i < s.length() && s.charAt(i) != '.'; i++) {
+                units = Math.addExact(Math.multiplyExact(units, 10), digit(s, i));
+                digits++;
+            }
+            long fraction = 0;
+            boolean roundUp = false;
+            if (i < s.length()) {
+                i++; // '.'
+                int pos = 0;
+                for (; i < s.length(); i++, pos++) {
+                    int d = digit(s, i);
+                    if (pos < 2) {
+                        fraction = fraction * 10 + d;
+                    } else if (pos == 2) {
+                        roundUp = d >= 5;
+                    }
+                    digits++;
+                }
+                if (pos == 1) {
+                    fraction *= 10; // "1.5" is 150 cents
+                }
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Not an amount: \"" + text + "\"");
+            }
+            long cents = Math.addExact(Math.multiplyExact(units, 100), fraction + (roundUp ? 1 : 0));
+            return negative ? -cents : cents;
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount too large: \"" + text + "\"");
+        }
+    }
+
+    /**
+     * Formats cents as a plain decimal with two decimals, e.g. 123456 -> "1234.56", -5 -> "-0.05".
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        // Negating Long.MIN_VALUE overflows, so split into units and cents first
+        long units = Math.abs(cents / 100);
+        int rest = (int) Math.abs(cents % 100);
+        sb.append(units).append('.');
+        if (rest < 10) {
+            sb.append('0');
+        }
+        return sb.append(rest).toString();
+    }
+
+    /**
+     * Amount as a double in currency units, for charts only.
+     */
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    private static int digit(String s, int i) {
+        char c = s.charAt(i);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Not an amount: \"" + s + "\"");
+        }
+        return c - '0';
+    }
+}